@@ -0,0 +1,60 @@
+#!/bin/sh
+# Builds one backend at the current checkout, starts it, seeds the dataset, drives the workload and keeps
+# the results (with the backend's log) in results/<target>/<git revision>-<time>/.
+#
+#   ./run.sh papertrail|todo [options for seeding and the run, e.g. --users=500 --rate=300 --duration=2m]
+#   java -jar target/load-test.jar compare results/papertrail/<baseline> results/papertrail/<candidate>
+#
+# Needs a local Postgres with the backends' databases (paper_trail, notes; postgres/postgres) and, for the
+# ToDoApp, Java 21. APP_OPTS is passed to the backend's JVM, e.g. APP_OPTS=-Xmx1g.
+set -e
+cd "$(dirname "$0")"
+
+target=$1
+[ -n "$target" ] && shift
+work=$(mktemp -d)
+case $target in
+  papertrail)
+    app=../paper-trail/backend
+    jar=$app/target/papertrail-0.0.1-SNAPSHOT-exec.jar
+    port=8080
+    seed=seed-notes
+    # Uploads go to local files instead of Cloudinary; login throttling would refuse the session logins
+    app_args="--papertrail.images.storage=local --papertrail.images.local-dir=$work/images
+      --papertrail.images.variant-cache-dir=$work/variants --papertrail.auth.throttle.ip-attempts=1000000" ;;
+  todo)
+    app=../backend
+    jar=$app/target/ToDoApp-0.0.1-SNAPSHOT-exec.jar
+    port=8081
+    seed=seed-tasks
+    app_args="--server.port=$port" ;;
+  *)
+    echo "usage: $0 papertrail|todo [options]"
+    exit 1 ;;
+esac
+
+label=$(git rev-parse --short HEAD)
+git diff --quiet HEAD -- "$app" || label=$label-dirty
+out=results/$target/$label-$(date +%Y%m%d-%H%M%S)
+
+mvn -B -q package
+mvn -B -q -f $app/pom.xml package -DskipTests
+mkdir -p $out
+
+# shellcheck disable=SC2086
+java $APP_OPTS -jar $jar $app_args > $out/app.log 2>&1 &
+app_pid=$!
+trap 'kill $app_pid 2>/dev/null; wait $app_pid 2>/dev/null; rm -rf "$work"' EXIT
+tries=0
+until curl -s -o /dev/null "http://localhost:$port/"; do
+  tries=$((tries + 1))
+  if ! kill -0 $app_pid 2>/dev/null || [ $tries -gt 120 ]; then
+    echo "Backend did not start:"
+    tail -50 $out/app.log
+    exit 1
+  fi
+  sleep 1
+done
+
+java -jar target/load-test.jar $seed "$@"
+java -jar target/load-test.jar run $target --base-url=http://localhost:$port --label=$label --out=$out "$@"
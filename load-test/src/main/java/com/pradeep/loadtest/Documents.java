@@ -0,0 +1,80 @@
+package com.pradeep.loadtest;
+
+import java.util.SplittableRandom;
+
+// Editor.js documents shaped like real note content: headers, paragraphs, lists and image blocks
+final class Documents {
+
+    private static final String[] WORDS = {"the", "note", "meeting", "draft", "review", "<b>idea</b>", "plan",
+            "list", "project", "deadline", "follow", "up", "<i>todo</i>", "summary", "release", "customer",
+            "design", "budget", "notes", "question", "answer", "weekly", "sync", "paper", "trail", "&nbsp;"};
+
+    private Documents() {
+    }
+
+    /**
+     * Document sizes are log-normal: most notes are a few KB, a long tail reaches max
+     * @param median Median size in bytes
+     * @param max Upper bound in bytes
+     */
+    static int size(SplittableRandom random, int median, int max) {
+        return (int) Math.min(max, Math.max(64, logNormal(random, median)));
+    }
+
+    // Log-normal with the given median and a sigma of 1
+    static double logNormal(SplittableRandom random, double median) {
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        return median * Math.exp(gaussian);
+    }
+
+    /**
+     * @param heading Text of the first block, a header
+     * @param bytes Approximate size of the JSON text
+     * @return The document as JSON text
+     */
+    static String editorJs(SplittableRandom random, String heading, int bytes) {
+        StringBuilder json = new StringBuilder(bytes + 256)
+                .append("{\"time\":").append(1_700_000_000_000L + random.nextInt(1_000_000_000)).append(",\"blocks\":[");
+        for (int block = 0; json.length() < bytes; block++) {
+            if (block > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(Long.toHexString(random.nextLong())).append("\",");
+            int kind = block == 0 ? 0 : random.nextInt(10);
+            if (kind == 0) {
+                json.append("\"type\":\"header\",\"data\":{\"text\":\"")
+                        .append(block == 0 ? heading : words(random, 3 + random.nextInt(5)))
+                        .append("\",\"level\":").append(2 + random.nextInt(2)).append("}}");
+            } else if (kind < 3) {
+                json.append("\"type\":\"list\",\"data\":{\"style\":\"unordered\",\"items\":[");
+                int items = 2 + random.nextInt(5);
+                for (int item = 0; item < items; item++) {
+                    json.append(item > 0 ? ",\"" : "\"").append(words(random, 3 + random.nextInt(8))).append('"');
+                }
+                json.append("]}}");
+            } else if (kind == 3) {
+                json.append("\"type\":\"image\",\"data\":{\"file\":{\"url\":\"https://example.com/images/")
+                        .append(Long.toHexString(random.nextLong())).append(".png\"},\"caption\":\"")
+                        .append(words(random, 4)).append("\",\"withBorder\":false,\"stretched\":false}}");
+            } else {
+                json.append("\"type\":\"paragraph\",\"data\":{\"text\":\"").append(words(random, 10 + random.nextInt(60)))
+                        .append("\"}}");
+            }
+        }
+        return json.append("],\"version\":\"2.28.2\"}").toString();
+    }
+
+    static String words(SplittableRandom random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(i > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    // What the backend's Note.extractSnippet stores for a document starting with this heading
+    static String snippet(String heading) {
+        String plain = heading.replaceAll("<[^>]*>", "").replace("&nbsp;", " ").trim();
+        return plain.isEmpty() ? null : plain.substring(0, Math.min(plain.length(), 200));
+    }
+}
@@ -0,0 +1,97 @@
+package com.pradeep.loadtest;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Seeds a dataset and drives load against the PaperTrail or ToDoApp backend. run.sh does a whole
+ * build, seed, run cycle; the commands are:
+ * <pre>
+ * seed-notes [--jdbc-url=jdbc:postgresql://localhost:5432/paper_trail] [--users=200] [--notes-per-user=25]
+ *            [--note-bytes-median=2048] [--note-bytes-max=262144] [--shares-per-note=1.5] [--seed=42]
+ * seed-tasks [--jdbc-url=jdbc:postgresql://localhost:5432/notes] [--tasks=1000] [--seed=42]
+ * run papertrail|todo [--base-url=...] [--rate=200] [--warmup=15s] [--duration=60s] [--max-in-flight=256]
+ *            [--mix=list=30,get=35,...] [--sessions=50] [--users=200] [--seed=42] [--label=...] [--out=results/...]
+ * compare &lt;baseline dir or summary.json&gt; &lt;candidate dir or summary.json&gt;
+ * </pre>
+ * Database options: --db-user, --db-password (default postgres/postgres).
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        switch (args.length > 0 ? options.argument(0) : "help") {
+            case "seed-notes" -> {
+                try (Connection connection = connect(options, "jdbc:postgresql://localhost:5432/paper_trail")) {
+                    new NoteSeeder(connection, options).seed();
+                }
+            }
+            case "seed-tasks" -> {
+                try (Connection connection = connect(options, "jdbc:postgresql://localhost:5432/notes")) {
+                    new TaskSeeder(connection, options).seed();
+                }
+            }
+            case "run" -> run(options);
+            case "compare" -> Report.compare(Path.of(options.argument(1)), Path.of(options.argument(2)));
+            default -> {
+                System.out.println("Commands: seed-notes, seed-tasks, run papertrail|todo, compare <a> <b>"
+                        + " (see the LoadTest class for options)");
+                System.exit(args.length > 0 ? 1 : 0);
+            }
+        }
+    }
+
+    private static void run(Options options) throws Exception {
+        String target = options.argument(1);
+        Workload workload = switch (target) {
+            case "papertrail" -> new PaperTrailWorkload(options);
+            case "todo" -> new TodoWorkload(options);
+            default -> throw new IllegalArgumentException("Unknown target " + target + " (papertrail or todo)");
+        };
+        OpenLoopRunner runner = new OpenLoopRunner(options);
+        String label = options.string("label", "");
+        Path directory = Path.of(options.string("out", "results/" + target + "/"
+                + (label.isEmpty() ? "" : label + "-")
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))));
+        Files.createDirectories(directory);
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        workload.setUp(client);
+        System.out.printf("Running %s at %.0f req/s: %ds warmup, %ds measured%n", target, runner.rate(),
+                runner.warmup().toSeconds(), runner.duration().toSeconds());
+        Map<String, OpenLoopRunner.Result> results = runner.run(client, workload, directory.resolve("latency.hlog"));
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("target", target);
+        run.put("label", label);
+        run.put("rate", runner.rate());
+        run.put("warmupSeconds", runner.warmup().toSeconds());
+        run.put("durationSeconds", runner.duration().toSeconds());
+        run.put("maxInFlight", runner.maxInFlight());
+        run.put("mix", new TreeMap<>(workload.weights()));
+        run.put("startedAt", LocalDateTime.now().minus(runner.warmup().plus(runner.duration())).toString());
+        Report.write(directory, run, results, runner.duration().toMillis() / 1000.0);
+    }
+
+    private static Connection connect(Options options, String defaultUrl) throws Exception {
+        String url = options.string("jdbc-url", defaultUrl);
+        // Multi-row INSERTs for the seed batches
+        return DriverManager.getConnection(url + (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true",
+                options.string("db-user", "postgres"), options.string("db-password", "postgres"));
+    }
+}
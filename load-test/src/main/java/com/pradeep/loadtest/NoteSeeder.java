@@ -0,0 +1,176 @@
+package com.pradeep.loadtest;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Seeds the PaperTrail database with load-test users, notes and shares, replacing any earlier load-test data.
+ * Everything is derived from the seed, so two runs with the same options produce the same dataset.
+ * Users are loadtest-N@example.com with password {@link #PASSWORD}. Safe to run against a live backend:
+ * note and permission ids are reserved from the same sequences Hibernate allocates from.
+ */
+final class NoteSeeder {
+
+    static final String PASSWORD = "loadtest-password";
+    static final String EMAIL_PATTERN = "loadtest-%d@example.com";
+
+    // Block size of note_seq and note_permissions_seq (allocationSize in Note and NotePermission)
+    private static final int SEQUENCE_BLOCK = 50;
+    private static final int BATCH_SIZE = 500;
+
+    private final Connection connection;
+    private final SplittableRandom random;
+    private final int users;
+    private final int notesPerUser;
+    private final int medianBytes;
+    private final int maxBytes;
+    private final double sharesPerNote;
+
+    NoteSeeder(Connection connection, Options options) {
+        this.connection = connection;
+        this.random = new SplittableRandom(options.longValue("seed", 42));
+        this.users = options.integer("users", 200);
+        this.notesPerUser = options.integer("notes-per-user", 25);
+        this.medianBytes = options.integer("note-bytes-median", 2048);
+        this.maxBytes = options.integer("note-bytes-max", 256 * 1024);
+        this.sharesPerNote = options.decimal("shares-per-note", 1.5);
+    }
+
+    void seed() throws SQLException {
+        connection.setAutoCommit(false);
+        deleteExisting();
+        List<Long> userIds = insertUsers();
+        List<long[]> notes = insertNotes(userIds);
+        int shares = insertShares(userIds, notes);
+        connection.commit();
+        System.out.printf("Seeded %d users, %d notes, %d shares%n", userIds.size(), notes.size(), shares);
+    }
+
+    private void deleteExisting() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            String loadTestUsers = "SELECT id FROM users WHERE email LIKE 'loadtest-%@example.com'";
+            statement.execute("DELETE FROM note_permissions WHERE user_id IN (" + loadTestUsers + ")"
+                    + " OR note_id IN (SELECT id FROM note WHERE user_id IN (" + loadTestUsers + "))");
+            // Revisions go with their notes (ON DELETE CASCADE)
+            statement.execute("DELETE FROM note WHERE user_id IN (" + loadTestUsers + ")");
+            statement.execute("DELETE FROM refresh_tokens WHERE user_id IN (" + loadTestUsers + ")");
+            statement.execute("DELETE FROM users WHERE email LIKE 'loadtest-%@example.com'");
+        }
+    }
+
+    private List<Long> insertUsers() throws SQLException {
+        String hash = new BCryptPasswordEncoder().encode(PASSWORD);
+        List<Long> ids = new ArrayList<>(users);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO users (email, name, password) SELECT format('" + EMAIL_PATTERN.replace("%d", "%s") + "', i),"
+                        + " 'Load Test ' || i, ? FROM generate_series(1, ?) i ORDER BY i RETURNING id")) {
+            insert.setString(1, hash);
+            insert.setInt(2, users);
+            try (ResultSet rows = insert.executeQuery()) {
+                while (rows.next()) {
+                    ids.add(rows.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Returns {note id, owner index} per note
+    private List<long[]> insertNotes(List<Long> userIds) throws SQLException {
+        List<long[]> notes = new ArrayList<>();
+        IdBlocks noteIds = new IdBlocks("note_seq");
+        LocalDateTime now = LocalDateTime.now();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO note (id, title, content, snippet, created_by, user_id, created_at, updated_at, version)"
+                        + " VALUES (?, ?, ?::jsonb, ?, ?, ?, ?, ?, 0)")) {
+            for (int owner = 0; owner < userIds.size(); owner++) {
+                // Skewed: a few heavy users, many light ones
+                int count = (int) Math.max(1, Math.min(notesPerUser * 20L, Math.round(Documents.logNormal(random, notesPerUser))));
+                for (int n = 0; n < count; n++) {
+                    long id = noteIds.next();
+                    String title = Documents.words(random, 2 + random.nextInt(4));
+                    String heading = Documents.words(random, 3 + random.nextInt(6));
+                    LocalDateTime createdAt = now.minusMinutes(random.nextInt(60 * 24 * 365));
+                    insert.setLong(1, id);
+                    insert.setString(2, title);
+                    insert.setString(3, Documents.editorJs(random, heading, Documents.size(random, medianBytes, maxBytes)));
+                    insert.setString(4, Documents.snippet(heading));
+                    insert.setString(5, "Load Test " + (owner + 1));
+                    insert.setLong(6, userIds.get(owner));
+                    insert.setTimestamp(7, Timestamp.valueOf(createdAt));
+                    insert.setTimestamp(8, Timestamp.valueOf(createdAt.plusMinutes(random.nextInt(60 * 24 * 30))));
+                    insert.addBatch();
+                    notes.add(new long[]{id, owner});
+                    if (notes.size() % BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+            }
+            insert.executeBatch();
+        }
+        return notes;
+    }
+
+    // Recipients follow a power law, so some users see far more shared notes than others
+    private int insertShares(List<Long> userIds, List<long[]> notes) throws SQLException {
+        IdBlocks permissionIds = new IdBlocks("note_permissions_seq");
+        int shares = 0;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO note_permissions (id, note_id, user_id, permission) VALUES (?, ?, ?, ?)")) {
+            for (long[] note : notes) {
+                int count = (int) Math.round(-sharesPerNote * Math.log(1 - random.nextDouble()));
+                Set<Integer> recipients = new HashSet<>();
+                for (int i = 0; i < count && userIds.size() > 1; i++) {
+                    int recipient = (int) (userIds.size() * Math.pow(random.nextDouble(), 3));
+                    if (recipient != note[1] && recipients.add(recipient)) {
+                        insert.setLong(1, permissionIds.next());
+                        insert.setLong(2, note[0]);
+                        insert.setLong(3, userIds.get(recipient));
+                        insert.setString(4, random.nextInt(5) == 0 ? "EDIT" : "READ");
+                        insert.addBatch();
+                        if (++shares % BATCH_SIZE == 0) {
+                            insert.executeBatch();
+                        }
+                    }
+                }
+            }
+            insert.executeBatch();
+        }
+        return shares;
+    }
+
+    // Hibernate's pooled optimizer treats each sequence value as the top of a block of SEQUENCE_BLOCK ids
+    private final class IdBlocks {
+        private final String sequence;
+        private long next;
+        private long last = -1;
+
+        private IdBlocks(String sequence) {
+            this.sequence = sequence;
+        }
+
+        private long next() throws SQLException {
+            if (next > last) {
+                try (Statement statement = connection.createStatement();
+                     ResultSet row = statement.executeQuery("SELECT nextval('" + sequence + "')")) {
+                    row.next();
+                    last = row.getLong(1);
+                    next = last - SEQUENCE_BLOCK + 1;
+                }
+            }
+            return next++;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.pradeep.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a fixed rate whether or not earlier ones have been answered (an open model), and measures
+ * each request's latency from the moment it was scheduled to go out rather than when it actually did.
+ * A client that waits for responses before sending more backs off exactly while the server stalls and never
+ * records the requests it did not send (coordinated omission); here a stall shows up as latency for every
+ * request scheduled during it. Service time, from the actual send, is recorded too so the two can be compared.
+ * Values are recorded in microseconds.
+ */
+final class OpenLoopRunner {
+
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    static final class Stats {
+        private final Recorder latency = new Recorder(MAX_MICROS, 3);
+        private final Recorder service = new Recorder(MAX_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+
+        private void record(long latencyMicros, long serviceMicros, boolean failed) {
+            latency.recordValue(Math.min(latencyMicros, MAX_MICROS));
+            service.recordValue(Math.min(serviceMicros, MAX_MICROS));
+            if (failed) {
+                errors.increment();
+            }
+        }
+    }
+
+    /**
+     * @param latency From scheduled send to response, including any time queued behind max-in-flight
+     * @param service From actual send to response
+     */
+    record Result(Histogram latency, Histogram service, long errors) {
+    }
+
+    private final double rate;
+    private final Duration warmup;
+    private final Duration duration;
+    private final int maxInFlight;
+    private final long seed;
+
+    OpenLoopRunner(Options options) {
+        this.rate = options.decimal("rate", 200);
+        this.warmup = options.duration("warmup", Duration.ofSeconds(15));
+        this.duration = options.duration("duration", Duration.ofSeconds(60));
+        this.maxInFlight = options.integer("max-in-flight", 256);
+        this.seed = options.longValue("seed", 42);
+    }
+
+    /**
+     * @param timeline Where to write per-second latency histograms of all requests, warmup included
+     * @return Results of the measured phase per operation, plus "all"
+     */
+    Map<String, Result> run(HttpClient client, Workload workload, Path timeline) throws IOException, InterruptedException {
+        Map<String, Stats> operations = new TreeMap<>();
+        workload.weights().keySet().forEach(operation -> operations.put(operation, new Stats()));
+        Stats all = new Stats();
+        Recorder timelineRecorder = new Recorder(MAX_MICROS, 3);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        SplittableRandom random = new SplittableRandom(seed);
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        try (PrintStream log = new PrintStream(Files.newOutputStream(timeline))) {
+            HistogramLogWriter writer = new HistogramLogWriter(log);
+            long baseTime = System.currentTimeMillis();
+            writer.outputComment("Latency from scheduled send in milliseconds; warmup ends at "
+                    + warmup.toSeconds() + "s");
+            writer.outputLogFormatVersion();
+            writer.outputBaseTime(baseTime);
+            writer.setBaseTime(baseTime);
+            writer.outputLegend();
+            Runnable logInterval = () -> {
+                Histogram interval = timelineRecorder.getIntervalHistogram();
+                writer.outputIntervalHistogram((interval.getStartTimeStamp() - baseTime) / 1000.0,
+                        (interval.getEndTimeStamp() - baseTime) / 1000.0, interval, 1000.0);
+            };
+            ticker.scheduleAtFixedRate(logInterval, 1, 1, TimeUnit.SECONDS);
+
+            timelineRecorder.reset();
+            for (long i = 0; ; i++) {
+                long scheduled = start + (long) (i * 1_000_000_000d / rate);
+                if (scheduled >= end) {
+                    break;
+                }
+                long wait;
+                while ((wait = scheduled - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.acquireUninterruptibly();
+                Workload.Request request = workload.next(random);
+                Stats stats = scheduled >= measureFrom ? operations.get(request.operation()) : null;
+                long sent = System.nanoTime();
+                client.sendAsync(request.httpRequest(), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, failure) -> {
+                            long done = System.nanoTime();
+                            inFlight.release();
+                            long latency = (done - scheduled) / 1000;
+                            timelineRecorder.recordValue(Math.min(latency, MAX_MICROS));
+                            if (stats != null) {
+                                boolean failed = failure != null || response.statusCode() >= 400;
+                                stats.record(latency, (done - sent) / 1000, failed);
+                                all.record(latency, (done - sent) / 1000, failed);
+                            }
+                        });
+            }
+            if (!inFlight.tryAcquire(maxInFlight, 60, TimeUnit.SECONDS)) {
+                System.out.println("Some requests were still in flight after 60s and are not counted");
+            }
+            ticker.shutdown();
+            ticker.awaitTermination(5, TimeUnit.SECONDS);
+            logInterval.run();
+        } finally {
+            ticker.shutdownNow();
+        }
+
+        Map<String, Result> results = new TreeMap<>();
+        operations.forEach((operation, stats) -> results.put(operation, result(stats)));
+        results.put("all", result(all));
+        return results;
+    }
+
+    double rate() {
+        return rate;
+    }
+
+    Duration warmup() {
+        return warmup;
+    }
+
+    Duration duration() {
+        return duration;
+    }
+
+    int maxInFlight() {
+        return maxInFlight;
+    }
+
+    private static Result result(Stats stats) {
+        return new Result(stats.latency.getIntervalHistogram(), stats.service.getIntervalHistogram(),
+                stats.errors.sum());
+    }
+}
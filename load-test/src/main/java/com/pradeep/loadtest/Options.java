@@ -0,0 +1,89 @@
+package com.pradeep.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Command line: positional arguments and --name=value options
+final class Options {
+
+    private final List<String> arguments = new ArrayList<>();
+    private final Map<String, String> values = new HashMap<>();
+
+    Options(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int equals = arg.indexOf('=');
+                if (equals < 0) {
+                    values.put(arg.substring(2), "true");
+                } else {
+                    values.put(arg.substring(2, equals), arg.substring(equals + 1));
+                }
+            } else {
+                arguments.add(arg);
+            }
+        }
+    }
+
+    String argument(int index) {
+        if (index >= arguments.size()) {
+            throw new IllegalArgumentException("Missing argument " + (index + 1));
+        }
+        return arguments.get(index);
+    }
+
+    String string(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    int integer(String name, int defaultValue) {
+        return values.containsKey(name) ? Integer.parseInt(values.get(name)) : defaultValue;
+    }
+
+    long longValue(String name, long defaultValue) {
+        return values.containsKey(name) ? Long.parseLong(values.get(name)) : defaultValue;
+    }
+
+    double decimal(String name, double defaultValue) {
+        return values.containsKey(name) ? Double.parseDouble(values.get(name)) : defaultValue;
+    }
+
+    // 30s, 5m, 1h or plain seconds
+    Duration duration(String name, Duration defaultValue) {
+        String value = values.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        char unit = value.charAt(value.length() - 1);
+        if (Character.isDigit(unit)) {
+            return Duration.ofSeconds(Long.parseLong(value));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (unit) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Bad duration for --" + name + ": " + value);
+        };
+    }
+
+    // Weights like list=30,get=35,autosave=25
+    Map<String, Integer> weights(String name, Map<String, Integer> defaults) {
+        String value = values.get(name);
+        if (value == null) {
+            return defaults;
+        }
+        Map<String, Integer> weights = new HashMap<>();
+        for (String pair : value.split(",")) {
+            String[] parts = pair.split("=");
+            if (!defaults.containsKey(parts[0].trim())) {
+                throw new IllegalArgumentException("Unknown operation in --" + name + ": " + parts[0]
+                        + " (known: " + defaults.keySet() + ")");
+            }
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,195 @@
+package com.pradeep.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Note editing traffic against NoteController and ImageController, as the seeded loadtest users:
+ * list (own or shared summaries), get (a note the user can see), autosave (PUT of an own note),
+ * share (an own note with another load-test user) and upload (a small PNG). Run the backend with
+ * papertrail.images.storage=local so uploads go to local files instead of Cloudinary.
+ */
+final class PaperTrailWorkload implements Workload {
+
+    static final Map<String, Integer> DEFAULT_WEIGHTS = Map.of(
+            "list", 30, "get", 35, "autosave", 25, "share", 5, "upload", 5);
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final String BOUNDARY = "loadtest-boundary-7c1f";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI baseUrl;
+    private final int sessionCount;
+    private final int users;
+    private final int medianBytes;
+    private final int maxBytes;
+    private final Mix mix;
+    private final Map<String, Integer> weights;
+    private final List<Session> sessions = new ArrayList<>();
+    private final List<String> autosaveBodies = new ArrayList<>();
+    private final List<byte[]> images = new ArrayList<>();
+
+    private record Session(String cookie, long[] ownNotes, long[] visibleNotes) {
+    }
+
+    PaperTrailWorkload(Options options) {
+        this.baseUrl = URI.create(options.string("base-url", "http://localhost:8080"));
+        this.users = options.integer("users", 200);
+        this.sessionCount = Math.min(options.integer("sessions", 50), users);
+        this.medianBytes = options.integer("note-bytes-median", 2048);
+        this.maxBytes = options.integer("note-bytes-max", 256 * 1024);
+        this.weights = options.weights("mix", DEFAULT_WEIGHTS);
+        this.mix = new Mix(weights);
+    }
+
+    @Override
+    public Map<String, Integer> weights() {
+        return weights;
+    }
+
+    @Override
+    public void setUp(HttpClient client) throws Exception {
+        for (int user = 1; user <= sessionCount; user++) {
+            String cookie = login(client, NoteSeeder.EMAIL_PATTERN.formatted(user));
+            long[] own = noteIds(client, cookie, "/notes/my?size=100");
+            long[] shared = noteIds(client, cookie, "/notes/shared?size=100");
+            long[] visible = new long[own.length + shared.length];
+            System.arraycopy(own, 0, visible, 0, own.length);
+            System.arraycopy(shared, 0, visible, own.length, shared.length);
+            sessions.add(new Session(cookie, own, visible));
+        }
+
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 64; i++) {
+            Map<String, Object> note = new LinkedHashMap<>();
+            note.put("title", Documents.words(random, 2 + random.nextInt(4)));
+            note.put("content", objectMapper.readTree(Documents.editorJs(random,
+                    Documents.words(random, 5), Documents.size(random, medianBytes, maxBytes))));
+            autosaveBodies.add(objectMapper.writeValueAsString(note));
+        }
+        for (int i = 0; i < 16; i++) {
+            images.add(png(random));
+        }
+        System.out.printf("Logged in %d sessions%n", sessions.size());
+    }
+
+    @Override
+    public Request next(SplittableRandom random) {
+        Session session = sessions.get(random.nextInt(sessions.size()));
+        String operation = mix.pick(random);
+        HttpRequest.Builder request = switch (operation) {
+            case "list" -> get(random.nextInt(3) == 0 ? "/notes/shared?size=20" : "/notes/my?size=20");
+            case "get" -> get("/notes/" + pick(random, session.visibleNotes));
+            case "autosave" -> HttpRequest.newBuilder(baseUrl.resolve("/notes/" + pick(random, session.ownNotes)))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(autosaveBodies.get(random.nextInt(autosaveBodies.size()))));
+            case "share" -> {
+                String email = NoteSeeder.EMAIL_PATTERN.formatted(1 + random.nextInt(users));
+                yield HttpRequest.newBuilder(baseUrl.resolve("/notes/" + pick(random, session.ownNotes)
+                                + "/share?permission=READ&email=" + URLEncoder.encode(email, StandardCharsets.UTF_8)))
+                        .POST(HttpRequest.BodyPublishers.noBody());
+            }
+            case "upload" -> HttpRequest.newBuilder(baseUrl.resolve("/api/images/upload"))
+                    .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(
+                            multipart(images.get(random.nextInt(images.size())), random.nextLong())));
+            default -> throw new IllegalStateException("Unknown operation " + operation);
+        };
+        return new Request(operation, request.header("Cookie", session.cookie).timeout(TIMEOUT).build());
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(baseUrl.resolve(path)).GET();
+    }
+
+    private static long pick(SplittableRandom random, long[] ids) {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    // The session cookie is Secure, which java.net.CookieManager withholds over plain http, so it is kept by hand
+    private String login(HttpClient client, String email) throws IOException, InterruptedException {
+        String body = objectMapper.writeValueAsString(Map.of("email", email, "password", NoteSeeder.PASSWORD));
+        while (true) {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(baseUrl.resolve("/auth/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .timeout(TIMEOUT)
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 429) {
+                long wait = response.headers().firstValueAsLong("Retry-After").orElse(5);
+                System.out.printf("Login throttled, waiting %ds (start the backend with a higher"
+                        + " papertrail.auth.throttle.ip-attempts)%n", wait);
+                Thread.sleep(wait * 1000);
+                continue;
+            }
+            String cookie = response.headers().allValues("Set-Cookie").stream()
+                    .filter(c -> c.startsWith("JSESSIONID="))
+                    .reduce((first, second) -> second)
+                    .map(c -> c.substring(0, c.indexOf(';') > 0 ? c.indexOf(';') : c.length()))
+                    .orElse(null);
+            if (response.statusCode() != 200 || cookie == null) {
+                throw new IllegalStateException("Login of " + email + " failed with " + response.statusCode()
+                        + ": " + response.body() + " (run seed-notes first)");
+            }
+            return cookie;
+        }
+    }
+
+    private long[] noteIds(HttpClient client, String cookie, String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(get(path).header("Cookie", cookie).timeout(TIMEOUT).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " failed with " + response.statusCode());
+        }
+        JsonNode items = objectMapper.readTree(response.body()).path("items");
+        long[] ids = new long[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = items.get(i).path("id").asLong();
+        }
+        return ids;
+    }
+
+    // Noise, so the images do not compress to nothing
+    private static byte[] png(SplittableRandom random) throws IOException {
+        BufferedImage image = new BufferedImage(160, 120, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return png.toByteArray();
+    }
+
+    // Bytes after the PNG's end chunk are ignored by decoders but make every upload distinct,
+    // so content-addressed storage stores each one instead of deduplicating
+    private static byte[] multipart(byte[] png, long salt) {
+        byte[] head = ("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"loadtest.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = (Long.toHexString(salt) + "\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] body = new byte[head.length + png.length + tail.length];
+        System.arraycopy(head, 0, body, 0, head.length);
+        System.arraycopy(png, 0, body, head.length, png.length);
+        System.arraycopy(tail, 0, body, head.length + png.length, tail.length);
+        return body;
+    }
+}
@@ -0,0 +1,112 @@
+package com.pradeep.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Run results: summary.json (what {@link #compare} reads), one HdrHistogram percentile distribution per
+ * operation (&lt;operation&gt;.hgrm, plottable with HdrHistogram's plotter) and a table on stdout.
+ * Latencies are reported in milliseconds.
+ */
+final class Report {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private Report() {
+    }
+
+    static void write(Path directory, Map<String, Object> run, Map<String, OpenLoopRunner.Result> results,
+                      double measuredSeconds) throws IOException {
+        Map<String, Object> operations = new LinkedHashMap<>();
+        System.out.printf("%-10s %9s %8s %9s %9s %9s %9s %9s %9s %12s%n", "operation", "requests", "errors",
+                "req/s", "p50", "p90", "p99", "p99.9", "max", "service p99");
+        for (Map.Entry<String, OpenLoopRunner.Result> entry : results.entrySet()) {
+            OpenLoopRunner.Result result = entry.getValue();
+            Histogram latency = result.latency();
+            long count = latency.getTotalCount();
+            Map<String, Object> operation = new LinkedHashMap<>();
+            operation.put("requests", count);
+            operation.put("errors", result.errors());
+            operation.put("throughput", round(count / measuredSeconds));
+            operation.put("latencyMs", percentiles(latency));
+            operation.put("serviceTimeMs", percentiles(result.service()));
+            operations.put(entry.getKey(), operation);
+
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(entry.getKey() + ".hgrm")))) {
+                latency.outputPercentileDistribution(out, 1000.0);
+            }
+            System.out.printf("%-10s %9d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %12.2f%n", entry.getKey(), count,
+                    result.errors(), count / measuredSeconds, ms(latency, 50), ms(latency, 90), ms(latency, 99),
+                    ms(latency, 99.9), latency.getMaxValue() / 1000.0, ms(result.service(), 99));
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>(run);
+        summary.put("operations", operations);
+        objectMapper.writeValue(directory.resolve("summary.json").toFile(), summary);
+        System.out.println("Results in " + directory);
+    }
+
+    // Throughput and latency of each operation in two runs, with the relative change
+    static void compare(Path baseline, Path candidate) throws IOException {
+        JsonNode before = objectMapper.readTree(summaryFile(baseline).toFile());
+        JsonNode after = objectMapper.readTree(summaryFile(candidate).toFile());
+        System.out.printf("baseline:  %s (%s)%ncandidate: %s (%s)%n", baseline, before.path("label").asText(),
+                candidate, after.path("label").asText());
+        if (before.path("rate").asDouble() != after.path("rate").asDouble()
+                || !before.path("mix").equals(after.path("mix"))) {
+            System.out.println("Warning: the runs used different rates or mixes");
+        }
+        System.out.printf("%-10s %-12s %12s %12s %9s%n", "operation", "metric", "baseline", "candidate", "change");
+        for (Iterator<String> names = after.path("operations").fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            JsonNode a = before.path("operations").path(name);
+            JsonNode b = after.path("operations").path(name);
+            row(name, "req/s", a.path("throughput"), b.path("throughput"));
+            row(name, "errors", a.path("errors"), b.path("errors"));
+            for (String percentile : new String[]{"p50", "p99", "p99.9", "max"}) {
+                row(name, percentile, a.path("latencyMs").path(percentile), b.path("latencyMs").path(percentile));
+            }
+        }
+    }
+
+    private static Path summaryFile(Path path) {
+        return Files.isDirectory(path) ? path.resolve("summary.json") : path;
+    }
+
+    private static void row(String operation, String metric, JsonNode before, JsonNode after) {
+        String change = before.isMissingNode() || before.asDouble() == 0
+                ? "" : String.format("%+.1f%%", 100 * (after.asDouble() - before.asDouble()) / before.asDouble());
+        System.out.printf("%-10s %-12s %12s %12s %9s%n", operation, metric,
+                before.isMissingNode() ? "-" : before.asText(), after.asText(), change);
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            values.put("p" + (percentile == Math.rint(percentile) ? String.valueOf((int) percentile)
+                    : String.valueOf(percentile)), round(ms(histogram, percentile)));
+        }
+        values.put("max", round(histogram.getMaxValue() / 1000.0));
+        values.put("mean", round(histogram.getMean() / 1000.0));
+        return values;
+    }
+
+    private static double ms(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,49 @@
+package com.pradeep.loadtest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+
+/**
+ * Seeds the ToDoApp task table, replacing its contents; derived from the seed like NoteSeeder.
+ * Task.content is an @Lob String, which Hibernate keeps on PostgreSQL as a large object whose OID is
+ * stored in the text column, so the seeder writes it the same way.
+ */
+final class TaskSeeder {
+
+    private final Connection connection;
+    private final SplittableRandom random;
+    private final int tasks;
+
+    TaskSeeder(Connection connection, Options options) {
+        this.connection = connection;
+        this.random = new SplittableRandom(options.longValue("seed", 42));
+        this.tasks = options.integer("tasks", 1000);
+    }
+
+    void seed() throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT lo_unlink(content::oid) FROM task WHERE content ~ '^[0-9]+$'"
+                    + " AND content::oid IN (SELECT oid FROM pg_largeobject_metadata)");
+            statement.execute("TRUNCATE task RESTART IDENTITY");
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO task (title, content, status) VALUES (?, lo_from_bytea(0, convert_to(?, 'UTF8'))::text, ?)")) {
+            for (int i = 1; i <= tasks; i++) {
+                insert.setString(1, Documents.words(random, 2 + random.nextInt(5)));
+                insert.setString(2, Documents.words(random, random.nextInt(80)));
+                insert.setBoolean(3, random.nextInt(3) == 0);
+                insert.addBatch();
+                if (i % 500 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        System.out.printf("Seeded %d tasks%n", tasks);
+    }
+}
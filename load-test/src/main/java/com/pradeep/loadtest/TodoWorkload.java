@@ -0,0 +1,91 @@
+package com.pradeep.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// TaskController traffic: list (all tasks), get, create and update; the ToDoApp has no authentication
+final class TodoWorkload implements Workload {
+
+    static final Map<String, Integer> DEFAULT_WEIGHTS = Map.of("list", 10, "get", 50, "create", 20, "update", 20);
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI baseUrl;
+    private final Map<String, Integer> weights;
+    private final Mix mix;
+    private final List<String> bodies = new ArrayList<>();
+    private long[] taskIds;
+
+    TodoWorkload(Options options) {
+        this.baseUrl = URI.create(options.string("base-url", "http://localhost:8081"));
+        this.weights = options.weights("mix", DEFAULT_WEIGHTS);
+        this.mix = new Mix(weights);
+    }
+
+    @Override
+    public Map<String, Integer> weights() {
+        return weights;
+    }
+
+    @Override
+    public void setUp(HttpClient client) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(baseUrl.resolve("/tasks"))
+                .timeout(TIMEOUT).build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET /tasks failed with " + response.statusCode());
+        }
+        JsonNode tasks = objectMapper.readTree(response.body());
+        if (tasks.isEmpty()) {
+            throw new IllegalStateException("No tasks (run seed-tasks first)");
+        }
+        taskIds = new long[tasks.size()];
+        for (int i = 0; i < taskIds.length; i++) {
+            taskIds[i] = tasks.get(i).path("id").asLong();
+        }
+
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 64; i++) {
+            bodies.add(objectMapper.writeValueAsString(Map.of(
+                    "title", Documents.words(random, 2 + random.nextInt(5)),
+                    "content", Documents.words(random, random.nextInt(80)),
+                    "status", random.nextBoolean())));
+        }
+        System.out.printf("Found %d tasks%n", taskIds.length);
+    }
+
+    @Override
+    public Request next(SplittableRandom random) {
+        String operation = mix.pick(random);
+        HttpRequest.Builder request = switch (operation) {
+            case "list" -> HttpRequest.newBuilder(baseUrl.resolve("/tasks")).GET();
+            case "get" -> HttpRequest.newBuilder(baseUrl.resolve("/tasks/" + taskId(random))).GET();
+            case "create" -> HttpRequest.newBuilder(baseUrl.resolve("/tasks"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body(random)));
+            case "update" -> HttpRequest.newBuilder(baseUrl.resolve("/tasks/" + taskId(random)))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(body(random)));
+            default -> throw new IllegalStateException("Unknown operation " + operation);
+        };
+        return new Request(operation, request.timeout(TIMEOUT).build());
+    }
+
+    private long taskId(SplittableRandom random) {
+        return taskIds[random.nextInt(taskIds.length)];
+    }
+
+    private String body(SplittableRandom random) {
+        return bodies.get(random.nextInt(bodies.size()));
+    }
+}
@@ -0,0 +1,57 @@
+package com.pradeep.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A mix of operations against one backend. {@link #next} is only called from the runner's scheduling
+ * thread, so implementations need no locking; request bodies should be prepared in {@link #setUp}.
+ */
+interface Workload {
+
+    record Request(String operation, HttpRequest httpRequest) {
+    }
+
+    // Log in, discover ids, pre-build bodies
+    void setUp(HttpClient client) throws Exception;
+
+    Request next(SplittableRandom random);
+
+    Map<String, Integer> weights();
+
+    /**
+     * Picks operations in proportion to their weights
+     */
+    final class Mix {
+        private final String[] operations;
+        private final int[] cumulative;
+
+        Mix(Map<String, Integer> weights) {
+            operations = weights.entrySet().stream()
+                    .filter(e -> e.getValue() > 0)
+                    .map(Map.Entry::getKey)
+                    .sorted()
+                    .toArray(String[]::new);
+            cumulative = new int[operations.length];
+            int total = 0;
+            for (int i = 0; i < operations.length; i++) {
+                total += weights.get(operations[i]);
+                cumulative[i] = total;
+            }
+            if (total == 0) {
+                throw new IllegalArgumentException("All operation weights are 0");
+            }
+        }
+
+        String pick(SplittableRandom random) {
+            int ticket = random.nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; ; i++) {
+                if (ticket < cumulative[i]) {
+                    return operations[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.pradeep.papertrail.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    // Fans change-feed events out to open SSE connections off the request thread.
+    // When the queue is full the publishing request does the work itself rather than dropping events.
+    @Bean
+    public ThreadPoolTaskExecutor noteEventExecutor(@Value("${papertrail.events.fanout-threads:2}") int threads,
+                                                    @Value("${papertrail.events.fanout-queue:10000}") int queue) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("note-events-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(5);
+        return executor;
+    }
+
+    // Streams spooled images to Cloudinary. Bounded on both threads and queue: when full, uploads are
+    // rejected (503) instead of piling up spooled files and open connections.
+    @Bean
+    public ThreadPoolTaskExecutor imageUploadExecutor(@Value("${papertrail.uploads.threads:4}") int threads,
+                                                      @Value("${papertrail.uploads.queue:20}") int queue) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("image-upload-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // Runs storage outbox batches (remote deletes). The drain loop waits for each round, so the queue stays short.
+    @Bean
+    public ThreadPoolTaskExecutor storageOutboxExecutor(@Value("${papertrail.storage.outbox.threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("storage-outbox-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    // Checks and hashes passwords (bcrypt), so login and registration bursts cannot take request threads.
+    // Bounded: when the queue is full the request is refused (503) instead of waiting behind the storm.
+    @Bean
+    public ThreadPoolTaskExecutor passwordHashExecutor(@Value("${papertrail.auth.hash-threads:4}") int threads,
+                                                       @Value("${papertrail.auth.hash-queue:100}") int queue) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    // Decodes and resizes images for /api/images/{id}?w=. CPU and memory heavy, so kept small;
+    // a full queue answers 503 rather than letting thumbnail bursts starve request handling.
+    @Bean
+    public ThreadPoolTaskExecutor imageVariantExecutor(@Value("${papertrail.images.variant-threads:2}") int threads,
+                                                       @Value("${papertrail.images.variant-queue:100}") int queue) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("image-variant-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
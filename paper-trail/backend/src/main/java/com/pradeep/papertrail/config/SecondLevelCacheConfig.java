@@ -0,0 +1,110 @@
+package com.pradeep.papertrail.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.pradeep.papertrail.model.NotePermission;
+import com.pradeep.papertrail.model.User;
+import com.pradeep.papertrail.repository.NotePermissionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Regions of the Hibernate second-level cache: User and NotePermission rows and the cached queries on them.
+ * Node-local Caffeine caches, each bounded by size and by a TTL that limits how long another node's write
+ * can go unseen. Writes made through Hibernate keep the regions current; NoteSharingService evicts what its
+ * SQL changes. Regions not declared here fail startup instead of growing unbounded.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    private static final List<String> REGIONS = List.of(User.CACHE_REGION, NotePermission.CACHE_REGION,
+            NotePermissionRepository.AUDIENCE_CACHE_REGION, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+
+    // Own URI per application context, so contexts in one JVM (tests) never share regions
+    @Bean
+    public CacheManager secondLevelCacheManager(
+            @Value("${papertrail.l2-cache.users.max-size:10000}") long userMaxSize,
+            @Value("${papertrail.l2-cache.users.ttl:10m}") Duration userTtl,
+            @Value("${papertrail.l2-cache.note-permissions.max-size:100000}") long permissionMaxSize,
+            @Value("${papertrail.l2-cache.note-permissions.ttl:10m}") Duration permissionTtl,
+            @Value("${papertrail.l2-cache.queries.max-size:10000}") long queryMaxSize,
+            @Value("${papertrail.l2-cache.queries.ttl:60s}") Duration queryTtl) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("papertrail-l2-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(User.CACHE_REGION, region(userMaxSize, userTtl));
+        cacheManager.createCache(NotePermission.CACHE_REGION, region(permissionMaxSize, permissionTtl));
+        cacheManager.createCache(NotePermissionRepository.AUDIENCE_CACHE_REGION, region(queryMaxSize, queryTtl));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                region(queryMaxSize, queryTtl));
+        // Last-write time per table, checked by every cached query: must never be evicted
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                byReference(new CaffeineConfiguration<>()));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    // papertrail.l2-cache.hit.ratio{region}; raw counts are in hibernate.second.level.cache.requests.
+    // Rows returned by a cached query count toward the query's region, not the entity's.
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return registry -> {
+            for (String region : REGIONS) {
+                Gauge.builder("papertrail.l2-cache.hit.ratio", statistics,
+                                s -> hitRatio(s.getCacheRegionStatistics(region)))
+                        .tag("region", region)
+                        .description("Share of second-level cache lookups answered without a query")
+                        .register(registry);
+            }
+        };
+    }
+
+    private static double hitRatio(CacheRegionStatistics region) {
+        if (region == null) {
+            return Double.NaN;
+        }
+        long lookups = region.getHitCount() + region.getMissCount();
+        return lookups == 0 ? Double.NaN : (double) region.getHitCount() / lookups;
+    }
+
+    // W-TinyLFU eviction past maxSize, expiry ttl after the entry was written
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        return byReference(configuration);
+    }
+
+    // Hibernate stores immutable disassembled entries; JCache's default would copy every value on get and put
+    private static CaffeineConfiguration<Object, Object> byReference(CaffeineConfiguration<Object, Object> configuration) {
+        configuration.setStoreByValue(false);
+        return configuration;
+    }
+}
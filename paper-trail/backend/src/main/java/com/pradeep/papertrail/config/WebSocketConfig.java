@@ -0,0 +1,26 @@
+package com.pradeep.papertrail.config;
+
+import com.pradeep.papertrail.controller.NoteCollaborationHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final NoteCollaborationHandler collaborationHandler;
+
+    public WebSocketConfig(NoteCollaborationHandler collaborationHandler) {
+        this.collaborationHandler = collaborationHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(collaborationHandler, "/ws/notes/*")
+                .addInterceptors(collaborationHandler)
+                // Same origins as the CORS configuration in SecurityConfig
+                .setAllowedOrigins("http://localhost:5173", "http://localhost:3000");
+    }
+}
@@ -2,56 +2,63 @@ package com.pradeep.papertrail.controller;
 
 import com.pradeep.papertrail.model.User;
 import com.pradeep.papertrail.repository.UserRepository;
+import com.pradeep.papertrail.security.PasswordHashingService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
+    private final PasswordHashingService passwordHashingService;
 
-    public AuthController(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager) {
+    public AuthController(UserRepository userRepository, PasswordHashingService passwordHashingService) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
-        this.authenticationManager = authenticationManager;
+        this.passwordHashingService = passwordHashingService;
     }
 
-    // Registration endpoint
+    // Registration endpoint; hashing runs on the password pool, not the request thread
     @PostMapping("/register")
-    public String register(@RequestBody User user) {
-        user.setPassword(passwordEncoder.encode(user.getPassword())); // hash password
-        userRepository.save(user);
-        return "User registered successfully!";
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody User user, HttpServletRequest request) {
+        try {
+            return passwordHashingService.encode(user.getPassword(), request.getRemoteAddr())
+                    .<ResponseEntity<?>>thenApply(hash -> {
+                        user.setPassword(hash); // hash password
+                        userRepository.save(user);
+                        return ResponseEntity.ok("User registered successfully!");
+                    })
+                    .exceptionally(AuthResponses::failed);
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(AuthResponses.failed(e));
+        }
     }
 
-    // Login endpoint
+    // Login endpoint; the password check runs on the password pool, not the request thread
     @PostMapping("/login")
-    public String login(@RequestBody User user, HttpSession session) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(user.getEmail(), user.getPassword())
-        );
-
-        if (authentication.isAuthenticated()) {
-            // manually set authentication in Spring Security context
-            org.springframework.security.core.context.SecurityContextHolder.getContext()
-                    .setAuthentication(authentication);
-
-            // Spring will create a JSESSIONID automatically
-            session.setAttribute("SPRING_SECURITY_CONTEXT",
-                    org.springframework.security.core.context.SecurityContextHolder.getContext());
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody User user, HttpSession session, HttpServletRequest request) {
+        try {
+            return passwordHashingService.authenticate(user.getEmail(), user.getPassword(), request.getRemoteAddr())
+                    .<ResponseEntity<?>>thenApply(authentication -> {
+                        // store the authentication in the session; Spring reads it back on later requests
+                        SecurityContext context = SecurityContextHolder.createEmptyContext();
+                        context.setAuthentication(authentication);
+                        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, context);
 
-            return "Login successful! Session ID: " + session.getId();
-        } else {
-            return "Invalid credentials!";
+                        return ResponseEntity.ok("Login successful! Session ID: " + session.getId());
+                    })
+                    .exceptionally(AuthResponses::failed);
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(AuthResponses.failed(e));
         }
     }
 
@@ -0,0 +1,40 @@
+package com.pradeep.papertrail.controller;
+
+import com.pradeep.papertrail.security.TooManyAttemptsException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+// Answers for refused or failed password checks (PasswordHashingService), shared by the session and token logins
+final class AuthResponses {
+
+    private AuthResponses() {
+    }
+
+    /**
+     * @param e What the check failed with, possibly wrapped by the CompletableFuture
+     * @throws CompletionException for anything that is not a login outcome, left to the default error handling
+     */
+    static ResponseEntity<?> failed(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof TooManyAttemptsException tooMany) {
+            long seconds = Math.max(1, (tooMany.getRetryAfter().toMillis() + 999) / 1000);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds))
+                    .body(tooMany.getMessage());
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Too many logins in progress, try again later");
+        }
+        if (cause instanceof AuthenticationException) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials!");
+        }
+        throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+    }
+}
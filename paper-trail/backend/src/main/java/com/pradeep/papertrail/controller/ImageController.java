@@ -1,83 +1,168 @@
 package com.pradeep.papertrail.controller;
 
-import com.pradeep.papertrail.dto.ImageUploadResponse;
-import com.pradeep.papertrail.model.User;
-import com.pradeep.papertrail.repository.UserRepository;
-import com.pradeep.papertrail.service.CloudinaryService;
+import com.pradeep.papertrail.dto.ImageUploadJobDTO;
+import com.pradeep.papertrail.model.Image;
+import com.pradeep.papertrail.security.UserDetailsImpl;
+import com.pradeep.papertrail.service.ImageService;
+import com.pradeep.papertrail.service.ImageUploadService;
+import com.pradeep.papertrail.service.ImageVariantService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/images")
 public class ImageController {
 
-    private final CloudinaryService cloudinaryService;
-    private final UserRepository userRepository;
+    // Image ids never point at different content, so clients may keep them indefinitely
+    private static final String IMMUTABLE = "private, max-age=31536000, immutable";
 
-    public ImageController(CloudinaryService cloudinaryService, UserRepository userRepository) {
-        this.cloudinaryService = cloudinaryService;
-        this.userRepository = userRepository;
+    private final ImageService imageService;
+    private final ImageUploadService imageUploadService;
+    private final ImageVariantService imageVariantService;
+
+    public ImageController(ImageService imageService,
+                           ImageUploadService imageUploadService,
+                           ImageVariantService imageVariantService) {
+        this.imageService = imageService;
+        this.imageUploadService = imageUploadService;
+        this.imageVariantService = imageVariantService;
     }
 
+    // Returns the uploaded image once Cloudinary has it; the request thread is released meanwhile.
+    // With async=true it answers 202 right away with a job to poll at /api/images/jobs/{jobId}.
     @PostMapping("/upload")
-    public ResponseEntity<?> uploadImage(
+    public CompletableFuture<ResponseEntity<?>> uploadImage(
             @RequestParam("file") MultipartFile file,
-            Authentication auth) {
+            @RequestParam(defaultValue = "false") boolean async,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
         try {
             if (file.isEmpty()) {
-                return ResponseEntity.badRequest().body("File is empty");
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("File is empty"));
             }
 
-            User user = userRepository.findByEmail(auth.getName())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
+            if (async) {
+                ImageUploadJobDTO job = imageUploadService.submit(file, currentUser.getId());
+                return CompletableFuture.completedFuture(ResponseEntity.accepted()
+                        .location(URI.create("/api/images/jobs/" + job.getJobId()))
+                        .body(job));
+            }
 
-            Map<String, Object> uploadResult = cloudinaryService.uploadImage(file, user.getId());
+            return imageUploadService.upload(file, currentUser.getId())
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> uploadFailed(e.getCause() != null ? e.getCause() : e));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(uploadFailed(e));
+        }
+    }
 
-            ImageUploadResponse response = new ImageUploadResponse(
-                    (String) uploadResult.get("secure_url"),
-                    (String) uploadResult.get("public_id"),
-                    (String) uploadResult.get("format"),
-                    user.getId(),
-                    (String) uploadResult.get("folder")
-            );
+    // Serve an image: locally stored files directly (with Range support), others by redirect to their backend URL
+    @GetMapping(value = "/{id}", params = {"!w", "!format"})
+    public ResponseEntity<?> getImage(@PathVariable UUID id,
+                                      HttpServletRequest request,
+                                      HttpServletResponse response) throws IOException {
+        Optional<Image> image = imageService.find(id);
+        if (image.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Image not found");
+        }
 
-            return ResponseEntity.ok(response);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Failed to upload image: " + e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body("Error: " + e.getMessage());
+        Optional<Path> file = imageService.getFile(image.get());
+        if (file.isPresent()) {
+            String contentType = image.get().getContentType() != null
+                    ? image.get().getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+            FileResponses.send(file.get(), contentType, "\"" + image.get().getSha256() + "\"", IMMUTABLE,
+                    request, response);
+            return null;
+        }
+        if (image.get().getUrl() != null) {
+            return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(image.get().getUrl())).build();
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Image not found");
+    }
+
+    // A resized or re-encoded copy, e.g. ?w=320&format=jpeg for list thumbnails. Local images are resized here
+    // and cached on disk; remote ones are redirected to the backend's own transformation URL.
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<?>> getImageVariant(@PathVariable UUID id,
+                                                                @RequestParam(required = false) Integer w,
+                                                                @RequestParam(required = false) String format) {
+        if ((w != null && w <= 0) || (format != null && !format.matches("[A-Za-z0-9]{1,10}"))) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Invalid width or format"));
+        }
+        Optional<Image> image = imageService.find(id);
+        if (image.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.NOT_FOUND).body("Image not found"));
+        }
+
+        Optional<Path> file = imageService.getFile(image.get());
+        if (file.isEmpty()) {
+            String url = imageService.getVariantUrl(image.get(), imageVariantService.roundWidth(w), format);
+            return CompletableFuture.completedFuture(url != null
+                    ? ResponseEntity.status(HttpStatus.FOUND).location(URI.create(url)).build()
+                    : ResponseEntity.status(HttpStatus.NOT_FOUND).body("Image not found"));
+        }
+
+        try {
+            return imageVariantService.variant(image.get(), file.get(), w, format)
+                    .<ResponseEntity<?>>thenApply(variant -> variant
+                            .<ResponseEntity<?>>map(v -> ResponseEntity.ok()
+                                    .eTag(v.etag())
+                                    .header(HttpHeaders.CACHE_CONTROL, IMMUTABLE)
+                                    .contentType(MediaType.parseMediaType(v.contentType()))
+                                    .body(new FileSystemResource(v.file())))
+                            // Not decodable (e.g. svg): the original is the best we can do
+                            .orElseGet(() -> ResponseEntity.status(HttpStatus.FOUND)
+                                    .location(URI.create("/api/images/" + id)).build()))
+                    .exceptionally(e -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body("Failed to resize image: " + (e.getCause() != null ? e.getCause() : e).getMessage()));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Too many images being resized, try again later"));
         }
     }
 
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<?> getUploadJob(@PathVariable String jobId,
+                                          @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        return imageUploadService.getJob(jobId, currentUser.getId())
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload job not found"));
+    }
+
     @DeleteMapping("/delete")
     public ResponseEntity<?> deleteImage(
             @RequestParam("publicId") String publicId,
-            Authentication auth) {
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
         try {
-            User user = userRepository.findByEmail(auth.getName())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
             // Verify that the public ID belongs to the user's folder
-            if (!publicId.startsWith("papertrail/user_" + user.getId())) {
+            if (!publicId.startsWith("papertrail/user_" + currentUser.getId() + "/")) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body("You don't have permission to delete this image");
             }
 
-            Map<String, Object> result = cloudinaryService.deleteImage(publicId);
-            return ResponseEntity.ok(result);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Failed to delete image: " + e.getMessage());
+            // The stored file is removed in the background (storage outbox), with retries
+            if (!imageService.delete(publicId, currentUser.getId())) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Image not found");
+            }
+            return ResponseEntity.accepted().body(Map.of("result", "queued"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Error: " + e.getMessage());
@@ -87,11 +172,30 @@ public class ImageController {
     @GetMapping("/url")
     public ResponseEntity<?> getImageUrl(@RequestParam("publicId") String publicId) {
         try {
-            String url = cloudinaryService.getImageUrl(publicId);
+            String url = imageService.getImageUrl(publicId);
             return ResponseEntity.ok(Map.of("url", url));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Error: " + e.getMessage());
         }
     }
+
+    private ResponseEntity<?> uploadFailed(Throwable e) {
+        if (e instanceof UncheckedIOException) {
+            e = e.getCause();
+        }
+        if (e instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Too many uploads in progress, try again later");
+        }
+        if (e instanceof IllegalArgumentException) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (e instanceof IOException) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to upload image: " + e.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Error: " + e.getMessage());
+    }
 }
\ No newline at end of file
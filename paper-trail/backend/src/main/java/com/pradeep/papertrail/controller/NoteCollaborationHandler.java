@@ -0,0 +1,146 @@
+package com.pradeep.papertrail.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pradeep.papertrail.model.AccessLevel;
+import com.pradeep.papertrail.security.UserDetailsImpl;
+import com.pradeep.papertrail.service.CollaborationService;
+import com.pradeep.papertrail.service.NoteAccessService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collaboration channel at /ws/notes/{noteId}.
+ * The handshake runs behind the normal session login and is refused unless the user can read the note;
+ * READ participants receive updates, only owners and EDIT participants may send operations.
+ *
+ * Server to client:
+ * <pre>
+ * {"type": "init" | "reset", "seq": 7, "version": 3, "content": {...}}   full document
+ * {"type": "ops", "seq": 8, "userId": 5, "clientSeq": 2, "ops": [...]}   applied operations, in order
+ * {"type": "error", "clientSeq": 2, "message": "...", "applied": 1}
+ * </pre>
+ * Client to server: {"type": "ops", "clientSeq": 2, "ops": [...]}. Clients apply "ops" messages in seq
+ * order (their own come back with their clientSeq as the acknowledgement) and re-apply unacknowledged
+ * local operations on top.
+ */
+@Component
+public class NoteCollaborationHandler extends TextWebSocketHandler implements HandshakeInterceptor {
+
+    private static final String NOTE_ID = "noteId";
+    private static final String USER_ID = "userId";
+    private static final String CAN_EDIT = "canEdit";
+
+    private static final int SEND_TIME_LIMIT_MS = 5000;
+    private static final int SEND_BUFFER_LIMIT = 512 * 1024;
+
+    private final CollaborationService collaborationService;
+    private final NoteAccessService noteAccessService;
+    private final ObjectMapper objectMapper;
+    // Thread-safe wrappers, so broadcasts from other participants' threads never interleave frames
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    // Operations are small; anything bigger is a misbehaving client
+    @Value("${papertrail.collab.max-message-size:65536}")
+    private int maxMessageSize;
+
+    public NoteCollaborationHandler(CollaborationService collaborationService,
+                                    NoteAccessService noteAccessService,
+                                    ObjectMapper objectMapper) {
+        this.collaborationService = collaborationService;
+        this.noteAccessService = noteAccessService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (!(request.getPrincipal() instanceof Authentication authentication)
+                || !(authentication.getPrincipal() instanceof UserDetailsImpl user)) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        try {
+            String path = request.getURI().getPath();
+            Long noteId = Long.valueOf(path.substring(path.lastIndexOf('/') + 1));
+            AccessLevel access = noteAccessService.resolve(noteId, user.getId());
+            if (!access.canRead()) {
+                response.setStatusCode(HttpStatus.FORBIDDEN);
+                return false;
+            }
+            attributes.put(NOTE_ID, noteId);
+            attributes.put(USER_ID, user.getId());
+            attributes.put(CAN_EDIT, access.canEdit());
+            return true;
+        } catch (RuntimeException e) {
+            response.setStatusCode(HttpStatus.NOT_FOUND);
+            return false;
+        }
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        session.setTextMessageSizeLimit(maxMessageSize);
+        WebSocketSession concurrent = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT);
+        sessions.put(session.getId(), concurrent);
+        collaborationService.join(noteId(session), concurrent);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        WebSocketSession concurrent = sessions.get(session.getId());
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(message.getPayload());
+        } catch (IOException e) {
+            concurrent.close(CloseStatus.BAD_DATA.withReason("Invalid JSON"));
+            return;
+        }
+        if (!"ops".equals(payload.path("type").asText())) {
+            return;
+        }
+        long clientSeq = payload.path("clientSeq").asLong();
+        if (!Boolean.TRUE.equals(session.getAttributes().get(CAN_EDIT))) {
+            concurrent.sendMessage(new TextMessage(objectMapper.createObjectNode()
+                    .put("type", "error")
+                    .put("clientSeq", clientSeq)
+                    .put("message", "No permission to edit this note")
+                    .toString()));
+            return;
+        }
+        collaborationService.submit(noteId(session), (Long) session.getAttributes().get(USER_ID),
+                clientSeq, payload.get("ops"), concurrent);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        WebSocketSession concurrent = sessions.remove(session.getId());
+        if (concurrent != null) {
+            collaborationService.leave(noteId(session), concurrent);
+        }
+    }
+
+    private static Long noteId(WebSocketSession session) {
+        return (Long) session.getAttributes().get(NOTE_ID);
+    }
+}
@@ -1,22 +1,54 @@
 package com.pradeep.papertrail.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.pradeep.papertrail.dto.BulkPermissionRequest;
+import com.pradeep.papertrail.dto.BulkPermissionResponse;
+import com.pradeep.papertrail.dto.CursorPageResponse;
+import com.pradeep.papertrail.dto.NoteCursor;
 import com.pradeep.papertrail.dto.NoteDTO;
+import com.pradeep.papertrail.dto.NoteEventDTO;
+import com.pradeep.papertrail.dto.NoteRevisionDTO;
+import com.pradeep.papertrail.dto.NoteSearchResultDTO;
+import com.pradeep.papertrail.dto.NoteSummaryDTO;
+import com.pradeep.papertrail.dto.RawNoteDTO;
 import com.pradeep.papertrail.model.Note;
 import com.pradeep.papertrail.model.NotePermission;
 import com.pradeep.papertrail.model.User;
 import com.pradeep.papertrail.repository.NotePermissionRepository;
 import com.pradeep.papertrail.repository.NoteRepository;
 import com.pradeep.papertrail.repository.UserRepository;
+import com.pradeep.papertrail.security.UserDetailsImpl;
+import com.pradeep.papertrail.service.NoteAccessService;
+import com.pradeep.papertrail.service.NoteEventService;
+import com.pradeep.papertrail.service.NoteExportService;
+import com.pradeep.papertrail.service.NoteImportService;
+import com.pradeep.papertrail.service.NotePatchService;
+import com.pradeep.papertrail.service.NoteRevisionService;
+import com.pradeep.papertrail.service.NoteSharingService;
+import com.pradeep.papertrail.service.VersionConflictException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/notes")
@@ -25,92 +57,219 @@ public class NoteController {
     private final NoteRepository noteRepository;
     private final NotePermissionRepository permissionRepository;
     private final UserRepository userRepository;
+    private final NoteAccessService noteAccessService;
+    private final NotePatchService notePatchService;
+    private final NoteRevisionService revisionService;
+    private final NoteEventService noteEventService;
+    private final NoteExportService noteExportService;
+    private final NoteImportService noteImportService;
+    private final NoteSharingService noteSharingService;
+
+    @Value("${papertrail.notes.page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${papertrail.notes.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${papertrail.sharing.max-grants:10000}")
+    private int maxBulkGrants;
+
+    // GET /notes/{id} passes content through as jsonb text instead of mapping it to a Map and back
+    @Value("${papertrail.notes.raw-content:false}")
+    private boolean rawContent;
 
     public NoteController(NoteRepository noteRepository,
                           NotePermissionRepository permissionRepository,
-                          UserRepository userRepository) {
+                          UserRepository userRepository,
+                          NoteAccessService noteAccessService,
+                          NotePatchService notePatchService,
+                          NoteRevisionService revisionService,
+                          NoteEventService noteEventService,
+                          NoteExportService noteExportService,
+                          NoteImportService noteImportService,
+                          NoteSharingService noteSharingService) {
         this.noteRepository = noteRepository;
         this.permissionRepository = permissionRepository;
         this.userRepository = userRepository;
+        this.noteAccessService = noteAccessService;
+        this.notePatchService = notePatchService;
+        this.revisionService = revisionService;
+        this.noteEventService = noteEventService;
+        this.noteExportService = noteExportService;
+        this.noteImportService = noteImportService;
+        this.noteSharingService = noteSharingService;
     }
 
     // Create a new note with JSON content
     @PostMapping("/create")
-    public ResponseEntity<?> createNote(@RequestBody NoteDTO noteDTO, Authentication auth) {
+    public ResponseEntity<?> createNote(@RequestBody NoteDTO noteDTO,
+                                        @AuthenticationPrincipal UserDetailsImpl currentUser) {
         try {
-            User user = userRepository.findByEmail(auth.getName())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
             Note note = new Note();
             note.setTitle(noteDTO.getTitle());
             note.setContent(noteDTO.getContent()); // JSON content
-            note.setUser(user);
-            note.setCreatedBy(user.getName());
+            note.setUser(userRepository.getReferenceById(currentUser.getId()));
+            note.setCreatedBy(currentUser.getName());
             note.setCreatedAt(LocalDateTime.now());
             note.setUpdatedAt(LocalDateTime.now());
 
-            Note savedNote = noteRepository.save(note);
+            Note savedNote = revisionService.saveVersion(note, null, currentUser.getId());
+            noteEventService.publish(new NoteEventDTO(NoteEventDTO.Type.NOTE_CREATED, savedNote.getId(),
+                    savedNote.getVersion(), savedNote.getTitle(), null, currentUser.getId()));
             return ResponseEntity.ok(convertToDTO(savedNote));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error creating note: " + e.getMessage());
         }
     }
 
-    // Get notes owned by the user
+    // Get a page of note summaries owned by the user (no content)
     @GetMapping("/my")
     @Transactional(readOnly = true)
-    public ResponseEntity<List<NoteDTO>> getMyNotes(Authentication auth) {
-        User user = userRepository.findByEmail(auth.getName())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        List<NoteDTO> notes = noteRepository.findByUser(user).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public ResponseEntity<?> getMyNotes(@RequestParam(required = false) String cursor,
+                                        @RequestParam(required = false) Integer size,
+                                        @RequestParam(defaultValue = "desc") String order,
+                                        @RequestParam(defaultValue = "false") boolean snippet,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                        @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        try {
+            int pageSize = resolvePageSize(size);
+            List<NoteSummaryDTO> rows = noteRepository.findOwnedSummaries(currentUser.getId(), NoteCursor.decode(cursor),
+                    isAscending(order), snippet, pageSize + 1);
 
-        return ResponseEntity.ok(notes);
+            return pageResponse(toPage(rows, pageSize), ifNoneMatch);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
     }
 
-    // Get notes shared with the user (READ permission)
+    // Get a page of note summaries shared with the user (READ or EDIT permission)
     @GetMapping("/shared")
     @Transactional(readOnly = true)
-    public ResponseEntity<List<NoteDTO>> getSharedNotes(Authentication auth) {
-        User user = userRepository.findByEmail(auth.getName())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    public ResponseEntity<?> getSharedNotes(@RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer size,
+                                            @RequestParam(defaultValue = "desc") String order,
+                                            @RequestParam(defaultValue = "false") boolean snippet,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        try {
+            int pageSize = resolvePageSize(size);
+            List<NoteSummaryDTO> rows = noteRepository.findSharedSummaries(currentUser.getId(), NoteCursor.decode(cursor),
+                    isAscending(order), snippet, pageSize + 1);
 
-        List<NoteDTO> sharedNotes = permissionRepository
-                .findByUserAndPermissionIn(user, List.of(NotePermission.Permission.READ, NotePermission.Permission.EDIT))
-                .stream()
-                .map(NotePermission::getNote)
-                .filter(Objects::nonNull)
-                .distinct()
-                .map(this::convertToDTO)
-                .toList();
+            return pageResponse(toPage(rows, pageSize), ifNoneMatch);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Change feed (server-sent events) for notes the user owns or has been granted;
+    // reconnecting clients send Last-Event-ID and only receive what they missed
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                   @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        return noteEventService.subscribe(currentUser.getId(), lastEventId);
+    }
+
+    // Export every note the user owns and/or can read, streamed as NDJSON or a zip of JSON files.
+    // Notes come in id order; after=<last id received> resumes an interrupted export.
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportNotes(@RequestParam(defaultValue = "ndjson") String format,
+                                                             @RequestParam(defaultValue = "all") String scope,
+                                                             @RequestParam(defaultValue = "0") long after,
+                                                             @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        NoteExportService.Scope exportScope;
+        try {
+            exportScope = NoteExportService.Scope.valueOf(scope.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return streamingBadRequest("Error: Unknown scope " + scope);
+        }
+        Long userId = currentUser.getId();
+
+        if ("zip".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = out -> noteExportService.exportZip(userId, exportScope, after, out);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"notes-export.zip\"")
+                    .body(body);
+        }
+        if ("ndjson".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = out -> noteExportService.exportNdjson(userId, exportScope, after, out);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"notes-export.ndjson\"")
+                    .body(body);
+        }
+        return streamingBadRequest("Error: Unknown format " + format);
+    }
 
+    // Bulk import from NDJSON (one note per line, same shape as the export), streamed and inserted in batches.
+    // Bad lines are reported in the result instead of aborting the import.
+    @PostMapping("/import")
+    public ResponseEntity<?> importNotes(InputStream body,
+                                         @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        try {
+            return ResponseEntity.ok(noteImportService.importNdjson(currentUser.getId(), currentUser.getName(), body));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Error importing notes: " + e.getMessage());
+        }
+    }
 
-        return ResponseEntity.ok(sharedNotes);
+    // Full-text search over titles and content of notes the user owns or can read, best match first
+    @GetMapping("/search")
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> searchNotes(@RequestParam String q,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer size,
+                                         @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        try {
+            if (q.isBlank()) {
+                throw new IllegalArgumentException("Search query must not be blank");
+            }
+            int pageSize = resolvePageSize(size);
+            // Ranked results have no stable keyset, so the cursor is the offset of the next page
+            int offset = decodeOffset(cursor);
+            List<NoteSearchResultDTO> rows = noteRepository.search(currentUser.getId(), q, offset, pageSize + 1);
+
+            boolean hasMore = rows.size() > pageSize;
+            List<NoteSearchResultDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
+            String nextCursor = hasMore ? String.valueOf(offset + pageSize) : null;
+            return ResponseEntity.ok(new CursorPageResponse<>(items, nextCursor, hasMore));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
     }
 
     // Get a single note by ID
     @GetMapping("/{noteId}")
     @Transactional(readOnly = true)
-    public ResponseEntity<?> getNoteById(@PathVariable Long noteId, Authentication auth) {
+    public ResponseEntity<?> getNoteById(@PathVariable Long noteId,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         @AuthenticationPrincipal UserDetailsImpl currentUser) {
         try {
-            User user = userRepository.findByEmail(auth.getName())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            Note note = noteRepository.findById(noteId)
-                    .orElseThrow(() -> new RuntimeException("Note not found"));
-
             // Check if user owns the note or has read permission
-            boolean canRead = note.getUser().getId().equals(user.getId()) ||
-                    permissionRepository.existsByNoteAndUserAndPermission(note, user, NotePermission.Permission.READ) ||
-                    permissionRepository.existsByNoteAndUserAndPermission(note, user, NotePermission.Permission.EDIT);
-
-            if (!canRead) {
+            if (!noteAccessService.resolve(noteId, currentUser.getId()).canRead()) {
                 return ResponseEntity.status(403).body("No permission to view this note");
             }
 
-            return ResponseEntity.ok(convertToDTO(note));
+            // Revalidation only needs the version, never the content
+            if (ifNoneMatch != null) {
+                String etag = NoteETags.of(noteRepository.findVersionById(noteId)
+                        .orElseThrow(() -> new RuntimeException("Note not found")));
+                if (NoteETags.noneMatch(ifNoneMatch, etag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                }
+            }
+
+            if (rawContent) {
+                RawNoteDTO note = noteRepository.findRawById(noteId)
+                        .orElseThrow(() -> new RuntimeException("Note not found"));
+                return ResponseEntity.ok().eTag(NoteETags.of(note.getVersion())).body(note);
+            }
+
+            Note note = noteRepository.findById(noteId)
+                    .orElseThrow(() -> new RuntimeException("Note not found"));
+
+            return ResponseEntity.ok().eTag(NoteETags.of(note.getVersion())).body(convertToDTO(note));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
@@ -120,68 +279,184 @@ public class NoteController {
     @PutMapping("/{noteId}")
     public ResponseEntity<?> updateNote(@PathVariable Long noteId,
                                         @RequestBody NoteDTO updatedNoteDTO,
-                                        Authentication auth) {
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                        @AuthenticationPrincipal UserDetailsImpl currentUser) {
         try {
-            User user = userRepository.findByEmail(auth.getName())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
+            if (!noteAccessService.resolve(noteId, currentUser.getId()).canEdit()) {
+                return ResponseEntity.status(403).body("No permission to edit this note");
+            }
 
             Note note = noteRepository.findById(noteId)
                     .orElseThrow(() -> new RuntimeException("Note not found"));
 
-            boolean canEdit = note.getUser().getId().equals(user.getId()) ||
-                    permissionRepository.existsByNoteAndUserAndPermission(note, user, NotePermission.Permission.EDIT);
-
-            if (!canEdit) {
-                return ResponseEntity.status(403).body("No permission to edit this note");
+            List<Long> expectedVersions = NoteETags.expectedVersions(ifMatch);
+            if (expectedVersions != null && !expectedVersions.contains(note.getVersion())) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                        .eTag(NoteETags.of(note.getVersion()))
+                        .body("Note has been modified by someone else");
             }
 
+            Map<String, Object> previousContent = note.getContent();
             note.setTitle(updatedNoteDTO.getTitle());
             note.setContent(updatedNoteDTO.getContent()); // JSON content
             note.setUpdatedAt(LocalDateTime.now());
 
-            Note savedNote = noteRepository.save(note);
-            return ResponseEntity.ok(convertToDTO(savedNote));
+            Note savedNote = revisionService.saveVersion(note, previousContent, currentUser.getId());
+            noteEventService.publish(new NoteEventDTO(NoteEventDTO.Type.NOTE_UPDATED, noteId,
+                    savedNote.getVersion(), savedNote.getTitle(), null, currentUser.getId()));
+            return ResponseEntity.ok().eTag(NoteETags.of(savedNote.getVersion())).body(convertToDTO(savedNote));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("Note has been modified by someone else");
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error updating note: " + e.getMessage());
         }
     }
 
+    // Partially update note content with an RFC 6902 JSON Patch (only owner or EDIT permission)
+    @PatchMapping(value = "/{noteId}", consumes = "application/json-patch+json")
+    public ResponseEntity<?> jsonPatchNote(@PathVariable Long noteId,
+                                           @RequestBody JsonNode patch,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                           @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        try {
+            if (!noteAccessService.resolve(noteId, currentUser.getId()).canEdit()) {
+                return ResponseEntity.status(403).body("No permission to edit this note");
+            }
+
+            Long version = notePatchService.applyJsonPatch(noteId, patch, NoteETags.expectedVersions(ifMatch),
+                    currentUser.getId());
+            noteEventService.publish(new NoteEventDTO(NoteEventDTO.Type.NOTE_UPDATED, noteId, version,
+                    null, null, currentUser.getId()));
+            return ResponseEntity.noContent().eTag(NoteETags.of(version)).build();
+        } catch (VersionConflictException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("Note has been modified by someone else");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error patching note: " + e.getMessage());
+        }
+    }
+
+    // Partially update note content with an RFC 7386 JSON Merge Patch (only owner or EDIT permission)
+    @PatchMapping(value = "/{noteId}", consumes = "application/merge-patch+json")
+    public ResponseEntity<?> mergePatchNote(@PathVariable Long noteId,
+                                            @RequestBody JsonNode patch,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        try {
+            if (!noteAccessService.resolve(noteId, currentUser.getId()).canEdit()) {
+                return ResponseEntity.status(403).body("No permission to edit this note");
+            }
+
+            Long version = notePatchService.applyMergePatch(noteId, patch, NoteETags.expectedVersions(ifMatch),
+                    currentUser.getId());
+            noteEventService.publish(new NoteEventDTO(NoteEventDTO.Type.NOTE_UPDATED, noteId, version,
+                    null, null, currentUser.getId()));
+            return ResponseEntity.noContent().eTag(NoteETags.of(version)).build();
+        } catch (VersionConflictException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("Note has been modified by someone else");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error patching note: " + e.getMessage());
+        }
+    }
+
+    // List saved versions of a note, newest first (metadata only)
+    @GetMapping("/{noteId}/revisions")
+    public ResponseEntity<?> getRevisions(@PathVariable Long noteId,
+                                          @RequestParam(required = false) Long before,
+                                          @RequestParam(required = false) Integer size,
+                                          @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        try {
+            if (!noteAccessService.resolve(noteId, currentUser.getId()).canRead()) {
+                return ResponseEntity.status(403).body("No permission to view this note");
+            }
+
+            int pageSize = resolvePageSize(size);
+            List<NoteRevisionDTO> rows = revisionService.list(noteId, before, pageSize + 1);
+            boolean hasMore = rows.size() > pageSize;
+            List<NoteRevisionDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
+            String nextCursor = hasMore ? String.valueOf(items.get(items.size() - 1).getVersion()) : null;
+            return ResponseEntity.ok(new CursorPageResponse<>(items, nextCursor, hasMore));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Get the content of a note as it was at a given version
+    @GetMapping("/{noteId}/revisions/{version}")
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getRevision(@PathVariable Long noteId,
+                                         @PathVariable Long version,
+                                         @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        try {
+            if (!noteAccessService.resolve(noteId, currentUser.getId()).canRead()) {
+                return ResponseEntity.status(403).body("No permission to view this note");
+            }
+
+            return ResponseEntity.ok(revisionService.get(noteId, version));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Restore an old version; this saves it as a new version, history is never rewritten
+    @PostMapping("/{noteId}/revisions/{version}/restore")
+    public ResponseEntity<?> restoreRevision(@PathVariable Long noteId,
+                                             @PathVariable Long version,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                             @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        try {
+            if (!noteAccessService.resolve(noteId, currentUser.getId()).canEdit()) {
+                return ResponseEntity.status(403).body("No permission to edit this note");
+            }
+
+            NoteRevisionDTO revision = revisionService.get(noteId, version);
+            Note note = noteRepository.findById(noteId)
+                    .orElseThrow(() -> new RuntimeException("Note not found"));
+
+            List<Long> expectedVersions = NoteETags.expectedVersions(ifMatch);
+            if (expectedVersions != null && !expectedVersions.contains(note.getVersion())) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                        .eTag(NoteETags.of(note.getVersion()))
+                        .body("Note has been modified by someone else");
+            }
+
+            Map<String, Object> previousContent = note.getContent();
+            note.setTitle(revision.getTitle());
+            note.setContent(revision.getContent());
+            note.setUpdatedAt(LocalDateTime.now());
+
+            Note savedNote = revisionService.saveVersion(note, previousContent, currentUser.getId());
+            noteEventService.publish(new NoteEventDTO(NoteEventDTO.Type.NOTE_UPDATED, noteId,
+                    savedNote.getVersion(), savedNote.getTitle(), null, currentUser.getId()));
+            return ResponseEntity.ok().eTag(NoteETags.of(savedNote.getVersion())).body(convertToDTO(savedNote));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("Note has been modified by someone else");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error restoring note: " + e.getMessage());
+        }
+    }
+
     // Share a note with another user
     @PostMapping("/{noteId}/share")
     public ResponseEntity<?> shareNote(@PathVariable Long noteId,
                                        @RequestParam String email,
                                        @RequestParam NotePermission.Permission permission,
-                                       Authentication auth) {
+                                       @AuthenticationPrincipal UserDetailsImpl currentUser) {
         try {
-            User owner = userRepository.findByEmail(auth.getName())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            Note note = noteRepository.findById(noteId)
-                    .orElseThrow(() -> new RuntimeException("Note not found"));
-
-            if (!note.getUser().getId().equals(owner.getId())) {
+            if (!noteAccessService.resolve(noteId, currentUser.getId()).isOwner()) {
                 return ResponseEntity.status(403).body("Only owner can share the note");
             }
 
             User targetUser = userRepository.findByEmail(email)
                     .orElseThrow(() -> new RuntimeException("Target user not found"));
 
-            NotePermission notePermission = new NotePermission();
-            notePermission.setNote(note);
-            notePermission.setUser(targetUser);
-            notePermission.setPermission(permission);
-
-            Optional<NotePermission> existing =
-                    permissionRepository.findByNoteAndUser(note, targetUser);
+            // Upsert, so two concurrent shares of the same note and user cannot create two grants
+            List<NoteSharingService.Grant> changed = noteSharingService.share(List.of(noteId),
+                    List.of(targetUser.getId()), permission, currentUser.getId());
 
-            if (existing.isPresent()) {
-                existing.get().setPermission(permission); // update instead
-                permissionRepository.save(existing.get());
-                return ResponseEntity.ok("Permission updated successfully");
+            if (!changed.isEmpty() && changed.get(0).inserted()) {
+                return ResponseEntity.ok("Note shared successfully");
             }
-
-            permissionRepository.save(notePermission);
-            return ResponseEntity.ok("Note shared successfully");
+            return ResponseEntity.ok("Permission updated successfully");
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error sharing note: " + e.getMessage());
         }
@@ -191,48 +466,171 @@ public class NoteController {
     @DeleteMapping("/{noteId}/permissions/{userId}")
     public ResponseEntity<String> revokePermission(@PathVariable Long noteId,
                                                    @PathVariable Long userId,
-                                                   Authentication auth) {
+                                                   @AuthenticationPrincipal UserDetailsImpl currentUser) {
         try {
-            User owner = userRepository.findByEmail(auth.getName())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            Note note = noteRepository.findById(noteId)
-                    .orElseThrow(() -> new RuntimeException("Note not found"));
-
-            if (!note.getUser().getId().equals(owner.getId())) {
+            if (!noteAccessService.resolve(noteId, currentUser.getId()).isOwner()) {
                 return ResponseEntity.status(403).body("Only owner can revoke permissions");
             }
 
-            permissionRepository.deleteByNoteIdAndUserId(noteId, userId);
+            noteSharingService.revoke(List.of(noteId), List.of(userId), currentUser.getId());
             return ResponseEntity.ok("Permission revoked successfully");
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error revoking permission: " + e.getMessage());
         }
     }
 
-    // Delete a note (only owner)
-    @DeleteMapping("/{noteId}")
-    public ResponseEntity<String> deleteNote(@PathVariable Long noteId, Authentication auth) {
+    // Share many notes with many users (by email or id) in one request; unknown emails are reported, not fatal
+    @PostMapping("/share")
+    public ResponseEntity<?> shareNotes(@RequestBody BulkPermissionRequest request,
+                                        @AuthenticationPrincipal UserDetailsImpl currentUser) {
         try {
-            User user = userRepository.findByEmail(auth.getName())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
+            if (request.getPermission() == null) {
+                return ResponseEntity.badRequest().body("Error sharing notes: permission is required");
+            }
+            List<String> unknownEmails = new ArrayList<>();
+            Set<Long> userIds = resolveBulkTargets(request, unknownEmails, currentUser.getId());
+            if (!ownsAll(request.getNoteIds(), currentUser.getId())) {
+                return ResponseEntity.status(403).body("Only owner can share the note");
+            }
 
-            Note note = noteRepository.findById(noteId)
-                    .orElseThrow(() -> new RuntimeException("Note not found"));
+            List<NoteSharingService.Grant> changed = userIds.isEmpty() ? List.of()
+                    : noteSharingService.share(request.getNoteIds(), userIds, request.getPermission(), currentUser.getId());
+            return ResponseEntity.ok(new BulkPermissionResponse(changed.size(), unknownEmails));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error sharing notes: " + e.getMessage());
+        }
+    }
+
+    // Revoke many users (by email or id) from many notes in one request
+    @PostMapping("/revoke")
+    public ResponseEntity<?> revokePermissions(@RequestBody BulkPermissionRequest request,
+                                               @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        try {
+            List<String> unknownEmails = new ArrayList<>();
+            Set<Long> userIds = resolveBulkTargets(request, unknownEmails, currentUser.getId());
+            if (!ownsAll(request.getNoteIds(), currentUser.getId())) {
+                return ResponseEntity.status(403).body("Only owner can revoke permissions");
+            }
+
+            List<NoteSharingService.Grant> removed = userIds.isEmpty() ? List.of()
+                    : noteSharingService.revoke(request.getNoteIds(), userIds, currentUser.getId());
+            return ResponseEntity.ok(new BulkPermissionResponse(removed.size(), unknownEmails));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error revoking permissions: " + e.getMessage());
+        }
+    }
 
-            if (!note.getUser().getId().equals(user.getId())) {
+    // Delete a note (only owner)
+    @DeleteMapping("/{noteId}")
+    public ResponseEntity<String> deleteNote(@PathVariable Long noteId,
+                                             @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        try {
+            if (!noteAccessService.resolve(noteId, currentUser.getId()).isOwner()) {
                 return ResponseEntity.status(403).body("Only owner can delete the note");
             }
 
-            noteRepository.delete(note);
+            // Collected first: once the note is gone nobody can be looked up
+            List<Long> audience = new ArrayList<>(permissionRepository.findUserIdsByNoteId(noteId));
+            audience.add(currentUser.getId());
+
+            noteRepository.deleteById(noteId);
+            noteAccessService.invalidateNote(noteId);
+            noteEventService.publish(new NoteEventDTO(NoteEventDTO.Type.NOTE_DELETED, noteId, null,
+                    null, null, currentUser.getId()), audience);
             return ResponseEntity.ok("Note deleted successfully");
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error deleting note: " + e.getMessage());
         }
     }
 
-    // Helper method to convert Note entity to DTO
-    private NoteDTO convertToDTO(Note note) {
+    // User ids of a bulk request: explicit ids plus emails resolved in one query, without the caller
+    private Set<Long> resolveBulkTargets(BulkPermissionRequest request, List<String> unknownEmails, Long callerId) {
+        if (request.getNoteIds() == null || request.getNoteIds().isEmpty()) {
+            throw new IllegalArgumentException("noteIds is required");
+        }
+        Set<Long> userIds = new LinkedHashSet<>();
+        if (request.getUserIds() != null) {
+            userIds.addAll(request.getUserIds());
+        }
+        if (request.getEmails() != null && !request.getEmails().isEmpty()) {
+            Set<String> emails = new LinkedHashSet<>(request.getEmails());
+            for (User user : userRepository.findByEmailIn(emails)) {
+                userIds.add(user.getId());
+                emails.remove(user.getEmail());
+            }
+            unknownEmails.addAll(emails);
+        }
+        userIds.remove(callerId);
+        if ((long) new HashSet<>(request.getNoteIds()).size() * userIds.size() > maxBulkGrants) {
+            throw new IllegalArgumentException("At most " + maxBulkGrants + " note/user pairs per request");
+        }
+        return userIds;
+    }
+
+    private boolean ownsAll(List<Long> noteIds, Long userId) {
+        Set<Long> requested = new HashSet<>(noteIds);
+        return noteRepository.findOwnedIds(requested, userId).size() == requested.size();
+    }
+
+    // Streaming endpoints cannot return a String body; write the same message instead
+    private static ResponseEntity<StreamingResponseBody> streamingBadRequest(String message) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(out -> out.write(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    private static int decodeOffset(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(cursor);
+            if (offset < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static boolean isAscending(String order) {
+        return Sort.Direction.fromString(order).isAscending();
+    }
+
+    // Answer 304 when the client already holds this exact page
+    private static ResponseEntity<?> pageResponse(CursorPageResponse<NoteSummaryDTO> page, String ifNoneMatch) {
+        String etag = NoteETags.ofPage(page);
+        if (ifNoneMatch != null && NoteETags.noneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(page);
+    }
+
+    // The repository is asked for one extra row so we know whether another page exists
+    private static CursorPageResponse<NoteSummaryDTO> toPage(List<NoteSummaryDTO> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<NoteSummaryDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            NoteSummaryDTO last = items.get(items.size() - 1);
+            nextCursor = new NoteCursor(last.getUpdatedAt(), last.getId()).encode();
+        }
+        return new CursorPageResponse<>(items, nextCursor, hasMore);
+    }
+
+    // Helper method to convert Note entity to DTO (package-private for the benchmarks module)
+    static NoteDTO convertToDTO(Note note) {
         return new NoteDTO(
                 note.getId(),
                 note.getTitle(),
@@ -240,7 +638,8 @@ public class NoteController {
                 note.getCreatedBy(),
                 note.getUser() != null ? note.getUser().getId() : null,
                 note.getCreatedAt(),
-                note.getUpdatedAt()
+                note.getUpdatedAt(),
+                note.getVersion()
         );
     }
 }
\ No newline at end of file
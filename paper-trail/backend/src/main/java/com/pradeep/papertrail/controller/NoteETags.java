@@ -0,0 +1,69 @@
+package com.pradeep.papertrail.controller;
+
+import com.pradeep.papertrail.dto.CursorPageResponse;
+import com.pradeep.papertrail.dto.NoteSummaryDTO;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Entity tags for notes: a note's tag is its quoted version, a listing's tag is a weak digest of its rows
+final class NoteETags {
+
+    private NoteETags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    static String ofPage(CursorPageResponse<NoteSummaryDTO> page) {
+        StringBuilder rows = new StringBuilder();
+        for (NoteSummaryDTO note : page.getItems()) {
+            rows.append(note.getId()).append(':').append(note.getVersion())
+                    .append(':').append(note.getPermission()).append(';');
+        }
+        rows.append(page.getNextCursor());
+        return "W/\"" + DigestUtils.md5DigestAsHex(rows.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    // If-None-Match uses weak comparison: W/"x" and "x" are the same tag
+    static boolean noneMatch(String ifNoneMatch, String etag) {
+        String opaque = stripWeak(etag);
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Versions acceptable to an If-Match header (strong comparison)
+     * @param ifMatch The header value, may be null
+     * @return null when any version is acceptable (no header or "*"), otherwise the listed versions
+     */
+    static List<Long> expectedVersions(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag.substring(1, tag.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // a tag we never issued cannot match
+                }
+            }
+        }
+        return versions;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
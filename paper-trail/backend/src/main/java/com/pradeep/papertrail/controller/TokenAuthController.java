@@ -0,0 +1,68 @@
+package com.pradeep.papertrail.controller;
+
+import com.pradeep.papertrail.dto.RefreshTokenRequest;
+import com.pradeep.papertrail.model.User;
+import com.pradeep.papertrail.security.PasswordHashingService;
+import com.pradeep.papertrail.security.TokenService;
+import com.pradeep.papertrail.security.UserDetailsImpl;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+
+// Login, refresh and logout when papertrail.auth.mode=token; registration stays in AuthController
+@RestController
+@RequestMapping("/auth")
+@ConditionalOnProperty(name = "papertrail.auth.mode", havingValue = "token")
+public class TokenAuthController {
+
+    private final PasswordHashingService passwordHashingService;
+    private final TokenService tokenService;
+
+    public TokenAuthController(PasswordHashingService passwordHashingService, TokenService tokenService) {
+        this.passwordHashingService = passwordHashingService;
+        this.tokenService = tokenService;
+    }
+
+    // Exchange email and password for an access token and a refresh token
+    @PostMapping("/token")
+    public CompletableFuture<ResponseEntity<?>> token(@RequestBody User user, HttpServletRequest request) {
+        try {
+            return passwordHashingService.authenticate(user.getEmail(), user.getPassword(), request.getRemoteAddr())
+                    .<ResponseEntity<?>>thenApply(authentication ->
+                            ResponseEntity.ok(tokenService.issue((UserDetailsImpl) authentication.getPrincipal())))
+                    .exceptionally(AuthResponses::failed);
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(AuthResponses.failed(e));
+        }
+    }
+
+    // The refresh token is single use: the response carries its replacement
+    @PostMapping("/token/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest request) {
+        if (request.getRefreshToken() == null) {
+            return ResponseEntity.badRequest().body("Error refreshing token: refreshToken is required");
+        }
+        try {
+            return ResponseEntity.ok(tokenService.refresh(request.getRefreshToken()));
+        } catch (AuthenticationException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
+    }
+
+    // Works with either token, or both, even once the access token has expired
+    @PostMapping("/logout")
+    public ResponseEntity<String> logout(HttpServletRequest httpRequest,
+                                         @RequestBody(required = false) RefreshTokenRequest request) {
+        String authorization = httpRequest.getHeader("Authorization");
+        String accessToken = authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring("Bearer ".length()).trim()
+                : null;
+        tokenService.revoke(accessToken, request != null ? request.getRefreshToken() : null);
+        return ResponseEntity.ok("Logout successful");
+    }
+}
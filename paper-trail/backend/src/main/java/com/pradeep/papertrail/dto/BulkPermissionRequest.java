@@ -0,0 +1,48 @@
+package com.pradeep.papertrail.dto;
+
+import com.pradeep.papertrail.model.NotePermission;
+
+import java.util.List;
+
+// Notes x users for bulk share / revoke; users by email and/or id, permission is only read when sharing
+public class BulkPermissionRequest {
+    private List<Long> noteIds;
+    private List<String> emails;
+    private List<Long> userIds;
+    private NotePermission.Permission permission;
+
+    public BulkPermissionRequest() {
+    }
+
+    public List<Long> getNoteIds() {
+        return noteIds;
+    }
+
+    public void setNoteIds(List<Long> noteIds) {
+        this.noteIds = noteIds;
+    }
+
+    public List<String> getEmails() {
+        return emails;
+    }
+
+    public void setEmails(List<String> emails) {
+        this.emails = emails;
+    }
+
+    public List<Long> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(List<Long> userIds) {
+        this.userIds = userIds;
+    }
+
+    public NotePermission.Permission getPermission() {
+        return permission;
+    }
+
+    public void setPermission(NotePermission.Permission permission) {
+        this.permission = permission;
+    }
+}
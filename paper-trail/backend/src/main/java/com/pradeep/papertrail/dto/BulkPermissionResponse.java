@@ -0,0 +1,33 @@
+package com.pradeep.papertrail.dto;
+
+import java.util.List;
+
+public class BulkPermissionResponse {
+    // Grants created, changed or removed; grants that already matched are not counted
+    private int changed;
+    private List<String> unknownEmails;
+
+    public BulkPermissionResponse() {
+    }
+
+    public BulkPermissionResponse(int changed, List<String> unknownEmails) {
+        this.changed = changed;
+        this.unknownEmails = unknownEmails;
+    }
+
+    public int getChanged() {
+        return changed;
+    }
+
+    public void setChanged(int changed) {
+        this.changed = changed;
+    }
+
+    public List<String> getUnknownEmails() {
+        return unknownEmails;
+    }
+
+    public void setUnknownEmails(List<String> unknownEmails) {
+        this.unknownEmails = unknownEmails;
+    }
+}
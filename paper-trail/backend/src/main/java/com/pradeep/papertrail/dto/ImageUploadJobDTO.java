@@ -0,0 +1,68 @@
+package com.pradeep.papertrail.dto;
+
+import java.time.LocalDateTime;
+
+// State of an asynchronous image upload; result is set once DONE, error once FAILED
+public class ImageUploadJobDTO {
+    public enum Status {
+        PENDING, RUNNING, DONE, FAILED
+    }
+
+    private String jobId;
+    private Status status;
+    private ImageUploadResponse result;
+    private String error;
+    private LocalDateTime createdAt;
+
+    public ImageUploadJobDTO() {
+    }
+
+    public ImageUploadJobDTO(String jobId, Status status, ImageUploadResponse result, String error,
+                             LocalDateTime createdAt) {
+        this.jobId = jobId;
+        this.status = status;
+        this.result = result;
+        this.error = error;
+        this.createdAt = createdAt;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public ImageUploadResponse getResult() {
+        return result;
+    }
+
+    public void setResult(ImageUploadResponse result) {
+        this.result = result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -1,6 +1,7 @@
 package com.pradeep.papertrail.dto;
 
 public class ImageUploadResponse {
+    private String id;
     private String url;
     private String publicId;
     private String format;
@@ -10,7 +11,8 @@ public class ImageUploadResponse {
     public ImageUploadResponse() {
     }
 
-    public ImageUploadResponse(String url, String publicId, String format, Long userId, String folder) {
+    public ImageUploadResponse(String id, String url, String publicId, String format, Long userId, String folder) {
+        this.id = id;
         this.url = url;
         this.publicId = publicId;
         this.format = format;
@@ -18,6 +20,14 @@ public class ImageUploadResponse {
         this.folder = folder;
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getUrl() {
         return url;
     }
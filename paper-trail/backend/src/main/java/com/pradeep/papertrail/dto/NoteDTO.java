@@ -11,6 +11,7 @@ public class NoteDTO {
     private Long userId;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
 
     public NoteDTO() {
     }
@@ -26,6 +27,12 @@ public class NoteDTO {
         this.updatedAt = updatedAt;
     }
 
+    public NoteDTO(Long id, String title, Map<String, Object> content, String createdBy,
+                   Long userId, LocalDateTime createdAt, LocalDateTime updatedAt, Long version) {
+        this(id, title, content, createdBy, userId, createdAt, updatedAt);
+        this.version = version;
+    }
+
     public Long getId() {
         return id;
     }
@@ -81,4 +88,12 @@ public class NoteDTO {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
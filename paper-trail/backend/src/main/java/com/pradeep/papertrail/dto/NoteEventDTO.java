@@ -0,0 +1,89 @@
+package com.pradeep.papertrail.dto;
+
+import java.time.LocalDateTime;
+
+// Payload of one change-feed event; clients refetch what they need rather than receiving content
+public class NoteEventDTO {
+
+    public enum Type {
+        NOTE_CREATED, NOTE_UPDATED, NOTE_SHARED, PERMISSION_REVOKED, NOTE_DELETED
+    }
+
+    private Type type;
+    private Long noteId;
+    private Long version;
+    private String title;
+    // Only set for NOTE_SHARED: READ or EDIT
+    private String permission;
+    private Long actorId;
+    private LocalDateTime at;
+
+    public NoteEventDTO() {
+    }
+
+    public NoteEventDTO(Type type, Long noteId, Long version, String title, String permission, Long actorId) {
+        this.type = type;
+        this.noteId = noteId;
+        this.version = version;
+        this.title = title;
+        this.permission = permission;
+        this.actorId = actorId;
+        this.at = LocalDateTime.now();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(Long noteId) {
+        this.noteId = noteId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getPermission() {
+        return permission;
+    }
+
+    public void setPermission(String permission) {
+        this.permission = permission;
+    }
+
+    public Long getActorId() {
+        return actorId;
+    }
+
+    public void setActorId(Long actorId) {
+        this.actorId = actorId;
+    }
+
+    public LocalDateTime getAt() {
+        return at;
+    }
+
+    public void setAt(LocalDateTime at) {
+        this.at = at;
+    }
+}
@@ -0,0 +1,67 @@
+package com.pradeep.papertrail.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a bulk import; errors are listed per input line, up to a configured maximum
+public class NoteImportResultDTO {
+    private long imported;
+    private long failed;
+    private List<RecordError> errors = new ArrayList<>();
+
+    public NoteImportResultDTO() {
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public List<RecordError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RecordError> errors) {
+        this.errors = errors;
+    }
+
+    public static class RecordError {
+        private long line;
+        private String message;
+
+        public RecordError() {
+        }
+
+        public RecordError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public void setLine(long line) {
+            this.line = line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.pradeep.papertrail.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// A saved version of a note; content is only filled in when a single revision is fetched
+public class NoteRevisionDTO {
+    private Long version;
+    private String title;
+    private boolean snapshot;
+    private Long userId;
+    private LocalDateTime createdAt;
+    private Map<String, Object> content;
+
+    public NoteRevisionDTO() {
+    }
+
+    public NoteRevisionDTO(Long version, String title, boolean snapshot, Long userId, LocalDateTime createdAt) {
+        this.version = version;
+        this.title = title;
+        this.snapshot = snapshot;
+        this.userId = userId;
+        this.createdAt = createdAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Map<String, Object> getContent() {
+        return content;
+    }
+
+    public void setContent(Map<String, Object> content) {
+        this.content = content;
+    }
+}
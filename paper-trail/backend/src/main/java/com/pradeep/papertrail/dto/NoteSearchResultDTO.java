@@ -0,0 +1,116 @@
+package com.pradeep.papertrail.dto;
+
+import java.time.LocalDateTime;
+
+// One full-text search hit: the note summary plus its rank and highlighted fragments
+public class NoteSearchResultDTO {
+    private Long id;
+    private String title;
+    private String createdBy;
+    private Long userId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private Long version;
+    private Float rank;
+    // HTML-escaped fragments with matches wrapped in <mark></mark>
+    private String titleHighlight;
+    private String contentHighlight;
+
+    public NoteSearchResultDTO() {
+    }
+
+    public NoteSearchResultDTO(Long id, String title, String createdBy, Long userId, LocalDateTime createdAt,
+                               LocalDateTime updatedAt, Long version, Float rank,
+                               String titleHighlight, String contentHighlight) {
+        this.id = id;
+        this.title = title;
+        this.createdBy = createdBy;
+        this.userId = userId;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.version = version;
+        this.rank = rank;
+        this.titleHighlight = titleHighlight;
+        this.contentHighlight = contentHighlight;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Float getRank() {
+        return rank;
+    }
+
+    public void setRank(Float rank) {
+        this.rank = rank;
+    }
+
+    public String getTitleHighlight() {
+        return titleHighlight;
+    }
+
+    public void setTitleHighlight(String titleHighlight) {
+        this.titleHighlight = titleHighlight;
+    }
+
+    public String getContentHighlight() {
+        return contentHighlight;
+    }
+
+    public void setContentHighlight(String contentHighlight) {
+        this.contentHighlight = contentHighlight;
+    }
+}
@@ -0,0 +1,115 @@
+package com.pradeep.papertrail.dto;
+
+import java.time.LocalDateTime;
+
+// Lightweight list view of a note: everything except the jsonb content
+public class NoteSummaryDTO {
+    private Long id;
+    private String title;
+    private String createdBy;
+    private Long userId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private Long version;
+    private String snippet;
+    // Only set for notes shared with the caller: READ or EDIT
+    private String permission;
+
+    public NoteSummaryDTO() {
+    }
+
+    public NoteSummaryDTO(Long id, String title, String createdBy, Long userId,
+                          LocalDateTime createdAt, LocalDateTime updatedAt, Long version) {
+        this(id, title, createdBy, userId, createdAt, updatedAt, version, null);
+    }
+
+    public NoteSummaryDTO(Long id, String title, String createdBy, Long userId,
+                          LocalDateTime createdAt, LocalDateTime updatedAt, Long version, String snippet) {
+        this.id = id;
+        this.title = title;
+        this.createdBy = createdBy;
+        this.userId = userId;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.version = version;
+        this.snippet = snippet;
+    }
+
+    public NoteSummaryDTO(Long id, String title, String createdBy, Long userId, LocalDateTime createdAt,
+                          LocalDateTime updatedAt, Long version, String snippet, String permission) {
+        this(id, title, createdBy, userId, createdAt, updatedAt, version, snippet);
+        this.permission = permission;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+
+    public String getPermission() {
+        return permission;
+    }
+
+    public void setPermission(String permission) {
+        this.permission = permission;
+    }
+}
@@ -0,0 +1,58 @@
+package com.pradeep.papertrail.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * A JSON value kept as the text the database returned, written into responses verbatim.
+ * Skips parsing jsonb into a tree of maps and serializing that tree again, which dominates reads of
+ * large notes. The text must already be valid JSON (jsonb output always is).
+ */
+@JsonSerialize(using = RawJson.Serializer.class)
+public final class RawJson {
+
+    private final String json;
+
+    private RawJson(String json) {
+        this.json = json;
+    }
+
+    public static RawJson of(String json) {
+        return json != null ? new RawJson(json) : null;
+    }
+
+    public String getJson() {
+        return json;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RawJson other && json.equals(other.json);
+    }
+
+    @Override
+    public int hashCode() {
+        return json.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+
+    static final class Serializer extends StdSerializer<RawJson> {
+
+        Serializer() {
+            super(RawJson.class);
+        }
+
+        @Override
+        public void serialize(RawJson value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeRawValue(value.json);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.pradeep.papertrail.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class MetricsConfig {
+
+    // Wraps the pool so every statement is counted against the request issuing it.
+    // Static: post-processors are created before the rest of this configuration.
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof StatementCountingDataSource)
+                        ? new StatementCountingDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+
+    // Ahead of Spring Security, so statements run while authenticating are counted too
+    @Bean
+    public FilterRegistrationBean<SqlRequestMetricsFilter> sqlRequestMetricsFilter(
+            MeterRegistry meterRegistry,
+            @Value("${papertrail.sql.guard:off}") SqlRequestMetricsFilter.Guard guard,
+            @Value("${papertrail.sql.max-statements-per-request:50}") int limit) {
+        FilterRegistrationBean<SqlRequestMetricsFilter> registration =
+                new FilterRegistrationBean<>(new SqlRequestMetricsFilter(meterRegistry, guard, limit));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Bean
+    public ServerRequestObservationConvention handlerObservationConvention() {
+        return new HandlerObservationConvention();
+    }
+}
@@ -0,0 +1,84 @@
+package com.pradeep.papertrail.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SQL statements issued on the current request thread, bound by {@link SqlRequestMetricsFilter}.
+ * Work handed to other threads (async uploads, exports, the event fan-out) is not attributed to the request.
+ */
+final class RequestStatements {
+
+    // Distinct statements remembered for the guard's report; an N+1 repeats one text, so a few suffice
+    private static final int MAX_TRACKED_SQL = 100;
+    private static final ThreadLocal<RequestStatements> CURRENT = new ThreadLocal<>();
+
+    private final int limit;
+    private final boolean failOverLimit;
+    private final Map<String, Integer> bySql;
+    private int count;
+    private long nanos;
+
+    private RequestStatements(int limit, boolean failOverLimit) {
+        this.limit = limit;
+        this.failOverLimit = failOverLimit;
+        this.bySql = limit > 0 ? new HashMap<>() : null;
+    }
+
+    /**
+     * @param limit Statements allowed before the guard reports the request; 0 for no guard
+     * @param failOverLimit Throw from the statement that goes over the limit instead of only reporting
+     */
+    static RequestStatements bind(int limit, boolean failOverLimit) {
+        RequestStatements statements = new RequestStatements(limit, failOverLimit);
+        CURRENT.set(statements);
+        return statements;
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    static RequestStatements current() {
+        return CURRENT.get();
+    }
+
+    void executing(String sql) {
+        count++;
+        if (bySql != null && sql != null && (bySql.size() < MAX_TRACKED_SQL || bySql.containsKey(sql))) {
+            bySql.merge(sql, 1, Integer::sum);
+        }
+        // Only the statement crossing the limit fails, so error handling and rollback still get through
+        if (failOverLimit && count == limit + 1) {
+            throw new IllegalStateException("Request issued more than " + limit + " SQL statements; "
+                    + mostRepeated());
+        }
+    }
+
+    void executed(long elapsedNanos) {
+        nanos += elapsedNanos;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long nanos() {
+        return nanos;
+    }
+
+    boolean overLimit() {
+        return limit > 0 && count > limit;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    String mostRepeated() {
+        return bySql.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(e -> "most repeated (" + e.getValue() + "x): " + e.getKey())
+                .orElse("no statement text recorded");
+    }
+}
@@ -0,0 +1,71 @@
+package com.pradeep.papertrail.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how many SQL statements each request issued and how long they took, per endpoint
+ * (papertrail.sql.statements, papertrail.sql.time), and applies the statement guard: a request issuing
+ * more than papertrail.sql.max-statements-per-request is logged, or failed in fail mode.
+ */
+class SqlRequestMetricsFilter extends OncePerRequestFilter {
+
+    enum Guard { OFF, LOG, FAIL }
+
+    private static final Logger log = LoggerFactory.getLogger(SqlRequestMetricsFilter.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int limit;
+    private final Guard guard;
+
+    SqlRequestMetricsFilter(MeterRegistry meterRegistry, Guard guard, int limit) {
+        this.meterRegistry = meterRegistry;
+        this.guard = guard;
+        this.limit = guard == Guard.OFF ? 0 : limit;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestStatements statements = RequestStatements.bind(limit, guard == Guard.FAIL);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestStatements.unbind();
+            record(request, statements);
+        }
+    }
+
+    private void record(HttpServletRequest request, RequestStatements statements) {
+        // Same tags as http.server.requests; the pattern is only known once a handler was matched
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("papertrail.sql.statements")
+                .description("SQL statements issued per request")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry)
+                .record(statements.count());
+        Timer.builder("papertrail.sql.time")
+                .description("Time spent executing SQL per request")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry)
+                .record(statements.nanos(), TimeUnit.NANOSECONDS);
+
+        if (statements.overLimit()) {
+            log.warn("{} {} issued {} SQL statements (limit {}); {}", request.getMethod(), uri,
+                    statements.count(), statements.limit(), statements.mostRepeated());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.pradeep.papertrail.model;
+
+// Effective access a user has on a note, ordered from weakest to strongest
+public enum AccessLevel {
+    NONE, READ, EDIT, OWNER;
+
+    public boolean canRead() {
+        return this != NONE;
+    }
+
+    public boolean canEdit() {
+        return this == EDIT || this == OWNER;
+    }
+
+    public boolean isOwner() {
+        return this == OWNER;
+    }
+}
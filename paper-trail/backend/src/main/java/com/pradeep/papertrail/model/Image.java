@@ -0,0 +1,144 @@
+package com.pradeep.papertrail.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An uploaded image, stored once per user and content hash.
+ * The id is random so /api/images/{id} links cannot be enumerated.
+ */
+@Entity
+@Table(name = "images",
+        uniqueConstraints = @UniqueConstraint(name = "uk_images_user_sha256", columnNames = {"user_id", "sha256"}),
+        indexes = {
+                @Index(name = "idx_images_public_id", columnList = "public_id"),
+                @Index(name = "idx_images_unreferenced", columnList = "ref_count, unreferenced_since")
+        })
+public class Image {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Hex SHA-256 of the content, the dedup key
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    // Key in the storage backend, e.g. papertrail/user_1/<hash> or a Cloudinary public id
+    @Column(name = "public_id", nullable = false)
+    private String publicId;
+
+    // Backend URL (Cloudinary); null when the file is served by this application
+    @Column(length = 1024)
+    private String url;
+
+    private String format;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Notes whose content references the image; maintained by the note_image_refs triggers (schema-postgresql.sql)
+    @ColumnDefault("0")
+    @Column(name = "ref_count", nullable = false, insertable = false, updatable = false)
+    private int refCount;
+
+    // Start of the garbage collection grace period: upload time, or when the last reference went away; null while referenced
+    @Column(name = "unreferenced_since")
+    private LocalDateTime unreferencedSince;
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getPublicId() {
+        return publicId;
+    }
+
+    public void setPublicId(String publicId) {
+        this.publicId = publicId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public LocalDateTime getUnreferencedSince() {
+        return unreferencedSince;
+    }
+
+    public void setUnreferencedSince(LocalDateTime unreferencedSince) {
+        this.unreferencedSince = unreferencedSince;
+    }
+}
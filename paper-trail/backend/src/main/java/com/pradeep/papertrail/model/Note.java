@@ -11,11 +11,19 @@ import java.util.List;
 import java.util.Map;
 
 @Entity
+@Table(indexes = {
+        // Backs the keyset pagination of /notes/my
+        @Index(name = "idx_note_user_updated", columnList = "user_id, updated_at, id")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Note {
 
+    public static final int SNIPPET_LENGTH = 200;
+
+    // Pooled sequence rather than IDENTITY: ids are known before the INSERT, so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_seq")
+    @SequenceGenerator(name = "note_seq", sequenceName = "note_seq", allocationSize = 50)
     private Long id;
 
     private String title;
@@ -27,6 +35,10 @@ public class Note {
     // Snapshot of creator's name (denormalized field for display)
     private String createdBy;
 
+    // Plain-text preview of the first text block, kept so list views never load content
+    @Column(length = SNIPPET_LENGTH)
+    private String snippet;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonIgnore   // Don't serialize whole user to avoid cycles
@@ -40,15 +52,45 @@ public class Note {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Optimistic lock, also exposed to clients as the note's ETag
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
-        updatedAt = createdAt;
+        // Imported notes keep their original timestamps
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (updatedAt == null) {
+            updatedAt = createdAt;
+        }
+        snippet = extractSnippet(content);
     }
 
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        snippet = extractSnippet(content);
+    }
+
+    // Editor.js stores paragraphs as {"blocks": [{"data": {"text": "..."}}]}; use the first one with text
+    static String extractSnippet(Map<String, Object> content) {
+        if (content == null || !(content.get("blocks") instanceof List<?> blocks)) {
+            return null;
+        }
+        for (Object block : blocks) {
+            if (block instanceof Map<?, ?> blockMap
+                    && blockMap.get("data") instanceof Map<?, ?> data
+                    && data.get("text") instanceof String text) {
+                String plain = text.replaceAll("<[^>]*>", "").replace("&nbsp;", " ").trim();
+                if (!plain.isEmpty()) {
+                    return plain.length() > SNIPPET_LENGTH ? plain.substring(0, SNIPPET_LENGTH) : plain;
+                }
+            }
+        }
+        return null;
     }
 
     public Note() {}
@@ -85,6 +127,14 @@ public class Note {
         this.createdBy = createdBy;
     }
 
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+
     public User getUser() {
         return user;
     }
@@ -116,4 +166,12 @@ public class Note {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
-}
\ No newline at end of file
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -3,13 +3,23 @@ package com.pradeep.papertrail.model;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
-@Table(name = "note_permissions")
+@Table(name = "note_permissions", indexes = {
+        @Index(name = "idx_note_permissions_user", columnList = "user_id")
+})
+// Cached entries keep note and user as ids, so both stay lazy proxies when read from the cache.
+// Most writes are SQL in NoteSharingService, which evicts the rows it changes.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = NotePermission.CACHE_REGION)
 public class NotePermission {
 
+    public static final String CACHE_REGION = "notePermissions";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_permissions_seq")
+    @SequenceGenerator(name = "note_permissions_seq", sequenceName = "note_permissions_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,39 @@
+package com.pradeep.papertrail.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * An access token revoked before its expiry (logout, a revoked refresh token family).
+ * Rows are dropped once the token would have expired anyway, so the table stays small enough for every
+ * node to hold in memory; see TokenDenylist. Written and read with plain SQL; the entity defines the table.
+ */
+@Entity
+@Table(name = "revoked_tokens", indexes = @Index(name = "idx_revoked_tokens_expires", columnList = "expires_at"))
+public class RevokedToken {
+
+    // The token's jti
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,44 @@
+package com.pradeep.papertrail.repository;
+
+import com.pradeep.papertrail.model.Image;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface ImageRepository extends JpaRepository<Image, UUID> {
+
+    Optional<Image> findByUserIdAndSha256(Long userId, String sha256);
+
+    Optional<Image> findFirstByPublicId(String publicId);
+
+    // 0 if the user has no image with this public id
+    @Transactional
+    @Modifying
+    @Query("delete from Image i where i.userId = :userId and i.publicId = :publicId")
+    int deleteByUserIdAndPublicId(@Param("userId") Long userId, @Param("publicId") String publicId);
+
+    // Unreferenced images past their grace period, oldest first. Locked with SKIP LOCKED (timeout -2),
+    // so sweeps on several nodes take disjoint batches.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select i from Image i where i.refCount = 0 and i.unreferencedSince < :cutoff order by i.unreferencedSince")
+    List<Image> findCollectable(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    // A deduplicated re-upload of an unreferenced image starts its grace period over; 0 if it was collected meanwhile
+    @Transactional
+    @Modifying
+    @Query("update Image i set i.unreferencedSince = :now where i.id = :id and i.refCount = 0")
+    int restartGracePeriod(@Param("id") UUID id, @Param("now") LocalDateTime now);
+}
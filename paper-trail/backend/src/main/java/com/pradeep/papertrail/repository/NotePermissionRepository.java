@@ -3,12 +3,22 @@ package com.pradeep.papertrail.repository;
 import com.pradeep.papertrail.model.Note;
 import com.pradeep.papertrail.model.NotePermission;
 import com.pradeep.papertrail.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface NotePermissionRepository extends JpaRepository<NotePermission, Long> {
+
+    // Query cache region of findUserIdsByNoteId, emptied by NoteSharingService after each share / revoke
+    String AUDIENCE_CACHE_REGION = "noteAudience";
+
     Optional<NotePermission> findByNoteAndUser(Note note, User user);
 
     // Get all permissions for a user with a specific type
@@ -18,8 +28,17 @@ public interface NotePermissionRepository extends JpaRepository<NotePermission,
     // Check if a permission exists for a note and user
     boolean existsByNoteAndUserAndPermission(Note note, User user, NotePermission.Permission permission);
 
-    // Delete permission by note id and user id
+    // Delete permission by note id and user id (derived deletes need their own transaction)
+    @Transactional
     void deleteByNoteIdAndUserId(Long noteId, Long userId);
 
+    // Everyone a note is shared with; looked up for every change-feed event, so cached
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = AUDIENCE_CACHE_REGION)
+    })
+    @Query("select distinct p.user.id from NotePermission p where p.note.id = :noteId")
+    List<Long> findUserIdsByNoteId(@Param("noteId") Long noteId);
+
 }
 
@@ -3,11 +3,40 @@ package com.pradeep.papertrail.repository;
 import com.pradeep.papertrail.model.Note;
 import com.pradeep.papertrail.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface NoteRepository extends JpaRepository<Note, Long> {
+public interface NoteRepository extends JpaRepository<Note, Long>, NoteRepositoryCustom {
     List<Note> findByUser(User user);
+
+    // Current version of a note, used to answer conditional requests without loading content
+    @Query("select n.version from Note n where n.id = :noteId")
+    Optional<Long> findVersionById(@Param("noteId") Long noteId);
+
+    @Query("select n.user.id from Note n where n.id = :noteId")
+    Optional<Long> findOwnerIdById(@Param("noteId") Long noteId);
+
+    // Which of the given notes a user owns, to authorize bulk sharing in one statement
+    @Query("select n.id from Note n where n.id in :noteIds and n.user.id = :userId")
+    List<Long> findOwnedIds(@Param("noteIds") Collection<Long> noteIds, @Param("userId") Long userId);
+
+    // Effective access (OWNER, EDIT, READ or NONE) of a user on a note in a single statement; empty if no such note
+    @Query("""
+            select case
+                when n.user.id = :userId then 'OWNER'
+                when exists (select p.id from NotePermission p where p.note.id = n.id and p.user.id = :userId
+                             and p.permission = com.pradeep.papertrail.model.NotePermission.Permission.EDIT) then 'EDIT'
+                when exists (select p.id from NotePermission p where p.note.id = n.id and p.user.id = :userId
+                             and p.permission = com.pradeep.papertrail.model.NotePermission.Permission.READ) then 'READ'
+                else 'NONE'
+            end
+            from Note n where n.id = :noteId
+            """)
+    Optional<String> findAccessLevel(@Param("noteId") Long noteId, @Param("userId") Long userId);
 }
@@ -0,0 +1,27 @@
+package com.pradeep.papertrail.repository;
+
+import com.pradeep.papertrail.dto.NoteCursor;
+import com.pradeep.papertrail.dto.NoteSearchResultDTO;
+import com.pradeep.papertrail.dto.NoteSummaryDTO;
+import com.pradeep.papertrail.dto.RawNoteDTO;
+
+import java.util.List;
+import java.util.Optional;
+
+// Keyset-paginated summary queries, which never select Note.content, and a raw-content read
+public interface NoteRepositoryCustom {
+
+    // Notes owned by the user, ordered by (updatedAt, id) starting after the cursor
+    List<NoteSummaryDTO> findOwnedSummaries(Long userId, NoteCursor after, boolean ascending,
+                                            boolean withSnippet, int limit);
+
+    // Notes shared with the user, one row per note carrying the strongest permission granted
+    List<NoteSummaryDTO> findSharedSummaries(Long userId, NoteCursor after, boolean ascending,
+                                             boolean withSnippet, int limit);
+
+    // Full-text search over notes the user owns or has been granted, best match first (PostgreSQL only)
+    List<NoteSearchResultDTO> search(Long userId, String query, int offset, int limit);
+
+    // One note with its content as jsonb text, never parsed (PostgreSQL only)
+    Optional<RawNoteDTO> findRawById(Long noteId);
+}
@@ -0,0 +1,157 @@
+package com.pradeep.papertrail.repository;
+
+import com.pradeep.papertrail.dto.NoteCursor;
+import com.pradeep.papertrail.dto.NoteSearchResultDTO;
+import com.pradeep.papertrail.dto.NoteSummaryDTO;
+import com.pradeep.papertrail.dto.RawJson;
+import com.pradeep.papertrail.dto.RawNoteDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+class NoteRepositoryImpl implements NoteRepositoryCustom {
+
+    // Same JSON path as the search_vector column in schema-postgresql.sql
+    private static final String TEXT_NODES = "jsonb_path_query_array(n.content, "
+            + "'strict $.** ? (@.text.type() == \"string\").text')";
+
+    // Headlines are returned as HTML, so only StartSel/StopSel may add markup: titles are plain text and
+    // escaped in full; Editor.js text is HTML, so tags are stripped and entities it already has are kept
+    private static final String TITLE_TEXT = "replace(replace(replace(coalesce(n.title, ''), '&', '&amp;'), "
+            + "'<', '&lt;'), '>', '&gt;')";
+    private static final String CONTENT_TEXT = "regexp_replace(replace(replace("
+            + "regexp_replace(t #>> '{}', '<[^>]*>', '', 'g'), '<', '&lt;'), '>', '&gt;'), "
+            + "'&(?!([a-zA-Z][a-zA-Z0-9]*|#[0-9]+|#[xX][0-9a-fA-F]+);)', '&amp;', 'g')";
+
+    // Visibility is an id set (owned union granted) rather than an OR, so the planner can start from the
+    // user's notes when a common term would match most of the GIN index; headlines are only built for the page
+    private static final String SEARCH_SQL = """
+            with q as (select websearch_to_tsquery('english', :query) as query),
+            hits as (
+                select n.id, ts_rank_cd(n.search_vector, q.query) as rank
+                from note n, q
+                where n.search_vector @@ q.query
+                  and n.id in (select o.id from note o where o.user_id = :userId
+                               union
+                               select p.note_id from note_permissions p where p.user_id = :userId)
+                order by rank desc, n.id desc
+                limit :limit offset :offset)
+            select n.id, n.title, n.created_by, n.user_id, n.created_at, n.updated_at, n.version, h.rank,
+                   ts_headline('english', %s, q.query,
+                               'StartSel=<mark>, StopSel=</mark>, HighlightAll=true'),
+                   ts_headline('english',
+                               coalesce((select string_agg(%s, ' ') from jsonb_array_elements(%s) t), ''),
+                               q.query, 'StartSel=<mark>, StopSel=</mark>, MaxFragments=2, MaxWords=20, MinWords=5')
+            from hits h join note n on n.id = h.id cross join q
+            order by h.rank desc, n.id desc""".formatted(TITLE_TEXT, CONTENT_TEXT, TEXT_NODES);
+
+    private static final String RAW_NOTE_SQL = """
+            select n.id, n.title, cast(n.content as text), n.created_by, n.user_id, n.created_at, n.updated_at, n.version
+            from note n where n.id = :noteId""";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<NoteSummaryDTO> findOwnedSummaries(Long userId, NoteCursor after, boolean ascending,
+                                                   boolean withSnippet, int limit) {
+        String from = " from Note n where n.user.id = :userId";
+        return summaries("select " + projection(withSnippet) + from, "", after, ascending, userId, limit);
+    }
+
+    @Override
+    public List<NoteSummaryDTO> findSharedSummaries(Long userId, NoteCursor after, boolean ascending,
+                                                    boolean withSnippet, int limit) {
+        // Duplicate grants for the same note collapse in SQL; EDIT wins over READ
+        String select = "select new com.pradeep.papertrail.dto.NoteSummaryDTO(n.id, n.title, n.createdBy, n.user.id, "
+                + "n.createdAt, n.updatedAt, n.version, " + (withSnippet ? "n.snippet" : "cast(null as String)") + ", "
+                + "case when max(case when p.permission = com.pradeep.papertrail.model.NotePermission.Permission.EDIT "
+                + "then 1 else 0 end) = 1 then 'EDIT' else 'READ' end)"
+                + " from NotePermission p join p.note n where p.user.id = :userId";
+        String groupBy = " group by n.id, n.title, n.createdBy, n.user.id, n.createdAt, n.updatedAt, n.version"
+                + (withSnippet ? ", n.snippet" : "");
+        return summaries(select, groupBy, after, ascending, userId, limit);
+    }
+
+    @Override
+    public List<NoteSearchResultDTO> search(Long userId, String query, int offset, int limit) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(SEARCH_SQL)
+                .setParameter("query", query)
+                .setParameter("userId", userId)
+                .setParameter("limit", limit)
+                .setParameter("offset", offset)
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> new NoteSearchResultDTO(
+                        ((Number) row[0]).longValue(),
+                        (String) row[1],
+                        (String) row[2],
+                        row[3] != null ? ((Number) row[3]).longValue() : null,
+                        toLocalDateTime(row[4]),
+                        toLocalDateTime(row[5]),
+                        row[6] != null ? ((Number) row[6]).longValue() : null,
+                        ((Number) row[7]).floatValue(),
+                        (String) row[8],
+                        (String) row[9]))
+                .toList();
+    }
+
+    @Override
+    public Optional<RawNoteDTO> findRawById(Long noteId) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(RAW_NOTE_SQL)
+                .setParameter("noteId", noteId)
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> new RawNoteDTO(
+                        ((Number) row[0]).longValue(),
+                        (String) row[1],
+                        RawJson.of((String) row[2]),
+                        (String) row[3],
+                        row[4] != null ? ((Number) row[4]).longValue() : null,
+                        toLocalDateTime(row[5]),
+                        toLocalDateTime(row[6]),
+                        row[7] != null ? ((Number) row[7]).longValue() : null))
+                .findFirst();
+    }
+
+    private List<NoteSummaryDTO> summaries(String selectFrom, String groupBy, NoteCursor after, boolean ascending,
+                                           Long userId, int limit) {
+        String comparison = ascending ? ">" : "<";
+        String direction = ascending ? "asc" : "desc";
+
+        StringBuilder jpql = new StringBuilder(selectFrom);
+        if (after != null) {
+            jpql.append(" and (n.updatedAt ").append(comparison).append(" :cursorUpdatedAt")
+                    .append(" or (n.updatedAt = :cursorUpdatedAt and n.id ").append(comparison).append(" :cursorId))");
+        }
+        jpql.append(groupBy);
+        jpql.append(" order by n.updatedAt ").append(direction).append(", n.id ").append(direction);
+
+        TypedQuery<NoteSummaryDTO> query = entityManager.createQuery(jpql.toString(), NoteSummaryDTO.class)
+                .setParameter("userId", userId)
+                .setMaxResults(limit);
+        if (after != null) {
+            query.setParameter("cursorUpdatedAt", after.getUpdatedAt())
+                    .setParameter("cursorId", after.getId());
+        }
+        return query.getResultList();
+    }
+
+    private static String projection(boolean withSnippet) {
+        return "new com.pradeep.papertrail.dto.NoteSummaryDTO(n.id, n.title, n.createdBy, n.user.id, "
+                + "n.createdAt, n.updatedAt, n.version" + (withSnippet ? ", n.snippet)" : ")");
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+}
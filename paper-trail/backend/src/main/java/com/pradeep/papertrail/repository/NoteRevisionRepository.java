@@ -0,0 +1,52 @@
+package com.pradeep.papertrail.repository;
+
+import com.pradeep.papertrail.dto.NoteRevisionDTO;
+import com.pradeep.papertrail.model.NoteRevision;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface NoteRevisionRepository extends JpaRepository<NoteRevision, Long> {
+
+    boolean existsByNoteIdAndVersion(Long noteId, Long version);
+
+    Optional<NoteRevision> findByNoteIdAndVersion(Long noteId, Long version);
+
+    // Revision metadata, newest first, below the given version (never loads the stored data)
+    @Query("""
+            select new com.pradeep.papertrail.dto.NoteRevisionDTO(r.version, r.title, r.snapshot, r.userId, r.createdAt)
+            from NoteRevision r where r.note.id = :noteId and r.version < :before
+            order by r.version desc
+            """)
+    List<NoteRevisionDTO> findSummaries(@Param("noteId") Long noteId, @Param("before") Long before, Limit limit);
+
+    // The nearest snapshot at or below the version followed by every delta up to it
+    @Query("""
+            select r from NoteRevision r
+            where r.note.id = :noteId and r.version <= :version
+              and r.version >= (select max(s.version) from NoteRevision s
+                                where s.note.id = :noteId and s.snapshot = true and s.version <= :version)
+            order by r.version
+            """)
+    List<NoteRevision> findChain(@Param("noteId") Long noteId, @Param("version") Long version);
+
+    // Notes with more than one revision older than the cutoff, i.e. something to squash
+    @Query("""
+            select r.note.id from NoteRevision r where r.createdAt < :cutoff
+            group by r.note.id having count(r) > 1
+            """)
+    List<Long> findCompactableNoteIds(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @Query("select max(r.version) from NoteRevision r where r.note.id = :noteId and r.createdAt < :cutoff")
+    Optional<Long> findLatestVersionBefore(@Param("noteId") Long noteId, @Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("delete from NoteRevision r where r.note.id = :noteId and r.version < :version")
+    int deleteOlderThan(@Param("noteId") Long noteId, @Param("version") Long version);
+}
@@ -0,0 +1,123 @@
+package com.pradeep.papertrail.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Signs and verifies HS256 JSON Web Tokens carrying a user snapshot, so a request can be authenticated
+ * without a database lookup.
+ * Tokens are signed with the first key and accepted under any of them, which lets a new key roll out
+ * before the old one is dropped. Only the exact header this class writes is accepted: the algorithm is
+ * never taken from the token.
+ */
+public class AccessTokenCodec {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final String HEADER =
+            ENCODER.encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    private final ObjectMapper objectMapper;
+    private final String issuer;
+    private final Duration clockSkew;
+    private final List<SecretKeySpec> keys = new ArrayList<>();
+
+    public AccessTokenCodec(ObjectMapper objectMapper, String issuer, Duration clockSkew, List<byte[]> keys) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("At least one signing key is required");
+        }
+        this.objectMapper = objectMapper;
+        this.issuer = issuer;
+        this.clockSkew = clockSkew;
+        for (byte[] key : keys) {
+            if (key.length < 32) {
+                throw new IllegalArgumentException("Signing keys must be at least 256 bits");
+            }
+            this.keys.add(new SecretKeySpec(key, ALGORITHM));
+        }
+    }
+
+    public String encode(Claims claims) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("iss", issuer);
+        payload.put("sub", String.valueOf(claims.userId()));
+        payload.put("jti", claims.id());
+        payload.put("sid", claims.sessionId());
+        payload.put("email", claims.email());
+        payload.put("name", claims.name());
+        payload.put("iat", claims.issuedAt().getEpochSecond());
+        payload.put("exp", claims.expiresAt().getEpochSecond());
+        try {
+            String signingInput = HEADER + "." + ENCODER.encodeToString(objectMapper.writeValueAsBytes(payload));
+            return signingInput + "." + ENCODER.encodeToString(sign(keys.get(0), signingInput));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to sign access token", e);
+        }
+    }
+
+    /**
+     * Verify a token's signature, issuer and expiry
+     * @param token The compact token
+     * @param now Current time
+     * @return The claims, or empty if the token is malformed, forged or expired
+     */
+    public Optional<Claims> decode(String token, Instant now) {
+        int first = token.indexOf('.');
+        int last = token.lastIndexOf('.');
+        if (first < 0 || first == last || !HEADER.equals(token.substring(0, first))) {
+            return Optional.empty();
+        }
+        try {
+            String signingInput = token.substring(0, last);
+            byte[] signature = DECODER.decode(token.substring(last + 1));
+            boolean valid = false;
+            for (SecretKeySpec key : keys) {
+                valid |= MessageDigest.isEqual(sign(key, signingInput), signature);
+            }
+            if (!valid) {
+                return Optional.empty();
+            }
+
+            JsonNode payload = objectMapper.readTree(DECODER.decode(token.substring(first + 1, last)));
+            Instant expiresAt = Instant.ofEpochSecond(payload.path("exp").asLong());
+            if (!issuer.equals(payload.path("iss").asText()) || !now.isBefore(expiresAt.plus(clockSkew))) {
+                return Optional.empty();
+            }
+            return Optional.of(new Claims(payload.path("jti").asText(), payload.path("sid").asText(),
+                    Long.valueOf(payload.path("sub").asText()), payload.path("email").asText(),
+                    payload.path("name").asText(), Instant.ofEpochSecond(payload.path("iat").asLong()), expiresAt));
+        } catch (Exception e) {
+            // Bad base64, bad JSON or a non-numeric subject
+            return Optional.empty();
+        }
+    }
+
+    private static byte[] sign(SecretKeySpec key, String signingInput) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(key);
+        return mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @param id Token id (jti), what the denylist refers to
+     * @param sessionId Refresh token family the token was issued from (sid)
+     */
+    public record Claims(String id, String sessionId, Long userId, String email, String name,
+                         Instant issuedAt, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.pradeep.papertrail.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-window limits on password checks, applied before any hashing work is queued:
+ * attempts per client IP (login and registration) and failed logins per account.
+ * Node-local; behind a proxy set server.forward-headers-strategy so the client IP is the real one.
+ */
+@Component
+public class LoginThrottle {
+
+    private final Cache<String, Window> attemptsByIp;
+    private final Cache<String, Window> failuresByAccount;
+    private final int ipAttempts;
+    private final int accountFailures;
+    private final Duration ipWindow;
+    private final Duration accountWindow;
+    private final Counter rejectedIp;
+    private final Counter rejectedAccount;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${papertrail.auth.throttle.ip-attempts:30}") int ipAttempts,
+                         @Value("${papertrail.auth.throttle.ip-window:1m}") Duration ipWindow,
+                         @Value("${papertrail.auth.throttle.account-failures:5}") int accountFailures,
+                         @Value("${papertrail.auth.throttle.account-window:15m}") Duration accountWindow,
+                         @Value("${papertrail.auth.throttle.max-tracked:100000}") long maxTracked) {
+        this.ipAttempts = ipAttempts;
+        this.accountFailures = accountFailures;
+        this.ipWindow = ipWindow;
+        this.accountWindow = accountWindow;
+        // Counters are bumped in place, so an entry expires a full window after its first attempt
+        this.attemptsByIp = Caffeine.newBuilder().maximumSize(maxTracked).expireAfterWrite(ipWindow).build();
+        this.failuresByAccount = Caffeine.newBuilder().maximumSize(maxTracked).expireAfterWrite(accountWindow).build();
+        this.rejectedIp = meterRegistry.counter("papertrail.auth.rejected", "reason", "ip");
+        this.rejectedAccount = meterRegistry.counter("papertrail.auth.rejected", "reason", "account");
+    }
+
+    /**
+     * Count an attempt, or refuse it if the IP or the account is over its limit
+     * @param clientIp Remote address of the request
+     * @param account Email being logged in to; null for registration
+     * @throws TooManyAttemptsException if either limit is reached
+     */
+    public void checkAttempt(String clientIp, String account) {
+        // Counted first, so attempts on locked accounts still use up the IP's allowance
+        Window attempts = attemptsByIp.get(clientIp, ip -> new Window(ipWindow));
+        if (attempts.count.incrementAndGet() > ipAttempts) {
+            rejectedIp.increment();
+            throw new TooManyAttemptsException("Too many login attempts, try again later", attempts.remaining());
+        }
+        if (account != null) {
+            Window failures = failuresByAccount.getIfPresent(key(account));
+            if (failures != null && failures.count.get() >= accountFailures) {
+                rejectedAccount.increment();
+                throw new TooManyAttemptsException("Too many failed logins for this account, try again later",
+                        failures.remaining());
+            }
+        }
+    }
+
+    public void recordFailure(String account) {
+        failuresByAccount.get(key(account), a -> new Window(accountWindow)).count.incrementAndGet();
+    }
+
+    public void recordSuccess(String account) {
+        failuresByAccount.invalidate(key(account));
+    }
+
+    private static String key(String account) {
+        return account.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Window {
+        private final AtomicInteger count = new AtomicInteger();
+        private final long endsAt;
+
+        private Window(Duration length) {
+            this.endsAt = System.nanoTime() + length.toNanos();
+        }
+
+        private Duration remaining() {
+            return Duration.ofNanos(Math.max(0, endsAt - System.nanoTime()));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.pradeep.papertrail.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs password checks and hashing on the bounded passwordHashExecutor pool instead of request threads,
+ * so a login storm queues there (and is refused with 503 once the queue is full) while other endpoints
+ * keep their threads. Attempts over the {@link LoginThrottle} limits are refused before any work is queued.
+ */
+@Service
+public class PasswordHashingService {
+
+    private final AuthenticationManager authenticationManager;
+    private final PasswordEncoder passwordEncoder;
+    private final LoginThrottle throttle;
+    private final Executor executor;
+    private final Counter rejectedBusy;
+
+    public PasswordHashingService(AuthenticationManager authenticationManager,
+                                  PasswordEncoder passwordEncoder,
+                                  LoginThrottle throttle,
+                                  @Qualifier("passwordHashExecutor") Executor executor,
+                                  MeterRegistry meterRegistry) {
+        this.authenticationManager = authenticationManager;
+        this.passwordEncoder = passwordEncoder;
+        this.throttle = throttle;
+        this.executor = executor;
+        this.rejectedBusy = meterRegistry.counter("papertrail.auth.rejected", "reason", "busy");
+    }
+
+    /**
+     * Check an email and password. Outdated hashes are upgraded as part of a successful check.
+     * @param clientIp Remote address, for throttling
+     * @return Completes with the authentication, or fails with an AuthenticationException
+     * @throws TooManyAttemptsException if the IP or account is throttled
+     * @throws RejectedExecutionException if the hashing pool is full
+     */
+    public CompletableFuture<Authentication> authenticate(String email, String password, String clientIp) {
+        if (email == null || password == null) {
+            return CompletableFuture.failedFuture(new BadCredentialsException("Bad credentials"));
+        }
+        throttle.checkAttempt(clientIp, email);
+        return submit(() -> {
+            try {
+                Authentication authentication = authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(email, password));
+                throttle.recordSuccess(email);
+                return authentication;
+            } catch (AuthenticationException e) {
+                throttle.recordFailure(email);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Hash a new password
+     * @param clientIp Remote address, for throttling
+     * @throws TooManyAttemptsException if the IP is throttled
+     * @throws RejectedExecutionException if the hashing pool is full
+     */
+    public CompletableFuture<String> encode(String password, String clientIp) {
+        throttle.checkAttempt(clientIp, null);
+        return submit(() -> passwordEncoder.encode(password));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedBusy.increment();
+            throw e;
+        }
+    }
+}
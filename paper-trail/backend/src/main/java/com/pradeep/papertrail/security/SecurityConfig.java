@@ -1,12 +1,24 @@
 package com.pradeep.papertrail.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.header.writers.CacheControlHeadersWriter;
+import org.springframework.security.web.header.writers.DelegatingRequestMatcherHeaderWriter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
 import org.springframework.security.web.session.HttpSessionEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.web.cors.CorsConfiguration;
@@ -19,9 +31,18 @@ import java.util.Arrays;
 public class SecurityConfig {
 
     private final UserDetailsServiceImpl userDetailsService;
+    private final ObjectProvider<TokenService> tokenService;
+    private final boolean tokenMode;
 
-    public SecurityConfig(UserDetailsServiceImpl userDetailsService) {
+    public SecurityConfig(UserDetailsServiceImpl userDetailsService,
+                          ObjectProvider<TokenService> tokenService,
+                          @Value("${papertrail.auth.mode:session}") String authMode) {
+        if (!authMode.equals("session") && !authMode.equals("token")) {
+            throw new IllegalStateException("papertrail.auth.mode must be session or token, not " + authMode);
+        }
         this.userDetailsService = userDetailsService;
+        this.tokenService = tokenService;
+        this.tokenMode = authMode.equals("token");
     }
 
     @Bean
@@ -34,6 +55,47 @@ public class SecurityConfig {
         http
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(csrf -> csrf.disable()) // disable CSRF for API
+                .headers(headers -> headers
+                        // Image downloads set their own long-lived Cache-Control; everything else stays no-store
+                        .cacheControl(cache -> cache.disable())
+                        .addHeaderWriter(new DelegatingRequestMatcherHeaderWriter(
+                                new NegatedRequestMatcher(PathPatternRequestMatcher.withDefaults()
+                                        .matcher(HttpMethod.GET, "/api/images/{id:[0-9a-f-]{36}}")),
+                                new CacheControlHeadersWriter()))
+                )
+                .userDetailsService(userDetailsService);
+
+        if (tokenMode) {
+            configureTokens(http);
+        } else {
+            configureSessions(http);
+        }
+        return http.build();
+    }
+
+    // Stateless: every request carries a signed access token, so any node can serve it
+    private void configureTokens(HttpSecurity http) throws Exception {
+        RequestAttributeSecurityContextRepository contextRepository = new RequestAttributeSecurityContextRepository();
+        http
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/auth/register", "/auth/token", "/auth/token/refresh", "/auth/logout").permitAll()
+                        .anyRequest().authenticated()
+                )
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .securityContext(context -> context.securityContextRepository(contextRepository))
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService.getObject(), contextRepository),
+                        UsernamePasswordAuthenticationFilter.class)
+                // 401 tells the client to refresh its access token
+                .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint((request, response, e) -> {
+                    response.setHeader("WWW-Authenticate", "Bearer");
+                    response.setStatus(HttpStatus.UNAUTHORIZED.value());
+                }))
+                // TokenAuthController handles /auth/logout by revoking the tokens
+                .logout(logout -> logout.disable());
+    }
+
+    private void configureSessions(HttpSecurity http) throws Exception {
+        http
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/register", "/auth/login").permitAll() // public endpoints
                         .requestMatchers("/api/images/**").authenticated() // protect image endpoints
@@ -59,18 +121,16 @@ public class SecurityConfig {
                         .invalidateHttpSession(true)                // invalidate session
                         .deleteCookies("JSESSIONID", "remember-me") // remove cookies
                         .permitAll()
-                )
-                .userDetailsService(userDetailsService);
-
-        return http.build();
+                );
     }
 
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:5173", "http://localhost:3000"));
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Arrays.asList("ETag"));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -78,9 +138,11 @@ public class SecurityConfig {
         return source;
     }
 
+    // Raising the strength upgrades each stored hash at its owner's next login (UserDetailsServiceImpl.updatePassword)
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${papertrail.auth.bcrypt-strength:10}") int strength) {
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(strength), meterRegistry);
     }
 
     @Bean
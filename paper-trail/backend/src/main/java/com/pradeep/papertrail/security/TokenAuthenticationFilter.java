@@ -0,0 +1,65 @@
+package com.pradeep.papertrail.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Authenticates requests carrying an access token in the Authorization header (Bearer scheme).
+ * Resources the browser opens by itself (the event stream, exports, image links, the collaboration socket)
+ * cannot send headers, so GETs to those also accept an access_token query parameter.
+ * Requests without a valid token go on unauthenticated and are answered 401 by the entry point.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+    private static final List<String> QUERY_TOKEN_PATHS = List.of("/notes/events", "/notes/export", "/api/images/", "/ws/notes/");
+
+    private final TokenService tokenService;
+    // Request-scoped, so async and error dispatches of the same request see the authentication too
+    private final SecurityContextRepository securityContextRepository;
+
+    public TokenAuthenticationFilter(TokenService tokenService, SecurityContextRepository securityContextRepository) {
+        this.tokenService = tokenService;
+        this.securityContextRepository = securityContextRepository;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = token(request);
+        if (token != null) {
+            tokenService.authenticate(token).ifPresent(user -> {
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+                SecurityContextHolder.setContext(context);
+                securityContextRepository.saveContext(context, request, response);
+            });
+        }
+        chain.doFilter(request, response);
+    }
+
+    static String token(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return header.substring(BEARER.length()).trim();
+        }
+        if ("GET".equals(request.getMethod())) {
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            if (QUERY_TOKEN_PATHS.stream().anyMatch(path::startsWith)) {
+                return request.getParameter("access_token");
+            }
+        }
+        return null;
+    }
+}
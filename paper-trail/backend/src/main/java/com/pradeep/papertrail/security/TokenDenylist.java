@@ -0,0 +1,85 @@
+package com.pradeep.papertrail.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of access tokens revoked before they expire, checked on every token-authenticated request.
+ * The revoked_tokens table is shared by all nodes; each node keeps the unexpired ids in memory and reloads
+ * them every papertrail.auth.token.denylist-refresh, so lookups never touch the database. A revocation
+ * applies at once on the node that made it and within one refresh interval everywhere else. Ids are kept
+ * for papertrail.auth.token.clock-skew past expiry, as long as AccessTokenCodec still accepts the token.
+ */
+@Service
+@ConditionalOnProperty(name = "papertrail.auth.mode", havingValue = "token")
+public class TokenDenylist {
+
+    private static final String INSERT_SQL = "insert into revoked_tokens (id, expires_at) values (?, ?) on conflict do nothing";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration clockSkew;
+    // jti -> expiry; entries only leave once expired, so a reload can never drop a fresh revocation
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+
+    public TokenDenylist(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                         @Value("${papertrail.auth.token.clock-skew:30s}") Duration clockSkew) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clockSkew = clockSkew;
+        Gauge.builder("papertrail.auth.denylist.size", revoked, Map::size)
+                .description("Revoked access tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return revoked.containsKey(tokenId);
+    }
+
+    /**
+     * Revoke access tokens until they expire. Call inside the transaction that ends the session.
+     * @param tokens Token id (jti) to expiry
+     */
+    public void revoke(Map<String, Instant> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = tokens.entrySet().stream()
+                .map(entry -> new Object[]{entry.getKey(), toLocal(entry.getValue())})
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        revoked.putAll(tokens);
+    }
+
+    // Also runs right at startup, before a token can be checked against an empty list for long
+    @Scheduled(fixedDelayString = "${papertrail.auth.token.denylist-refresh:10s}")
+    public void refresh() {
+        // Tokens are accepted until expiry + clock skew, so their ids must outlive expiry by as much
+        Instant cutoff = Instant.now().minus(clockSkew);
+        jdbcTemplate.update("delete from revoked_tokens where expires_at < ?", toLocal(cutoff));
+        jdbcTemplate.query("select id, expires_at from revoked_tokens", rs -> {
+            revoked.put(rs.getString("id"), toInstant(rs.getTimestamp("expires_at")));
+        });
+        revoked.values().removeIf(expiresAt -> expiresAt.isBefore(cutoff));
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp.toLocalDateTime().atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
@@ -0,0 +1,226 @@
+package com.pradeep.papertrail.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pradeep.papertrail.dto.TokenResponse;
+import com.pradeep.papertrail.model.RefreshToken;
+import com.pradeep.papertrail.model.User;
+import com.pradeep.papertrail.repository.RefreshTokenRepository;
+import com.pradeep.papertrail.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Stateless authentication (papertrail.auth.mode=token).
+ * Logging in issues a short-lived signed access token and a refresh token. Access tokens are checked by
+ * signature and against the in-memory {@link TokenDenylist}, so any node can serve any request without a
+ * session or a database lookup. Refresh tokens are single use: each refresh rotates to a new one, and
+ * replaying a used token revokes the whole login, including the access tokens it issued.
+ */
+@Service
+@ConditionalOnProperty(name = "papertrail.auth.mode", havingValue = "token")
+public class TokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final TokenDenylist denylist;
+    private final AccessTokenCodec codec;
+    private final Duration clockSkew;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+    private final Counter issued;
+    private final Counter refreshed;
+    private final Counter reused;
+    private final Counter rejected;
+
+    public TokenService(RefreshTokenRepository refreshTokenRepository,
+                        UserRepository userRepository,
+                        TokenDenylist denylist,
+                        ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry,
+                        @Value("${papertrail.auth.token.secret:}") String secret,
+                        @Value("${papertrail.auth.token.previous-secret:}") String previousSecret,
+                        @Value("${papertrail.auth.token.issuer:papertrail}") String issuer,
+                        @Value("${papertrail.auth.token.clock-skew:30s}") Duration clockSkew,
+                        @Value("${papertrail.auth.token.access-ttl:15m}") Duration accessTtl,
+                        @Value("${papertrail.auth.token.refresh-ttl:30d}") Duration refreshTtl) {
+        if (secret.isBlank()) {
+            throw new IllegalStateException("papertrail.auth.token.secret must be set when papertrail.auth.mode=token");
+        }
+        List<byte[]> keys = new ArrayList<>();
+        keys.add(Base64.getDecoder().decode(secret));
+        if (!previousSecret.isBlank()) {
+            keys.add(Base64.getDecoder().decode(previousSecret));
+        }
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.denylist = denylist;
+        this.codec = new AccessTokenCodec(objectMapper, issuer, clockSkew, keys);
+        this.clockSkew = clockSkew;
+        this.accessTtl = accessTtl;
+        this.refreshTtl = refreshTtl;
+        this.issued = meterRegistry.counter("papertrail.auth.tokens", "event", "issued");
+        this.refreshed = meterRegistry.counter("papertrail.auth.tokens", "event", "refreshed");
+        this.reused = meterRegistry.counter("papertrail.auth.tokens", "event", "reused");
+        this.rejected = meterRegistry.counter("papertrail.auth.tokens", "event", "rejected");
+    }
+
+    /**
+     * Check an access token, without touching the database
+     * @param accessToken The bearer token
+     * @return The user it was issued to, or empty if it is invalid, expired or revoked
+     */
+    public Optional<UserDetailsImpl> authenticate(String accessToken) {
+        Optional<AccessTokenCodec.Claims> claims = codec.decode(accessToken, Instant.now())
+                .filter(c -> !denylist.isRevoked(c.id()));
+        if (claims.isEmpty()) {
+            rejected.increment();
+        }
+        return claims.map(c -> new UserDetailsImpl(c.userId(), c.name(), c.email()));
+    }
+
+    // Start a new login (refresh token family) for an authenticated user
+    @Transactional
+    public TokenResponse issue(UserDetailsImpl user) {
+        issued.increment();
+        return issue(user, UUID.randomUUID());
+    }
+
+    /**
+     * Exchange a refresh token for a new access and refresh token
+     * @throws BadCredentialsException if the token is unknown, expired, revoked or was already used
+     */
+    // Not rolled back on rejection: revoking the family after a replay must stick
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public TokenResponse refresh(String refreshToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .orElseThrow(TokenService::invalidRefreshToken);
+        LocalDateTime now = LocalDateTime.now();
+        if (current.isRevoked() || !current.getExpiresAt().isAfter(now)) {
+            throw invalidRefreshToken();
+        }
+        if (current.getUsedAt() != null) {
+            reused.increment();
+            log.warn("Refresh token replayed for user {}, revoking the login", current.getUserId());
+            revokeFamily(current.getFamilyId());
+            throw invalidRefreshToken();
+        }
+        Optional<User> user = userRepository.findById(current.getUserId());
+        if (user.isEmpty()) {
+            revokeFamily(current.getFamilyId());
+            throw invalidRefreshToken();
+        }
+
+        current.setUsedAt(now);
+        refreshed.increment();
+        return issue(new UserDetailsImpl(user.get()), current.getFamilyId());
+    }
+
+    /**
+     * End a login: its refresh tokens stop working and its access tokens are denylisted
+     * @param accessToken Bearer token of the login, may be null or expired
+     * @param refreshToken Refresh token of the login, may be null
+     */
+    @Transactional
+    public void revoke(String accessToken, String refreshToken) {
+        if (accessToken != null) {
+            codec.decode(accessToken, Instant.now()).ifPresent(claims -> {
+                denylist.revoke(Map.of(claims.id(), claims.expiresAt()));
+                revokeFamily(UUID.fromString(claims.sessionId()));
+            });
+        }
+        if (refreshToken != null) {
+            refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                    .ifPresent(token -> revokeFamily(token.getFamilyId()));
+        }
+    }
+
+    // Used refresh tokens stay until they expire so that replays are recognised
+    @Scheduled(fixedDelayString = "${papertrail.auth.token.purge-interval:1h}",
+            initialDelayString = "${papertrail.auth.token.purge-interval:1h}")
+    public void purgeExpired() {
+        int purged = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private TokenResponse issue(UserDetailsImpl user, UUID familyId) {
+        Instant now = Instant.now();
+        Instant accessExpiresAt = now.plus(accessTtl);
+        String tokenId = UUID.randomUUID().toString();
+        String accessToken = codec.encode(new AccessTokenCodec.Claims(tokenId, familyId.toString(), user.getId(),
+                user.getEmail(), user.getName(), now, accessExpiresAt));
+
+        byte[] secret = new byte[32];
+        RANDOM.nextBytes(secret);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+
+        RefreshToken row = new RefreshToken();
+        row.setTokenHash(hash(refreshToken));
+        row.setFamilyId(familyId);
+        row.setUserId(user.getId());
+        row.setAccessTokenId(tokenId);
+        row.setAccessExpiresAt(toLocal(accessExpiresAt));
+        row.setCreatedAt(toLocal(now));
+        row.setExpiresAt(toLocal(now.plus(refreshTtl)));
+        refreshTokenRepository.save(row);
+
+        return new TokenResponse(accessToken, refreshToken, accessTtl.toSeconds());
+    }
+
+    private void revokeFamily(UUID familyId) {
+        Map<String, Instant> live = new HashMap<>();
+        // The codec still accepts access tokens up to clockSkew past their expiry
+        LocalDateTime cutoff = LocalDateTime.now().minus(clockSkew);
+        for (RefreshToken token : refreshTokenRepository.findLiveAccess(familyId, cutoff)) {
+            live.put(token.getAccessTokenId(), token.getAccessExpiresAt().atZone(ZoneId.systemDefault()).toInstant());
+        }
+        refreshTokenRepository.revokeFamily(familyId);
+        denylist.revoke(live);
+    }
+
+    private static String hash(String refreshToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(refreshToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    private static BadCredentialsException invalidRefreshToken() {
+        return new BadCredentialsException("Invalid refresh token");
+    }
+}
@@ -0,0 +1,18 @@
+package com.pradeep.papertrail.security;
+
+import java.time.Duration;
+
+// Thrown when a client IP or an account is over its login attempt limit; answered 429 with Retry-After
+public class TooManyAttemptsException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TooManyAttemptsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -7,12 +7,41 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.Collection;
 import java.util.Collections;
 
+// Immutable snapshot of the logged-in user; controllers read id/name/email from it instead of querying users
 public class UserDetailsImpl implements UserDetails {
 
-    private final User user;
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final String password;
 
     public UserDetailsImpl(User user) {
-        this.user = user;
+        this.id = user.getId();
+        this.name = user.getName();
+        this.email = user.getEmail();
+        this.password = user.getPassword();
+    }
+
+    // Rebuilt from a verified access token; carries no password
+    public UserDetailsImpl(Long id, String name, String email) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.password = null;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
     }
 
     @Override
@@ -22,12 +51,12 @@ public class UserDetailsImpl implements UserDetails {
 
     @Override
     public String getPassword() {
-        return user.getPassword();
+        return password;
     }
 
     @Override
     public String getUsername() {
-        return user.getEmail(); // login with email
+        return email; // login with email
     }
 
     @Override
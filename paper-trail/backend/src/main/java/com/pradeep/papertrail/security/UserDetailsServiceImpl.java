@@ -1,25 +1,68 @@
 package com.pradeep.papertrail.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.pradeep.papertrail.model.User;
 import com.pradeep.papertrail.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
-    public UserDetailsServiceImpl(UserRepository userRepository) {
+    // Remember-me logins and session revalidation hit this on every request; snapshots are immutable so sharing is safe
+    private final Cache<String, UserDetailsImpl> cache;
+
+    public UserDetailsServiceImpl(UserRepository userRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${papertrail.user-cache.max-size:10000}") long maxSize,
+                                  @Value("${papertrail.user-cache.ttl:5m}") Duration ttl) {
         this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        UserDetailsImpl cached = cache.getIfPresent(email);
+        if (cached != null) {
+            return cached;
+        }
+
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        UserDetailsImpl details = new UserDetailsImpl(user);
+        cache.put(email, details);
+        return details;
+    }
+
+    // Called by DaoAuthenticationProvider after a successful login whose hash is weaker than the configured encoder
+    @Override
+    public UserDetails updatePassword(UserDetails details, String newPassword) {
+        User user = userRepository.findByEmail(details.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        evict(user.getEmail());
         return new UserDetailsImpl(user);
     }
+
+    // Call whenever a user's email, name or password changes
+    public void evict(String email) {
+        cache.invalidate(email);
+    }
 }
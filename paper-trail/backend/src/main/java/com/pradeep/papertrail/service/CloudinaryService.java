@@ -1,59 +1,88 @@
 package com.pradeep.papertrail.service;
 
 import com.cloudinary.Cloudinary;
+import com.cloudinary.Transformation;
+import com.cloudinary.Url;
 import com.cloudinary.utils.ObjectUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.util.unit.DataSize;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
-public class CloudinaryService {
+@ConditionalOnProperty(name = "papertrail.images.storage", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryService implements ImageStorage {
 
     private final Cloudinary cloudinary;
 
+    // Cloudinary's minimum chunk is 5MB; each chunk is buffered in memory by the SDK
+    @Value("${papertrail.uploads.chunk-size:20MB}")
+    private DataSize chunkSize;
+
     public CloudinaryService(Cloudinary cloudinary) {
         this.cloudinary = cloudinary;
     }
 
     /**
-     * Upload an image to Cloudinary in a user-specific folder
-     * @param file The image file to upload
+     * Upload an image to Cloudinary in a user-specific folder, streaming it from disk.
+     * Files above papertrail.uploads.chunk-size are sent as a chunked upload instead.
+     * @param file The spooled image; its name is used as the Cloudinary file name
+     * @param sha256 Hex SHA-256 of the content (dedup happens before this is called)
+     * @param contentType The image's media type
      * @param userId The ID of the user uploading the image
-     * @return Map containing upload result details (url, public_id, etc.)
+     * @return The Cloudinary public id, secure URL, format and folder
      * @throws IOException if upload fails
      */
-    public Map<String, Object> uploadImage(MultipartFile file, Long userId) throws IOException {
-        if (file.isEmpty()) {
-            throw new IllegalArgumentException("File is empty");
-        }
-
-        // Validate file type
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("image/")) {
-            throw new IllegalArgumentException("File must be an image");
-        }
-
-        // Upload with user-specific folder
+    @Override
+    public StoredImage store(File file, String sha256, String contentType, Long userId) throws IOException {
+        // Content-addressed id in the user's folder, fixed before uploading so the outbox can guard it
         Map<String, Object> uploadParams = ObjectUtils.asMap(
-                "folder", "papertrail/user_" + userId,
+                "public_id", publicIdFor(sha256, userId),
                 "resource_type", "auto",
-                "use_filename", true,
-                "unique_filename", true
+                "overwrite", false
         );
 
-        return cloudinary.uploader().upload(file.getBytes(), uploadParams);
+        Map<?, ?> result = file.length() > chunkSize.toBytes()
+                ? cloudinary.uploader().uploadLarge(file, uploadParams, (int) chunkSize.toBytes())
+                : cloudinary.uploader().upload(file, uploadParams);
+        return new StoredImage((String) result.get("public_id"), (String) result.get("secure_url"),
+                (String) result.get("format"), "papertrail/user_" + userId);
     }
 
     /**
      * Delete an image from Cloudinary
      * @param publicId The public ID of the image to delete
-     * @return Map containing deletion result
      * @throws IOException if deletion fails
      */
-    public Map<String, Object> deleteImage(String publicId) throws IOException {
-        return cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
+    @Override
+    public void deleteImage(String publicId) throws IOException {
+        cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
+    }
+
+    /**
+     * Delete images through the Admin API, up to 100 per call
+     * @param publicIds The public IDs of the images to delete
+     * @throws IOException if a call fails
+     */
+    @Override
+    public void deleteImages(List<String> publicIds) throws IOException {
+        for (int from = 0; from < publicIds.size(); from += 100) {
+            try {
+                cloudinary.api().deleteResources(publicIds.subList(from, Math.min(from + 100, publicIds.size())),
+                        ObjectUtils.emptyMap());
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
     }
 
     /**
@@ -61,17 +90,38 @@ public class CloudinaryService {
      * @param publicId The public ID of the image
      * @return The image URL
      */
+    @Override
     public String getImageUrl(String publicId) {
         return cloudinary.url().generate(publicId);
     }
 
+    // Cloudinary resizes on its CDN; "limit" never upscales
+    @Override
+    public String getVariantUrl(String publicId, Integer width, String format) {
+        Url url = cloudinary.url().secure(true);
+        if (width != null) {
+            url.transformation(new Transformation<>().width(width).crop("limit"));
+        }
+        if (format != null) {
+            url.format(format);
+        }
+        return url.generate(publicId);
+    }
+
+    // Served by Cloudinary, never from local disk
+    @Override
+    public Optional<Path> getFile(String publicId) {
+        return Optional.empty();
+    }
+
     /**
      * Delete all images in a user's folder
      * @param userId The user ID
      * @throws IOException if deletion fails
      */
+    @Override
     public void deleteUserFolder(Long userId) throws Exception {
         String folder = "papertrail/user_" + userId;
         cloudinary.api().deleteResourcesByPrefix(folder, ObjectUtils.emptyMap());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,370 @@
+package com.pradeep.papertrail.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pradeep.papertrail.dto.NoteEventDTO;
+import com.pradeep.papertrail.model.Note;
+import com.pradeep.papertrail.repository.NoteRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live collaboration rooms, one per note being edited over WebSocket.
+ * A room holds the merged document in memory, sequences every operation and fans it out to all
+ * participants. The database only sees periodic checkpoints of dirty rooms (and a final one when
+ * the last participant leaves), each saved as one new note version with a revision.
+ * Rooms are node-local: all editors of a note must reach the same instance.
+ */
+@Service
+public class CollaborationService {
+
+    private static final Logger log = LoggerFactory.getLogger(CollaborationService.class);
+
+    private static final TypeReference<Map<String, Object>> CONTENT_TYPE = new TypeReference<>() {
+    };
+
+    private final NoteRepository noteRepository;
+    private final NoteRevisionService revisionService;
+    private final NoteAccessService noteAccessService;
+    private final NoteEventService noteEventService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Map<Long, Room> rooms = new ConcurrentHashMap<>();
+
+    public CollaborationService(NoteRepository noteRepository,
+                                NoteRevisionService revisionService,
+                                NoteAccessService noteAccessService,
+                                NoteEventService noteEventService,
+                                TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper) {
+        this.noteRepository = noteRepository;
+        this.revisionService = revisionService;
+        this.noteAccessService = noteAccessService;
+        this.noteEventService = noteEventService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Add a participant to a note's room, opening the room from the database if needed,
+     * and send it the current document
+     * @param noteId The note; access must already be checked
+     * @param session The participant's (thread-safe) session
+     */
+    public void join(Long noteId, WebSocketSession session) throws IOException {
+        Room room;
+        while (true) {
+            room = rooms.computeIfAbsent(noteId, this::open);
+            synchronized (room) {
+                // A room closed by a concurrent leave/checkpoint must not be joined
+                if (!room.closed) {
+                    room.participants.add(session);
+                    send(session, room.stateMessage("init"));
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply a batch of operations from a participant and broadcast the ones that applied
+     * @param noteId The note
+     * @param userId The participant's user
+     * @param clientSeq The participant's own counter, echoed back so it can match acknowledgements
+     * @param operations The operations, see {@link CollaborativeDocument}
+     */
+    public void submit(Long noteId, Long userId, long clientSeq, JsonNode operations,
+                       WebSocketSession session) throws IOException {
+        // Re-checked on every batch (cached) so a revoked EDIT permission stops taking effect within the cache TTL
+        if (!noteAccessService.resolve(noteId, userId).canEdit()) {
+            send(session, error(clientSeq, "No permission to edit this note"));
+            return;
+        }
+        if (operations == null || !operations.isArray()) {
+            send(session, error(clientSeq, "ops must be an array"));
+            return;
+        }
+        Room room = rooms.get(noteId);
+        if (room == null) {
+            send(session, error(clientSeq, "Not joined"));
+            return;
+        }
+
+        List<WebSocketSession> dropped = List.of();
+        synchronized (room) {
+            if (room.closed) {
+                send(session, error(clientSeq, "Not joined"));
+                return;
+            }
+            ArrayNode applied = objectMapper.createArrayNode();
+            String failure = null;
+            for (JsonNode operation : operations) {
+                try {
+                    room.document.apply(operation);
+                    room.pending.add(operation);
+                    applied.add(operation);
+                } catch (IllegalArgumentException e) {
+                    failure = e.getMessage();
+                    break;
+                }
+            }
+            if (!applied.isEmpty()) {
+                room.seq++;
+                room.dirty = true;
+                room.lastEditor = userId;
+                ObjectNode message = objectMapper.createObjectNode()
+                        .put("type", "ops")
+                        .put("seq", room.seq)
+                        .put("userId", userId)
+                        .put("clientSeq", clientSeq);
+                message.set("ops", applied);
+                dropped = broadcast(room, message);
+            }
+            if (failure != null) {
+                ObjectNode message = error(clientSeq, failure).put("applied", applied.size());
+                send(session, message);
+            }
+        }
+        closeAll(dropped, CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    /**
+     * Remove a participant; the last one out checkpoints and closes the room
+     */
+    public void leave(Long noteId, WebSocketSession session) {
+        Room room = rooms.get(noteId);
+        if (room == null) {
+            return;
+        }
+        boolean empty;
+        synchronized (room) {
+            // May already be gone (dropped by a failed broadcast); the room still closes once empty
+            room.participants.remove(session);
+            empty = room.participants.isEmpty() && !room.closed;
+        }
+        if (empty) {
+            checkpoint(room);
+            synchronized (room) {
+                // Someone may have joined while we were writing
+                if (room.participants.isEmpty()) {
+                    room.closed = true;
+                    rooms.remove(noteId, room);
+                }
+            }
+        }
+    }
+
+    // Batched persistence: whatever changed since the last tick becomes one note version
+    @Scheduled(fixedDelayString = "${papertrail.collab.checkpoint-interval:5s}")
+    public void checkpointAll() {
+        rooms.values().forEach(this::checkpoint);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkpointAll();
+    }
+
+    private void checkpoint(Room room) {
+        // The scheduler and a leaving participant may race; one checkpoint per room at a time
+        synchronized (room.checkpointLock) {
+            writeCheckpoint(room);
+        }
+    }
+
+    private void writeCheckpoint(Room room) {
+        ObjectNode content;
+        int operationCount;
+        Long baseVersion;
+        Long lastEditor;
+        synchronized (room) {
+            if (!room.dirty) {
+                return;
+            }
+            content = room.document.toContent();
+            operationCount = room.pending.size();
+            baseVersion = room.version;
+            lastEditor = room.lastEditor;
+            room.dirty = false;
+        }
+
+        Checkpoint result;
+        try {
+            result = transactionTemplate.execute(status -> {
+                Note note = noteRepository.findById(room.noteId)
+                        .orElseThrow(() -> new RuntimeException("Note not found"));
+                if (!note.getVersion().equals(baseVersion)) {
+                    return new Checkpoint(note, false); // changed outside the room, rebased below
+                }
+                Map<String, Object> previousContent = note.getContent();
+                note.setContent(objectMapper.convertValue(content, CONTENT_TYPE));
+                Note savedNote = noteRepository.saveAndFlush(note);
+                revisionService.recordChange(savedNote, previousContent, lastEditor);
+                return new Checkpoint(savedNote, true);
+            });
+        } catch (OptimisticLockingFailureException e) {
+            // A REST save slipped in between read and write; the next tick sees the new version and rebases
+            synchronized (room) {
+                room.dirty = true;
+            }
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Closing collaboration on note {}: {}", room.noteId, e.getMessage());
+            close(room, CloseStatus.GOING_AWAY);
+            return;
+        }
+
+        List<WebSocketSession> dropped = List.of();
+        synchronized (room) {
+            if (result.written()) {
+                room.version = result.note().getVersion();
+                room.pending.subList(0, operationCount).clear();
+                noteEventService.publish(new NoteEventDTO(NoteEventDTO.Type.NOTE_UPDATED, room.noteId,
+                        room.version, result.note().getTitle(), null, lastEditor));
+            } else {
+                dropped = rebase(room, result.note());
+            }
+        }
+        closeAll(dropped, CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    // The note was saved through the REST API while the room was open: take that as the new base,
+    // replay what the room has not persisted yet, and resend the whole document.
+    // Caller holds the room monitor. Returns the participants to close once it is released.
+    private List<WebSocketSession> rebase(Room room, Note note) {
+        room.document = new CollaborativeDocument(objectMapper.valueToTree(note.getContent()));
+        List<JsonNode> replayed = new ArrayList<>();
+        for (JsonNode operation : room.pending) {
+            try {
+                room.document.apply(operation);
+                replayed.add(operation);
+            } catch (IllegalArgumentException e) {
+                // The block it targeted no longer exists in the external version
+            }
+        }
+        room.pending.clear();
+        room.pending.addAll(replayed);
+        room.version = note.getVersion();
+        room.dirty = !replayed.isEmpty();
+        room.seq++;
+        return broadcast(room, room.stateMessage("reset"));
+    }
+
+    private Room open(Long noteId) {
+        Note note = noteRepository.findById(noteId)
+                .orElseThrow(() -> new RuntimeException("Note not found"));
+        return new Room(noteId, note.getVersion(), new CollaborativeDocument(objectMapper.valueToTree(note.getContent())));
+    }
+
+    private void close(Room room, CloseStatus status) {
+        List<WebSocketSession> participants;
+        synchronized (room) {
+            room.closed = true;
+            rooms.remove(room.noteId, room);
+            participants = new ArrayList<>(room.participants);
+            room.participants.clear();
+        }
+        closeAll(participants, status);
+    }
+
+    // Caller holds the room monitor. A slow or dead participant is removed rather than holding up the room;
+    // the removed sessions are returned to be closed after the monitor is released.
+    private List<WebSocketSession> broadcast(Room room, ObjectNode message) {
+        TextMessage text = toText(message);
+        List<WebSocketSession> dropped = new ArrayList<>();
+        Iterator<WebSocketSession> participants = room.participants.iterator();
+        while (participants.hasNext()) {
+            WebSocketSession participant = participants.next();
+            try {
+                participant.sendMessage(text);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Dropping collaborator {} on note {}: {}", participant.getId(), room.noteId, e.getMessage());
+                participants.remove();
+                dropped.add(participant);
+            }
+        }
+        return dropped;
+    }
+
+    // Never under a room monitor: the container runs afterConnectionClosed (and so leave) on this thread
+    private static void closeAll(List<WebSocketSession> sessions, CloseStatus status) {
+        for (WebSocketSession session : sessions) {
+            try {
+                session.close(status);
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+    }
+
+    private void send(WebSocketSession session, ObjectNode message) throws IOException {
+        session.sendMessage(toText(message));
+    }
+
+    private ObjectNode error(long clientSeq, String message) {
+        return objectMapper.createObjectNode()
+                .put("type", "error")
+                .put("clientSeq", clientSeq)
+                .put("message", message);
+    }
+
+    private TextMessage toText(ObjectNode message) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Checkpoint(Note note, boolean written) {
+    }
+
+    private final class Room {
+        private final Long noteId;
+        private final List<WebSocketSession> participants = new ArrayList<>();
+        // Operations applied since the last checkpoint, kept to replay after a rebase
+        private final List<JsonNode> pending = new ArrayList<>();
+        private final Object checkpointLock = new Object();
+        private CollaborativeDocument document;
+        private Long version;
+        private long seq;
+        private boolean dirty;
+        private boolean closed;
+        // Recorded as the author of the next checkpoint's revision
+        private Long lastEditor;
+
+        private Room(Long noteId, Long version, CollaborativeDocument document) {
+            this.noteId = noteId;
+            this.version = version;
+            this.document = document;
+        }
+
+        private ObjectNode stateMessage(String type) {
+            ObjectNode message = objectMapper.createObjectNode()
+                    .put("type", type)
+                    .put("seq", seq)
+                    .put("version", version);
+            message.set("content", document.toContent());
+            return message;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.pradeep.papertrail.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Editor.js content as a block-level replicated list.
+ * Blocks are addressed by their stable Editor.js id and positioned relative to another block id,
+ * deleted blocks stay behind as tombstones so concurrent inserts "after" them still resolve,
+ * and concurrent updates of the same block are last-writer-wins in server order.
+ * Because the server applies operations in one total order and every client replays that order,
+ * all replicas converge. Not thread-safe; callers serialize access.
+ *
+ * Operations:
+ * <pre>
+ * {"op": "insert", "after": "blockId" | null, "block": {"id": "...", "type": "...", "data": {...}}}
+ * {"op": "update", "id": "...", "type": "..." (optional), "data": {...}}
+ * {"op": "move",   "id": "...", "after": "blockId" | null}
+ * {"op": "delete", "id": "..."}
+ * {"op": "set",    "key": "time", "value": ...}   top-level members other than "blocks"
+ * </pre>
+ */
+class CollaborativeDocument {
+
+    private final ObjectNode root;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Entry> index = new HashMap<>();
+
+    CollaborativeDocument(JsonNode content) {
+        root = content != null && content.isObject()
+                ? ((ObjectNode) content).deepCopy()
+                : JsonNodeFactory.instance.objectNode();
+        JsonNode blocks = root.remove("blocks");
+        if (blocks != null && blocks.isArray()) {
+            for (JsonNode block : blocks) {
+                if (!block.isObject()) {
+                    continue;
+                }
+                ObjectNode copy = ((ObjectNode) block).deepCopy();
+                // Older notes may predate Editor.js block ids; collaboration needs one on every block
+                if (!copy.path("id").isTextual() || index.containsKey(copy.get("id").asText())) {
+                    copy.put("id", UUID.randomUUID().toString().substring(0, 10));
+                }
+                Entry entry = new Entry(copy);
+                entries.add(entry);
+                index.put(entry.id(), entry);
+            }
+        }
+    }
+
+    /**
+     * Apply one operation
+     * @param operation The operation, see the class comment
+     * @throws IllegalArgumentException if the operation is malformed or refers to an unknown block
+     */
+    void apply(JsonNode operation) {
+        String op = operation.path("op").asText();
+        switch (op) {
+            case "insert" -> {
+                JsonNode block = operation.get("block");
+                if (block == null || !block.isObject() || !block.path("id").isTextual()) {
+                    throw new IllegalArgumentException("insert needs a block with an id");
+                }
+                String id = block.get("id").asText();
+                if (index.containsKey(id)) {
+                    throw new IllegalArgumentException("Block already exists: " + id);
+                }
+                Entry entry = new Entry(((ObjectNode) block).deepCopy());
+                entries.add(positionAfter(operation.get("after")), entry);
+                index.put(id, entry);
+            }
+            case "update" -> {
+                Entry entry = existing(operation.path("id").asText());
+                if (entry.deleted) {
+                    return; // delete wins over a concurrent edit
+                }
+                if (operation.has("data")) {
+                    entry.block.set("data", operation.get("data").deepCopy());
+                }
+                if (operation.path("type").isTextual()) {
+                    entry.block.set("type", operation.get("type"));
+                }
+            }
+            case "move" -> {
+                Entry entry = existing(operation.path("id").asText());
+                if (entry.id().equals(operation.path("after").asText(null))) {
+                    throw new IllegalArgumentException("Cannot move a block after itself");
+                }
+                // Resolve the target before taking the block out, so an unknown target leaves it in place
+                positionAfter(operation.get("after"));
+                entries.remove(entry);
+                entries.add(positionAfter(operation.get("after")), entry);
+            }
+            case "delete" -> existing(operation.path("id").asText()).deleted = true;
+            case "set" -> {
+                String key = operation.path("key").asText();
+                if (key.isEmpty() || "blocks".equals(key) || !operation.has("value")) {
+                    throw new IllegalArgumentException("set needs a key other than blocks and a value");
+                }
+                root.set(key, operation.get("value").deepCopy());
+            }
+            default -> throw new IllegalArgumentException("Unsupported operation: " + op);
+        }
+    }
+
+    // The visible document, without tombstones
+    ObjectNode toContent() {
+        ObjectNode content = root.deepCopy();
+        ArrayNode blocks = content.putArray("blocks");
+        for (Entry entry : entries) {
+            if (!entry.deleted) {
+                blocks.add(entry.block.deepCopy());
+            }
+        }
+        return content;
+    }
+
+    private int positionAfter(JsonNode after) {
+        if (after == null || after.isNull()) {
+            return 0;
+        }
+        return entries.indexOf(existing(after.asText())) + 1;
+    }
+
+    private Entry existing(String id) {
+        Entry entry = index.get(id);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown block: " + id);
+        }
+        return entry;
+    }
+
+    private static final class Entry {
+        private final ObjectNode block;
+        private boolean deleted;
+
+        private Entry(ObjectNode block) {
+            this.block = block;
+        }
+
+        private String id() {
+            return block.get("id").asText();
+        }
+    }
+}
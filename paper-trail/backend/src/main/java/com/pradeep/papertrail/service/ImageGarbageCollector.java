@@ -0,0 +1,100 @@
+package com.pradeep.papertrail.service;
+
+import com.pradeep.papertrail.model.Image;
+import com.pradeep.papertrail.repository.ImageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Deletes images that no note references any more.
+ * Reference counts are kept by database triggers on the note table (see schema-postgresql.sql), so a sweep
+ * only reads images whose count is zero and whose grace period is over. Each batch is claimed, removed
+ * from the images table and queued for deletion in the {@link StorageOutbox} in one short transaction;
+ * the outbox worker deletes the files, rate limited and with retries.
+ */
+@Service
+public class ImageGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageGarbageCollector.class);
+
+    private final ImageRepository imageRepository;
+    private final StorageOutbox storageOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration gracePeriod;
+    private final int batchSize;
+    private final int maxPerSweep;
+    private final Counter deleted;
+    private final Counter reclaimedBytes;
+
+    public ImageGarbageCollector(ImageRepository imageRepository,
+                                 StorageOutbox storageOutbox,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${papertrail.images.gc.enabled:true}") boolean enabled,
+                                 @Value("${papertrail.images.gc.grace-period:30d}") Duration gracePeriod,
+                                 @Value("${papertrail.images.gc.batch-size:50}") int batchSize,
+                                 @Value("${papertrail.images.gc.max-per-sweep:1000}") int maxPerSweep) {
+        this.imageRepository = imageRepository;
+        this.storageOutbox = storageOutbox;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.gracePeriod = gracePeriod;
+        this.batchSize = batchSize;
+        this.maxPerSweep = maxPerSweep;
+        this.deleted = meterRegistry.counter("papertrail.images.gc.deleted");
+        this.reclaimedBytes = Counter.builder("papertrail.images.gc.reclaimed")
+                .baseUnit("bytes")
+                .description("Size of unreferenced images removed and queued for deletion from storage")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${papertrail.images.gc.interval:15m}",
+            initialDelayString = "${papertrail.images.gc.interval:15m}")
+    public void sweep() {
+        if (enabled) {
+            collect();
+        }
+    }
+
+    /**
+     * Delete unreferenced images whose grace period is over, batch by batch
+     * @return The number of images removed
+     */
+    public int collect() {
+        int total = 0;
+        while (total < maxPerSweep) {
+            int limit = Math.min(batchSize, maxPerSweep - total);
+            List<Image> batch = transactionTemplate.execute(status -> {
+                List<Image> images = imageRepository.findCollectable(LocalDateTime.now().minus(gracePeriod),
+                        Limit.of(limit));
+                imageRepository.deleteAllInBatch(images);
+                storageOutbox.deleteImages(images.stream().map(Image::getPublicId).toList());
+                return images;
+            });
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            for (Image image : batch) {
+                deleted.increment();
+                reclaimedBytes.increment(image.getSize());
+            }
+            total += batch.size();
+        }
+        if (total > 0) {
+            log.info("Removed {} unreferenced images", total);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,180 @@
+package com.pradeep.papertrail.service;
+
+import com.pradeep.papertrail.dto.ImageUploadResponse;
+import com.pradeep.papertrail.model.Image;
+import com.pradeep.papertrail.repository.ImageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The images table in front of the active {@link ImageStorage}.
+ * Uploads are deduplicated per user by SHA-256: content the user already uploaded is answered from
+ * the existing row without touching the storage backend. Stored objects are only ever removed through
+ * the {@link StorageOutbox}, queued in the same transaction that removes (or fails to add) their row.
+ */
+@Service
+public class ImageService {
+
+    private final ImageStorage imageStorage;
+    private final ImageRepository imageRepository;
+    private final StorageOutbox storageOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration uploadGuard;
+    private final String publicBaseUrl;
+
+    public ImageService(ImageStorage imageStorage,
+                        ImageRepository imageRepository,
+                        StorageOutbox storageOutbox,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${papertrail.storage.outbox.upload-guard:6h}") Duration uploadGuard,
+                        @Value("${papertrail.images.public-base-url:}") String publicBaseUrl) {
+        this.imageStorage = imageStorage;
+        this.imageRepository = imageRepository;
+        this.storageOutbox = storageOutbox;
+        this.transactionTemplate = transactionTemplate;
+        this.uploadGuard = uploadGuard;
+        this.publicBaseUrl = publicBaseUrl;
+    }
+
+    /**
+     * Store an image unless the user already has one with the same content
+     * @param file The image on local disk; not consumed
+     * @param contentType The image's media type
+     * @param userId The ID of the user uploading the image
+     * @return The new or existing image
+     * @throws IOException if reading or storing fails
+     */
+    public ImageUploadResponse store(Path file, String contentType, Long userId) throws IOException {
+        String sha256 = sha256(file);
+        Optional<Image> existing = imageRepository.findByUserIdAndSha256(userId, sha256);
+        if (existing.isPresent() && (existing.get().getRefCount() > 0
+                || imageRepository.restartGracePeriod(existing.get().getId(), LocalDateTime.now()) > 0)) {
+            return toResponse(existing.get());
+        }
+
+        // Committed before uploading: if we fail or crash before the row below commits, the object is deleted later
+        String publicId = imageStorage.publicIdFor(sha256, userId);
+        storageOutbox.deleteImageLater(publicId, uploadGuard);
+
+        ImageStorage.StoredImage stored = imageStorage.store(file.toFile(), sha256, contentType, userId);
+        Image image = new Image();
+        image.setUserId(userId);
+        image.setSha256(sha256);
+        image.setPublicId(stored.publicId());
+        image.setUrl(stored.url());
+        image.setFormat(stored.format());
+        image.setContentType(contentType);
+        image.setSize(Files.size(file));
+        image.setCreatedAt(LocalDateTime.now());
+        // Not in any note yet; collected if it never gets saved into one
+        image.setUnreferencedSince(image.getCreatedAt());
+        try {
+            return toResponse(transactionTemplate.execute(status -> {
+                Image saved = imageRepository.saveAndFlush(image);
+                storageOutbox.cancelDelete(publicId);
+                return saved;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // The same content was uploaded concurrently and that row won; drop our copy unless it is the same object
+            Image winner = imageRepository.findByUserIdAndSha256(userId, sha256).orElseThrow(() -> e);
+            if (winner.getPublicId().equals(publicId)) {
+                storageOutbox.cancelDelete(publicId);
+            } else {
+                storageOutbox.deleteImages(List.of(publicId));
+            }
+            return toResponse(winner);
+        }
+    }
+
+    public Optional<Image> find(UUID id) {
+        return imageRepository.findById(id);
+    }
+
+    /**
+     * Get the local file of an image
+     * @return The file, empty when the image lives in a remote backend
+     */
+    public Optional<Path> getFile(Image image) {
+        return imageStorage.getFile(image.getPublicId());
+    }
+
+    /**
+     * Get the URL clients should use for an image
+     * @param publicId The public ID of the image
+     * @return The backend URL, or this application's /api/images/{id} for locally stored images
+     */
+    public String getImageUrl(String publicId) {
+        return imageRepository.findFirstByPublicId(publicId)
+                .map(this::urlOf)
+                .orElseGet(() -> imageStorage.getImageUrl(publicId));
+    }
+
+    /**
+     * Get a URL for a resized copy of a remotely stored image
+     * @return The backend's variant URL, else the original image URL (null for local images)
+     */
+    public String getVariantUrl(Image image, Integer width, String format) {
+        String url = imageStorage.getVariantUrl(image.getPublicId(), width, format);
+        return url != null ? url : image.getUrl();
+    }
+
+    /**
+     * Delete one of a user's images: the row right away, the stored object through the storage outbox
+     * @param publicId The public ID of the image
+     * @param userId The owner
+     * @return false if the user has no image with this public ID
+     */
+    public boolean delete(String publicId, Long userId) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            // The id comes from the client: only an object behind a row of this user may be queued
+            if (imageRepository.deleteByUserIdAndPublicId(userId, publicId) == 0) {
+                return false;
+            }
+            storageOutbox.deleteImages(List.of(publicId));
+            return true;
+        }));
+    }
+
+    public String urlOf(Image image) {
+        return image.getUrl() != null ? image.getUrl() : publicBaseUrl + "/api/images/" + image.getId();
+    }
+
+    private ImageUploadResponse toResponse(Image image) {
+        String publicId = image.getPublicId();
+        String folder = publicId.contains("/") ? publicId.substring(0, publicId.lastIndexOf('/')) : null;
+        return new ImageUploadResponse(image.getId().toString(), urlOf(image), publicId, image.getFormat(),
+                image.getUserId(), folder);
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,88 @@
+package com.pradeep.papertrail.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Where image bytes live. One implementation is active, chosen by papertrail.images.storage
+ * (cloudinary, the default, or local). Dedup and the images table are handled by {@link ImageService}.
+ */
+public interface ImageStorage {
+
+    /**
+     * The public id an image is stored under: content-addressed, so it is known before uploading
+     * @param sha256 Hex SHA-256 of the content
+     * @param userId The owner
+     * @return papertrail/user_{userId}/{sha256}
+     */
+    default String publicIdFor(String sha256, Long userId) {
+        return "papertrail/user_" + userId + "/" + sha256;
+    }
+
+    /**
+     * Store an image under the user's folder
+     * @param file The image on local disk; the storage reads it but does not take ownership
+     * @param sha256 Hex SHA-256 of the content
+     * @param contentType The image's media type
+     * @param userId The ID of the user uploading the image
+     * @return Where the image was stored, under {@link #publicIdFor}
+     * @throws IOException if storing fails
+     */
+    StoredImage store(File file, String sha256, String contentType, Long userId) throws IOException;
+
+    /**
+     * Delete an image
+     * @param publicId The public ID of the image to delete
+     * @throws IOException if deletion fails
+     */
+    void deleteImage(String publicId) throws IOException;
+
+    /**
+     * Delete several images; missing ones are not an error
+     * @param publicIds The public IDs of the images to delete
+     * @throws IOException if deletion fails
+     */
+    default void deleteImages(List<String> publicIds) throws IOException {
+        for (String publicId : publicIds) {
+            deleteImage(publicId);
+        }
+    }
+
+    /**
+     * Get the URL for an image
+     * @param publicId The public ID of the image
+     * @return The image URL, or null when the backend has none and the application serves the file
+     */
+    String getImageUrl(String publicId);
+
+    /**
+     * Get the URL of a resized copy, for backends that transform images themselves
+     * @param publicId The public ID of the image
+     * @param width The maximum width in pixels, or null to keep the original width
+     * @param format The output format, e.g. webp, or null to keep the original
+     * @return The URL, or null when the application has to produce the variant
+     */
+    default String getVariantUrl(String publicId, Integer width, String format) {
+        return null;
+    }
+
+    /**
+     * Get the local file of an image, for backends the application serves from
+     * @param publicId The public ID of the image
+     * @return The file, empty if the backend is remote or the file does not exist
+     */
+    Optional<Path> getFile(String publicId);
+
+    /**
+     * Delete all images in a user's folder
+     * @param userId The user ID
+     * @throws Exception if deletion fails
+     */
+    void deleteUserFolder(Long userId) throws Exception;
+
+    record StoredImage(String publicId, String url, String format, String folder) {
+    }
+}
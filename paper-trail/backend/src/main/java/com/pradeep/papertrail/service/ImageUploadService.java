@@ -0,0 +1,203 @@
+package com.pradeep.papertrail.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pradeep.papertrail.dto.ImageUploadJobDTO;
+import com.pradeep.papertrail.dto.ImageUploadResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves image uploads off the request path.
+ * The multipart file is spooled to disk (Tomcat already wrote it there; transferTo moves it), then
+ * handed to the image storage by a bounded pool, so neither the image bytes nor a request thread are held
+ * for the remote upload. Uploads can be awaited as a future or tracked as a job whose state is kept
+ * in memory for papertrail.uploads.job-ttl; jobs are node-local.
+ */
+@Service
+public class ImageUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageUploadService.class);
+
+    private final ImageService imageService;
+    private final Executor executor;
+    private final Path spoolDirectory;
+    private final Cache<String, UploadJob> jobs;
+    private final Timer queued;
+    private final Timer succeeded;
+    private final Timer failed;
+
+    public ImageUploadService(ImageService imageService,
+                              @Qualifier("imageUploadExecutor") Executor executor,
+                              MeterRegistry meterRegistry,
+                              @Value("${papertrail.uploads.spool-dir:${java.io.tmpdir}/papertrail-uploads}") Path spoolDirectory,
+                              @Value("${papertrail.uploads.job-ttl:1h}") Duration jobTtl) throws IOException {
+        this.imageService = imageService;
+        this.executor = executor;
+        this.spoolDirectory = Files.createDirectories(spoolDirectory);
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(jobTtl)
+                .build();
+        // Upload latency from submission, so time spent waiting for a pool thread is included
+        this.queued = meterRegistry.timer("papertrail.images.upload.queued");
+        this.succeeded = meterRegistry.timer("papertrail.images.upload", "outcome", "success");
+        this.failed = meterRegistry.timer("papertrail.images.upload", "outcome", "failure");
+    }
+
+    /**
+     * Spool an image and upload it in the background
+     * @param file The uploaded image
+     * @param userId The ID of the user uploading the image
+     * @return Completes with the upload result, or exceptionally with the IOException of a failed upload
+     * @throws IllegalArgumentException if the file is empty or not an image
+     * @throws RejectedExecutionException if the upload pool and its queue are full
+     */
+    public CompletableFuture<ImageUploadResponse> upload(MultipartFile file, Long userId) throws IOException {
+        Spooled spooled = spool(file);
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> transfer(spooled, userId, submittedAt), executor);
+        } catch (RejectedExecutionException e) {
+            delete(spooled.path());
+            throw e;
+        }
+    }
+
+    /**
+     * Like {@link #upload}, but tracked as a job that can be polled with {@link #getJob}
+     * @return The new job, PENDING until a pool thread picks it up
+     */
+    public ImageUploadJobDTO submit(MultipartFile file, Long userId) throws IOException {
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(), userId);
+        Spooled spooled = spool(file);
+        jobs.put(job.id, job);
+        long submittedAt = System.nanoTime();
+        try {
+            CompletableFuture.runAsync(() -> {
+                job.status = ImageUploadJobDTO.Status.RUNNING;
+                try {
+                    job.result = transfer(spooled, userId, submittedAt);
+                    job.status = ImageUploadJobDTO.Status.DONE;
+                } catch (RuntimeException e) {
+                    Throwable cause = e instanceof UncheckedIOException ? e.getCause() : e;
+                    job.error = "Failed to upload image: " + cause.getMessage();
+                    job.status = ImageUploadJobDTO.Status.FAILED;
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.id);
+            delete(spooled.path());
+            throw e;
+        }
+        return job.toDTO();
+    }
+
+    /**
+     * Get an upload job of a user
+     * @param jobId The job ID
+     * @param userId The requesting user; other users' jobs are not visible
+     * @return The job, empty if unknown, expired or not the user's
+     */
+    public Optional<ImageUploadJobDTO> getJob(String jobId, Long userId) {
+        UploadJob job = jobs.getIfPresent(jobId);
+        if (job == null || !job.userId.equals(userId)) {
+            return Optional.empty();
+        }
+        return Optional.of(job.toDTO());
+    }
+
+    // Reads everything the upload needs from the request: the MultipartFile is cleaned up when the request
+    // ends, possibly before a pool thread picks the upload up
+    private Spooled spool(MultipartFile file) throws IOException {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("File is empty");
+        }
+
+        // Validate file type
+        String contentType = file.getContentType();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new IllegalArgumentException("File must be an image");
+        }
+
+        // A directory per upload so the file keeps its original name, which Cloudinary uses (use_filename)
+        Path directory = Files.createTempDirectory(spoolDirectory, "upload-");
+        Path spooled = directory.resolve(safeFilename(file.getOriginalFilename()));
+        try {
+            file.transferTo(spooled);
+        } catch (IOException | RuntimeException e) {
+            delete(spooled);
+            throw e;
+        }
+        return new Spooled(spooled, contentType);
+    }
+
+    private ImageUploadResponse transfer(Spooled spooled, Long userId, long submittedAt) {
+        queued.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+        Timer outcome = failed;
+        try {
+            ImageUploadResponse response = imageService.store(spooled.path(), spooled.contentType(), userId);
+            outcome = succeeded;
+            return response;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            delete(spooled.path());
+            outcome.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void delete(Path spooled) {
+        try {
+            FileSystemUtils.deleteRecursively(spooled.getParent());
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}: {}", spooled, e.getMessage());
+        }
+    }
+
+    private static String safeFilename(String original) {
+        String name = original == null ? "" : original.substring(original.replace('\\', '/').lastIndexOf('/') + 1);
+        name = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return name.isEmpty() || name.startsWith(".") ? "image" + name : name;
+    }
+
+    private record Spooled(Path path, String contentType) {
+    }
+
+    private static final class UploadJob {
+        private final String id;
+        private final Long userId;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile ImageUploadJobDTO.Status status = ImageUploadJobDTO.Status.PENDING;
+        private volatile ImageUploadResponse result;
+        private volatile String error;
+
+        private UploadJob(String id, Long userId) {
+            this.id = id;
+            this.userId = userId;
+        }
+
+        private ImageUploadJobDTO toDTO() {
+            return new ImageUploadJobDTO(id, status, result, error, createdAt);
+        }
+    }
+}
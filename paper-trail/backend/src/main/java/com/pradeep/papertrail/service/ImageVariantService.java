@@ -0,0 +1,381 @@
+package com.pradeep.papertrail.service;
+
+import com.pradeep.papertrail.model.Image;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Resized and re-encoded copies of locally stored images, e.g. thumbnails for note lists.
+ * Variants are generated with ImageIO on the bounded imageVariantExecutor pool, and concurrent requests
+ * for the same variant share one generation. Results live in a disk cache under
+ * papertrail.images.variant-cache-dir, evicted least recently used beyond papertrail.images.variant-cache-size.
+ * Requested widths are rounded up to one of papertrail.images.variant-widths so the number of
+ * variants per image stays small.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private final Executor executor;
+    private final Path cacheDirectory;
+    private final long maxCacheBytes;
+    private final List<Integer> widths;
+    private final long maxPixels;
+    private final float jpegQuality;
+    private final Map<String, CompletableFuture<Optional<Variant>>> inFlight = new ConcurrentHashMap<>();
+    // Access-ordered, so iteration starts at the least recently used variant; guarded by itself
+    private final LinkedHashMap<String, Long> cached = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedBytes;
+    private final Counter hits;
+    private final Counter generated;
+
+    public ImageVariantService(@Qualifier("imageVariantExecutor") Executor executor,
+                               MeterRegistry meterRegistry,
+                               @Value("${papertrail.images.variant-cache-dir:data/image-variants}") Path cacheDirectory,
+                               @Value("${papertrail.images.variant-cache-size:512MB}") DataSize maxCacheSize,
+                               @Value("${papertrail.images.variant-widths:64,160,320,640,1280,1920}") List<Integer> widths,
+                               @Value("${papertrail.images.variant-max-pixels:50000000}") long maxPixels,
+                               @Value("${papertrail.images.variant-jpeg-quality:0.82}") float jpegQuality) throws IOException {
+        this.executor = executor;
+        this.cacheDirectory = Files.createDirectories(cacheDirectory).toAbsolutePath().normalize();
+        this.maxCacheBytes = maxCacheSize.toBytes();
+        this.widths = widths.stream().sorted().toList();
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+        this.hits = meterRegistry.counter("papertrail.images.variants", "result", "hit");
+        this.generated = meterRegistry.counter("papertrail.images.variants", "result", "generated");
+        meterRegistry.gauge("papertrail.images.variant-cache.bytes", this, ImageVariantService::cachedBytes);
+        loadCache();
+    }
+
+    /**
+     * Round a requested width up to the nearest configured variant width
+     * @param requested The width asked for, null for the original width
+     * @return The variant width, capped at the largest configured one
+     */
+    public Integer roundWidth(Integer requested) {
+        if (requested == null) {
+            return null;
+        }
+        for (int width : widths) {
+            if (width >= requested) {
+                return width;
+            }
+        }
+        return widths.get(widths.size() - 1);
+    }
+
+    /**
+     * Get a variant of a locally stored image, generating it on the variant pool if it is not cached
+     * @param image The image
+     * @param source The image's file
+     * @param width The requested width, null to keep the original width; never upscaled
+     * @param format The requested format, null to keep the original; formats ImageIO cannot
+     *               write (webp without a plugin) fall back to the original format
+     * @return The variant, or empty if the image cannot be decoded (e.g. svg) and the original should be served
+     * @throws RejectedExecutionException if the variant pool is full
+     */
+    public CompletableFuture<Optional<Variant>> variant(Image image, Path source, Integer width, String format) {
+        int targetWidth = width == null ? 0 : roundWidth(width);
+        String outputFormat = outputFormat(format, image.getFormat());
+        String key = image.getSha256() + "-" + targetWidth + "." + outputFormat;
+
+        Optional<Variant> hit = lookup(key, outputFormat);
+        if (hit.isPresent()) {
+            hits.increment();
+            return CompletableFuture.completedFuture(hit);
+        }
+
+        CompletableFuture<Optional<Variant>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<Variant>> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return running;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    Optional<Variant> variant = generate(source, key, targetWidth, outputFormat);
+                    inFlight.remove(key, future);
+                    future.complete(variant);
+                } catch (IOException | RuntimeException e) {
+                    inFlight.remove(key, future);
+                    future.completeExceptionally(e instanceof IOException io ? new UncheckedIOException(io) : e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, future);
+            throw e;
+        }
+        return future;
+    }
+
+    public long cachedBytes() {
+        synchronized (cached) {
+            return cachedBytes;
+        }
+    }
+
+    private Optional<Variant> generate(Path source, String key, int width, String format) throws IOException {
+        // Finished by another request between our cache miss and claiming the key
+        Optional<Variant> hit = lookup(key, format);
+        if (hit.isPresent()) {
+            return hit;
+        }
+
+        BufferedImage decoded = read(source, width);
+        if (decoded == null) {
+            return Optional.empty();
+        }
+        BufferedImage scaled = scale(decoded, width, format);
+
+        Path target = cacheFile(key);
+        Files.createDirectories(target.getParent());
+        Path partial = Files.createTempFile(target.getParent(), key, ".partial");
+        try {
+            write(scaled, format, partial);
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+        generated.increment();
+        add(key, Files.size(target));
+        return Optional.of(new Variant(target, "image/" + format, "\"" + key + "\""));
+    }
+
+    // Decodes only every n-th pixel of images far larger than needed: less memory and work,
+    // while keeping at least twice the target width for the final smooth scale
+    private BufferedImage read(Path source, int width) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int sourceWidth = reader.getWidth(0);
+                long pixels = (long) sourceWidth * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.debug("Not resizing {}: {} pixels", source.getFileName(), pixels);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = width > 0 ? sourceWidth / (width * 2) : 1;
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } catch (IOException e) {
+                // Corrupt or unsupported variant of the format; the original is still servable
+                log.debug("Cannot decode {}: {}", source.getFileName(), e.getMessage());
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halves with bilinear filtering until the target is reached, which keeps downscaled edges smooth
+    private static BufferedImage scale(BufferedImage image, int width, String format) {
+        boolean alpha = image.getColorModel().hasAlpha() && !"jpeg".equals(format);
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        int targetWidth = width > 0 && width < image.getWidth() ? width : image.getWidth();
+        int targetHeight = Math.max(1, Math.round(image.getHeight() * (float) targetWidth / image.getWidth()));
+        if (targetWidth == image.getWidth() && image.getType() == type) {
+            return image;
+        }
+
+        BufferedImage current = image;
+        do {
+            int stepWidth = Math.max(targetWidth, current.getWidth() / 2);
+            int stepHeight = stepWidth == targetWidth ? targetHeight : Math.max(targetHeight, current.getHeight() / 2);
+            current = draw(current, stepWidth, stepHeight, type, alpha);
+        } while (current.getWidth() > targetWidth);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height, int type, boolean alpha) {
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            if (!alpha) {
+                // JPEG has no transparency; flatten onto white rather than black
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpeg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // The JDK has writers for png, jpeg, gif and bmp; webp/avif need a plugin on the classpath
+    private static String outputFormat(String requested, String original) {
+        String format = normalize(requested != null ? requested : original);
+        if (format != null && writable(format)) {
+            return format;
+        }
+        String fallback = normalize(original);
+        return fallback != null && writable(fallback) ? fallback : "png";
+    }
+
+    private static String normalize(String format) {
+        if (format == null) {
+            return null;
+        }
+        format = format.toLowerCase(Locale.ROOT);
+        return format.equals("jpg") ? "jpeg" : format;
+    }
+
+    private static boolean writable(String format) {
+        return ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    private Optional<Variant> lookup(String key, String format) {
+        Path file = cacheFile(key);
+        synchronized (cached) {
+            if (cached.get(key) == null) {
+                return Optional.empty();
+            }
+        }
+        if (!Files.isRegularFile(file)) {
+            // Removed behind our back
+            remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(new Variant(file, "image/" + format, "\"" + key + "\""));
+    }
+
+    private void add(String key, long size) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (cached) {
+            Long previous = cached.put(key, size);
+            cachedBytes += size - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> eldest = cached.entrySet().iterator();
+            while (cachedBytes > maxCacheBytes && cached.size() > 1) {
+                Map.Entry<String, Long> entry = eldest.next();
+                cachedBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        for (String victim : evicted) {
+            deleteQuietly(cacheFile(victim));
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (cached) {
+            Long size = cached.remove(key);
+            if (size != null) {
+                cachedBytes -= size;
+            }
+        }
+    }
+
+    // Picks up variants from previous runs, oldest first, so restarts keep the cache warm
+    private void loadCache() throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(cacheDirectory, 2)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        List<Path> variants = new ArrayList<>();
+        for (Path file : files) {
+            if (file.getFileName().toString().endsWith(".partial")) {
+                deleteQuietly(file);
+            } else {
+                variants.add(file);
+            }
+        }
+        variants.sort(Comparator.comparing(ImageVariantService::modified));
+        for (Path file : variants) {
+            add(file.getFileName().toString(), Files.size(file));
+        }
+    }
+
+    private Path cacheFile(String key) {
+        return cacheDirectory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static FileTime modified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete cached image variant {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * A generated variant on disk
+     * @param file The cached file
+     * @param contentType Its media type
+     * @param etag A strong ETag; variants never change for a given key
+     */
+    public record Variant(Path file, String contentType, String etag) {
+    }
+}
@@ -0,0 +1,345 @@
+package com.pradeep.papertrail.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory implementations of RFC 6902 (JSON Patch) and RFC 7386 (JSON Merge Patch).
+ * Inputs are never modified; every method works on a deep copy of the document.
+ */
+public final class JsonPatches {
+
+    // Above this many cells the array LCS is skipped and elements are compared position by position
+    private static final long MAX_LCS_CELLS = 250_000;
+
+    private JsonPatches() {
+    }
+
+    /**
+     * Apply a JSON Patch document
+     * @param document The target document
+     * @param patch An array of add/remove/replace/move/copy/test operations
+     * @return The patched copy of the document
+     * @throws IllegalArgumentException if the patch is malformed or an operation cannot be applied
+     */
+    public static JsonNode apply(JsonNode document, JsonNode patch) {
+        if (patch == null || !patch.isArray()) {
+            throw new IllegalArgumentException("JSON Patch must be an array of operations");
+        }
+        JsonNode result = document == null ? JsonNodeFactory.instance.nullNode() : document.deepCopy();
+        for (JsonNode operation : patch) {
+            result = applyOperation(result, operation);
+        }
+        return result;
+    }
+
+    /**
+     * Apply a JSON Merge Patch document
+     * @param target The target document
+     * @param patch The merge patch; null members remove keys, objects merge recursively, anything else replaces
+     * @return The patched copy of the document
+     */
+    public static JsonNode merge(JsonNode target, JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            return patch == null ? JsonNodeFactory.instance.nullNode() : patch.deepCopy();
+        }
+        ObjectNode result = target != null && target.isObject()
+                ? ((ObjectNode) target).deepCopy()
+                : JsonNodeFactory.instance.objectNode();
+        patch.properties().forEach(field -> {
+            if (field.getValue().isNull()) {
+                result.remove(field.getKey());
+            } else {
+                result.set(field.getKey(), merge(result.get(field.getKey()), field.getValue()));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Compute a JSON Patch that turns one document into another.
+     * Objects are compared member by member and arrays are aligned on their longest common subsequence,
+     * so editing or inserting one Editor.js block only produces operations for that block.
+     * @param source The original document
+     * @param target The desired document
+     * @return A patch such that {@code apply(source, patch)} equals target; empty if they are equal
+     */
+    public static ArrayNode diff(JsonNode source, JsonNode target) {
+        ArrayNode patch = JsonNodeFactory.instance.arrayNode();
+        diff(source == null ? JsonNodeFactory.instance.nullNode() : source,
+                target == null ? JsonNodeFactory.instance.nullNode() : target, "", patch);
+        return patch;
+    }
+
+    /**
+     * Split a JSON Pointer (RFC 6901) into its unescaped reference tokens
+     * @param pointer The pointer, "" for the whole document
+     * @return The tokens, empty for the whole document
+     * @throws IllegalArgumentException if the pointer does not start with '/'
+     */
+    public static List<String> parsePointer(String pointer) {
+        List<String> tokens = new ArrayList<>();
+        if (pointer.isEmpty()) {
+            return tokens;
+        }
+        if (pointer.charAt(0) != '/') {
+            throw new IllegalArgumentException("Invalid JSON Pointer: " + pointer);
+        }
+        for (String token : pointer.substring(1).split("/", -1)) {
+            tokens.add(token.replace("~1", "/").replace("~0", "~"));
+        }
+        return tokens;
+    }
+
+    private static void diff(JsonNode source, JsonNode target, String path, ArrayNode patch) {
+        if (source.equals(target)) {
+            return;
+        }
+        if (source.isObject() && target.isObject()) {
+            source.fieldNames().forEachRemaining(name -> {
+                if (!target.has(name)) {
+                    patch.addObject().put("op", "remove").put("path", path + "/" + escape(name));
+                }
+            });
+            target.properties().forEach(field -> {
+                String child = path + "/" + escape(field.getKey());
+                if (source.has(field.getKey())) {
+                    diff(source.get(field.getKey()), field.getValue(), child, patch);
+                } else {
+                    patch.addObject().put("op", "add").put("path", child).set("value", field.getValue().deepCopy());
+                }
+            });
+        } else if (source.isArray() && target.isArray()) {
+            diffArray((ArrayNode) source, (ArrayNode) target, path, patch);
+        } else {
+            patch.addObject().put("op", "replace").put("path", path).set("value", target.deepCopy());
+        }
+    }
+
+    private static void diffArray(ArrayNode source, ArrayNode target, String path, ArrayNode patch) {
+        int start = 0;
+        while (start < source.size() && start < target.size() && source.get(start).equals(target.get(start))) {
+            start++;
+        }
+        int sourceEnd = source.size();
+        int targetEnd = target.size();
+        while (sourceEnd > start && targetEnd > start && source.get(sourceEnd - 1).equals(target.get(targetEnd - 1))) {
+            sourceEnd--;
+            targetEnd--;
+        }
+        int n = sourceEnd - start;
+        int m = targetEnd - start;
+
+        // Edit script over the changed middle: 'k'eep, 'd'elete, 'i'nsert
+        StringBuilder script = new StringBuilder();
+        if ((long) n * m > MAX_LCS_CELLS) {
+            script.append("s".repeat(Math.min(n, m)));
+            script.append((n > m ? "d" : "i").repeat(Math.abs(n - m)));
+        } else {
+            int[][] lcs = new int[n + 1][m + 1];
+            for (int i = n - 1; i >= 0; i--) {
+                for (int j = m - 1; j >= 0; j--) {
+                    lcs[i][j] = source.get(start + i).equals(target.get(start + j))
+                            ? lcs[i + 1][j + 1] + 1
+                            : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+                }
+            }
+            int i = 0;
+            int j = 0;
+            while (i < n || j < m) {
+                if (i < n && j < m && source.get(start + i).equals(target.get(start + j))) {
+                    script.append('k');
+                    i++;
+                    j++;
+                } else if (j < m && (i == n || lcs[i][j + 1] >= lcs[i + 1][j])) {
+                    script.append('i');
+                    j++;
+                } else {
+                    script.append('d');
+                    i++;
+                }
+            }
+        }
+
+        int i = start;
+        int j = start;
+        int index = start;
+        for (int k = 0; k < script.length(); k++) {
+            char step = script.charAt(k);
+            // A delete next to an insert is an edited element: recurse instead of remove + add
+            if ((step == 'd' || step == 'i') && k + 1 < script.length()
+                    && script.charAt(k + 1) == (step == 'd' ? 'i' : 'd')) {
+                step = 's';
+                k++;
+            }
+            switch (step) {
+                case 'k' -> {
+                    i++;
+                    j++;
+                    index++;
+                }
+                case 's' -> {
+                    diff(source.get(i++), target.get(j++), path + "/" + index, patch);
+                    index++;
+                }
+                case 'd' -> {
+                    patch.addObject().put("op", "remove").put("path", path + "/" + index);
+                    i++;
+                }
+                default -> {
+                    patch.addObject().put("op", "add").put("path", path + "/" + index)
+                            .set("value", target.get(j++).deepCopy());
+                    index++;
+                }
+            }
+        }
+    }
+
+    private static String escape(String token) {
+        return token.replace("~", "~0").replace("/", "~1");
+    }
+
+    private static JsonNode applyOperation(JsonNode document, JsonNode operation) {
+        String op = requiredText(operation, "op");
+        List<String> path = parsePointer(requiredText(operation, "path"));
+
+        switch (op) {
+            case "add":
+                return add(document, path, requiredValue(operation));
+            case "remove":
+                return remove(document, path);
+            case "replace":
+                return replace(document, path, requiredValue(operation));
+            case "move": {
+                List<String> from = parsePointer(requiredText(operation, "from"));
+                if (path.size() > from.size() && path.subList(0, from.size()).equals(from)) {
+                    throw new IllegalArgumentException("Cannot move a value into one of its children");
+                }
+                JsonNode value = get(document, from);
+                return add(remove(document, from), path, value);
+            }
+            case "copy": {
+                List<String> from = parsePointer(requiredText(operation, "from"));
+                return add(document, path, get(document, from).deepCopy());
+            }
+            case "test":
+                if (!get(document, path).equals(requiredValue(operation))) {
+                    throw new IllegalArgumentException("Test failed at " + operation.get("path").asText());
+                }
+                return document;
+            default:
+                throw new IllegalArgumentException("Unsupported patch operation: " + op);
+        }
+    }
+
+    private static JsonNode get(JsonNode document, List<String> path) {
+        JsonNode current = document;
+        for (String token : path) {
+            if (current.isObject() && current.has(token)) {
+                current = current.get(token);
+            } else if (current.isArray()) {
+                current = current.get(existingIndex((ArrayNode) current, token));
+            } else {
+                throw new IllegalArgumentException("Path not found: /" + String.join("/", path));
+            }
+        }
+        return current;
+    }
+
+    private static JsonNode add(JsonNode document, List<String> path, JsonNode value) {
+        if (path.isEmpty()) {
+            return value.deepCopy();
+        }
+        JsonNode parent = get(document, path.subList(0, path.size() - 1));
+        String last = path.get(path.size() - 1);
+        if (parent.isObject()) {
+            ((ObjectNode) parent).set(last, value.deepCopy());
+        } else if (parent.isArray()) {
+            ArrayNode array = (ArrayNode) parent;
+            if ("-".equals(last)) {
+                array.add(value.deepCopy());
+            } else {
+                int index = index(last);
+                if (index > array.size()) {
+                    throw new IllegalArgumentException("Array index out of bounds: " + last);
+                }
+                array.insert(index, value.deepCopy());
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot add a member to a scalar value");
+        }
+        return document;
+    }
+
+    private static JsonNode remove(JsonNode document, List<String> path) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("Cannot remove the whole document");
+        }
+        JsonNode parent = get(document, path.subList(0, path.size() - 1));
+        String last = path.get(path.size() - 1);
+        if (parent.isObject() && parent.has(last)) {
+            ((ObjectNode) parent).remove(last);
+        } else if (parent.isArray()) {
+            ((ArrayNode) parent).remove(existingIndex((ArrayNode) parent, last));
+        } else {
+            throw new IllegalArgumentException("Path not found: /" + String.join("/", path));
+        }
+        return document;
+    }
+
+    private static JsonNode replace(JsonNode document, List<String> path, JsonNode value) {
+        if (path.isEmpty()) {
+            return value.deepCopy();
+        }
+        JsonNode parent = get(document, path.subList(0, path.size() - 1));
+        String last = path.get(path.size() - 1);
+        if (parent.isObject() && parent.has(last)) {
+            ((ObjectNode) parent).set(last, value.deepCopy());
+        } else if (parent.isArray()) {
+            ((ArrayNode) parent).set(existingIndex((ArrayNode) parent, last), value.deepCopy());
+        } else {
+            throw new IllegalArgumentException("Path not found: /" + String.join("/", path));
+        }
+        return document;
+    }
+
+    private static int existingIndex(ArrayNode array, String token) {
+        int index = index(token);
+        if (index >= array.size()) {
+            throw new IllegalArgumentException("Array index out of bounds: " + token);
+        }
+        return index;
+    }
+
+    // RFC 6901 array indexes are "0" or digits without a leading zero
+    static boolean isArrayIndex(String token) {
+        return token.matches("0|[1-9][0-9]{0,8}");
+    }
+
+    private static int index(String token) {
+        if (!isArrayIndex(token)) {
+            throw new IllegalArgumentException("Invalid array index: " + token);
+        }
+        return Integer.parseInt(token);
+    }
+
+    private static String requiredText(JsonNode operation, String field) {
+        JsonNode node = operation.get(field);
+        if (node == null || !node.isTextual()) {
+            throw new IllegalArgumentException("Patch operation is missing '" + field + "'");
+        }
+        return node.asText();
+    }
+
+    private static JsonNode requiredValue(JsonNode operation) {
+        if (!operation.has("value")) {
+            throw new IllegalArgumentException("Patch operation is missing 'value'");
+        }
+        return operation.get("value");
+    }
+}
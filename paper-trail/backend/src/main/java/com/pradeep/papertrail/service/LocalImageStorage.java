@@ -0,0 +1,105 @@
+package com.pradeep.papertrail.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Images on the local filesystem, content-addressed: papertrail/user_{id}/{sha256} under
+ * papertrail.images.local-dir. Storing the same content twice is a no-op, and a file is written to
+ * a temporary name and renamed, so readers never see a partial image. Files are served by
+ * ImageController, so there is no external URL.
+ */
+@Service
+@ConditionalOnProperty(name = "papertrail.images.storage", havingValue = "local")
+public class LocalImageStorage implements ImageStorage {
+
+    // The only shape publicIdFor produces; anything else (.., other separators) is rejected before touching disk
+    private static final Pattern PUBLIC_ID = Pattern.compile("papertrail/user_[0-9]+/[0-9a-f]{64}");
+
+    private final Path root;
+
+    public LocalImageStorage(@Value("${papertrail.images.local-dir:data/images}") Path root) throws IOException {
+        this.root = Files.createDirectories(root).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public StoredImage store(File file, String sha256, String contentType, Long userId) throws IOException {
+        String folder = folder(userId);
+        String publicId = publicIdFor(sha256, userId);
+        Path target = resolve(publicId);
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            Path partial = Files.createTempFile(target.getParent(), sha256, ".partial");
+            try {
+                Files.copy(file.toPath(), partial, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // The same content was stored concurrently
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+        }
+        return new StoredImage(publicId, null, format(contentType), folder);
+    }
+
+    @Override
+    public void deleteImage(String publicId) throws IOException {
+        // Nothing is ever stored under a malformed id, and a queued delete of one must not retry forever
+        if (isValid(publicId)) {
+            Files.deleteIfExists(resolve(publicId));
+        }
+    }
+
+    @Override
+    public String getImageUrl(String publicId) {
+        return null;
+    }
+
+    @Override
+    public Optional<Path> getFile(String publicId) {
+        Path file = resolve(publicId);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    @Override
+    public void deleteUserFolder(Long userId) throws IOException {
+        FileSystemUtils.deleteRecursively(root.resolve(folder(userId)));
+    }
+
+    // Public ids come from clients and note content; never let one name another user's file or leave the root
+    private Path resolve(String publicId) {
+        if (!isValid(publicId)) {
+            throw new IllegalArgumentException("Invalid public id");
+        }
+        return root.resolve(publicId);
+    }
+
+    private static boolean isValid(String publicId) {
+        return publicId != null && PUBLIC_ID.matcher(publicId).matches();
+    }
+
+    private static String folder(Long userId) {
+        return "papertrail/user_" + userId;
+    }
+
+    // image/png -> png, image/svg+xml -> svg
+    private static String format(String contentType) {
+        if (contentType == null || !contentType.contains("/")) {
+            return null;
+        }
+        String subtype = contentType.substring(contentType.indexOf('/') + 1);
+        int suffix = subtype.indexOf('+');
+        return suffix > 0 ? subtype.substring(0, suffix) : subtype;
+    }
+}
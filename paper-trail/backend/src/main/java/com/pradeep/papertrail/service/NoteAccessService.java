@@ -0,0 +1,66 @@
+package com.pradeep.papertrail.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pradeep.papertrail.model.AccessLevel;
+import com.pradeep.papertrail.repository.NoteRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Resolves the effective permission of a user on a note.
+ * Results are kept in a bounded node-local cache; write paths that change
+ * ownership or sharing must call one of the invalidate methods.
+ */
+@Service
+public class NoteAccessService {
+
+    private final NoteRepository noteRepository;
+    private final Cache<AccessKey, AccessLevel> cache;
+
+    public NoteAccessService(NoteRepository noteRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${papertrail.access-cache.max-size:10000}") long maxSize,
+                             @Value("${papertrail.access-cache.ttl:60s}") Duration ttl) {
+        this.noteRepository = noteRepository;
+        // The TTL bounds staleness when another node changes a permission
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "noteAccess");
+    }
+
+    /**
+     * Get the access level of a user on a note
+     * @param noteId The note ID
+     * @param userId The user ID
+     * @return OWNER, EDIT, READ or NONE
+     * @throws RuntimeException if the note does not exist
+     */
+    public AccessLevel resolve(Long noteId, Long userId) {
+        // Loading inside the cache makes an invalidate that races the query wait for it and then drop its result.
+        // Missing notes throw and are not cached, so a later create is never masked
+        return cache.get(new AccessKey(noteId, userId), key -> noteRepository.findAccessLevel(noteId, userId)
+                .map(AccessLevel::valueOf)
+                .orElseThrow(() -> new RuntimeException("Note not found")));
+    }
+
+    // Drop the cached access of one user on a note (share / revoke)
+    public void invalidate(Long noteId, Long userId) {
+        cache.invalidate(new AccessKey(noteId, userId));
+    }
+
+    // Drop every cached entry for a note (delete)
+    public void invalidateNote(Long noteId) {
+        cache.asMap().keySet().removeIf(key -> key.noteId().equals(noteId));
+    }
+
+    private record AccessKey(Long noteId, Long userId) {
+    }
+}
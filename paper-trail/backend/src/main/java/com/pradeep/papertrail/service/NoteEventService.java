@@ -0,0 +1,221 @@
+package com.pradeep.papertrail.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pradeep.papertrail.dto.NoteEventDTO;
+import com.pradeep.papertrail.repository.NotePermissionRepository;
+import com.pradeep.papertrail.repository.NoteRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user change feed over server-sent events.
+ * Connections are servlet async requests, so an idle subscriber holds no thread. Each user keeps a
+ * bounded buffer of recent events; a client reconnecting with Last-Event-ID gets only what it missed,
+ * or a single "resync" event when the gap is no longer buffered (or the server restarted).
+ * Buffers and fan-out are node-local, like the access cache and the second-level cache: with several
+ * instances, a client subscribed on one node never sees writes made on another, and a reconnect that
+ * lands on a different node gets a "resync".
+ */
+@Service
+public class NoteEventService {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteEventService.class);
+
+    // Event ids are "<epoch>-<sequence>"; a different epoch means the id came from an earlier process
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final NoteRepository noteRepository;
+    private final NotePermissionRepository permissionRepository;
+    private final Map<Long, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final Cache<Long, UserBuffer> buffers;
+    private final int bufferSize;
+
+    @Value("${papertrail.events.timeout:30m}")
+    private Duration timeout;
+
+    public NoteEventService(NoteRepository noteRepository,
+                            NotePermissionRepository permissionRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${papertrail.events.buffer-size:100}") int bufferSize,
+                            @Value("${papertrail.events.buffer-ttl:15m}") Duration bufferTtl) {
+        this.noteRepository = noteRepository;
+        this.permissionRepository = permissionRepository;
+        this.bufferSize = bufferSize;
+        // Idle users' buffers expire; a client returning after that simply gets a resync
+        this.buffers = Caffeine.newBuilder()
+                .expireAfterAccess(bufferTtl)
+                .build();
+        meterRegistry.gaugeMapSize("papertrail.events.subscribed.users", List.of(), emitters);
+    }
+
+    /**
+     * Open a change feed for a user
+     * @param userId The subscribing user
+     * @param lastEventId The Last-Event-ID header of a reconnecting client, null on first connect
+     * @return The emitter to return from the controller
+     */
+    public SseEmitter subscribe(Long userId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        UserBuffer buffer = buffer(userId);
+
+        // Replay and registration happen under the buffer lock so no event falls in between
+        synchronized (buffer) {
+            try {
+                if (lastEventId != null) {
+                    replay(emitter, buffer, lastEventId);
+                } else {
+                    emitter.send(SseEmitter.event().comment("connected"));
+                }
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+                return emitter;
+            }
+            List<SseEmitter> userEmitters = emitters.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>());
+            userEmitters.add(emitter);
+        }
+
+        Runnable remove = () -> removeEmitter(userId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * Publish an event to the note's owner and everyone it is shared with
+     * @param event The event
+     */
+    @Async("noteEventExecutor")
+    public void publish(NoteEventDTO event) {
+        Set<Long> recipients = new LinkedHashSet<>();
+        noteRepository.findOwnerIdById(event.getNoteId()).ifPresent(recipients::add);
+        recipients.addAll(permissionRepository.findUserIdsByNoteId(event.getNoteId()));
+        deliver(event, recipients);
+    }
+
+    /**
+     * Publish an event to an explicit set of users, for changes after which the note or grant
+     * can no longer be looked up (deletes, revokes)
+     * @param event The event
+     * @param recipients The users to notify
+     */
+    @Async("noteEventExecutor")
+    public void publish(NoteEventDTO event, Collection<Long> recipients) {
+        deliver(event, recipients);
+    }
+
+    // Comment frames keep idle connections alive through proxies and surface dead ones
+    @Scheduled(fixedDelayString = "${papertrail.events.heartbeat-interval:25s}")
+    public void heartbeat() {
+        emitters.forEach((userId, userEmitters) -> {
+            for (SseEmitter emitter : userEmitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("ping"));
+                } catch (IOException | IllegalStateException e) {
+                    removeEmitter(userId, emitter);
+                }
+            }
+        });
+    }
+
+    private void deliver(NoteEventDTO event, Collection<Long> recipients) {
+        for (Long userId : recipients) {
+            UserBuffer buffer = buffer(userId);
+            synchronized (buffer) {
+                // Numbered under the user's lock, so each user's stream is strictly increasing
+                BufferedEvent buffered = new BufferedEvent(sequence.incrementAndGet(), event);
+                buffer.events.addLast(buffered);
+                while (buffer.events.size() > bufferSize) {
+                    buffer.evictedThrough = buffer.events.removeFirst().sequence();
+                }
+                for (SseEmitter emitter : emitters.getOrDefault(userId, List.of())) {
+                    try {
+                        send(emitter, buffered);
+                    } catch (IOException | IllegalStateException e) {
+                        log.debug("Dropping event stream of user {}: {}", userId, e.getMessage());
+                        removeEmitter(userId, emitter);
+                    }
+                }
+            }
+        }
+    }
+
+    private void replay(SseEmitter emitter, UserBuffer buffer, String lastEventId) throws IOException {
+        long last = parseSequence(lastEventId);
+        // Unknown id, a previous process, or events already evicted: the client must refetch its lists
+        if (last < buffer.evictedThrough) {
+            emitter.send(SseEmitter.event().id(epoch + "-" + sequence.get()).name("resync").data("{}"));
+            return;
+        }
+        for (BufferedEvent buffered : buffer.events) {
+            if (buffered.sequence() > last) {
+                send(emitter, buffered);
+            }
+        }
+    }
+
+    private long parseSequence(String lastEventId) {
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void send(SseEmitter emitter, BufferedEvent buffered) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(epoch + "-" + buffered.sequence())
+                .name(buffered.event().getType().name())
+                .data(buffered.event(), MediaType.APPLICATION_JSON));
+    }
+
+    private UserBuffer buffer(Long userId) {
+        return buffers.get(userId, id -> new UserBuffer(sequence.get()));
+    }
+
+    private void removeEmitter(Long userId, SseEmitter emitter) {
+        emitters.computeIfPresent(userId, (id, userEmitters) -> {
+            userEmitters.remove(emitter);
+            return userEmitters.isEmpty() ? null : userEmitters;
+        });
+    }
+
+    private record BufferedEvent(long sequence, NoteEventDTO event) {
+    }
+
+    // Recent events of one user; anything at or below evictedThrough can no longer be replayed
+    private static final class UserBuffer {
+        private final Deque<BufferedEvent> events = new ArrayDeque<>();
+        private long evictedThrough;
+
+        private UserBuffer(long evictedThrough) {
+            this.evictedThrough = evictedThrough;
+        }
+    }
+}
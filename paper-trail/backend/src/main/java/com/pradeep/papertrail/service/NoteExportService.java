@@ -0,0 +1,178 @@
+package com.pradeep.papertrail.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams a user's notes straight from a server-side cursor to the response.
+ * Rows are fetched in batches of papertrail.export.fetch-size inside a read-only transaction
+ * (PostgreSQL only uses a cursor when auto-commit is off) and content is copied as raw jsonb text,
+ * so memory use does not depend on how many notes are exported.
+ * Notes are written in id order; passing the last exported id as "after" resumes an interrupted export.
+ */
+@Service
+public class NoteExportService {
+
+    public enum Scope {
+        ALL, OWNED, SHARED
+    }
+
+    private static final String OWNED = "n.user_id = ?";
+    private static final String SHARED = "exists (select 1 from note_permissions p where p.note_id = n.id and p.user_id = ?)";
+
+    private static final String SELECT = """
+            select n.id, n.title, n.created_by, n.user_id, n.created_at, n.updated_at, n.version,
+                   case when n.user_id = ? then 'OWNER'
+                        else (select case when bool_or(p.permission = 'EDIT') then 'EDIT' else 'READ' end
+                              from note_permissions p where p.note_id = n.id and p.user_id = ?)
+                   end as access,
+                   cast(n.content as text) as content
+            from note n
+            where n.id > ? and %s
+            order by n.id""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public NoteExportService(DataSource dataSource,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${papertrail.export.fetch-size:500}") int fetchSize) {
+        // A dedicated template so the fetch size only applies to exports
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write notes as newline-delimited JSON, one note per line
+     * @param userId The exporting user
+     * @param scope Which notes: owned, shared with the user, or both
+     * @param after Only export notes with a greater id, 0 for everything
+     * @param out The response stream; not closed
+     * @return The number of notes written
+     */
+    public long exportNdjson(Long userId, Scope scope, long after, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        // One generator for the whole stream; it must not close the servlet stream behind our back
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        long count = stream(userId, scope, after, rs -> {
+            writeNote(generator, rs);
+            generator.writeRaw('\n');
+        });
+        generator.flush();
+        return count;
+    }
+
+    /**
+     * Write notes as a zip archive with one notes/{id}.json entry per note
+     * @param userId The exporting user
+     * @param scope Which notes: owned, shared with the user, or both
+     * @param after Only export notes with a greater id, 0 for everything
+     * @param out The response stream; not closed
+     * @return The number of notes written
+     */
+    public long exportZip(Long userId, Scope scope, long after, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        long count = stream(userId, scope, after, rs -> {
+            zip.putNextEntry(new ZipEntry("notes/" + rs.getLong("id") + ".json"));
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(zip, JsonEncoding.UTF8);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writeNote(generator, rs);
+            generator.flush();
+            zip.closeEntry();
+        });
+        zip.finish();
+        return count;
+    }
+
+    private long stream(Long userId, Scope scope, long after, RowWriter writer) throws IOException {
+        String filter;
+        Object[] args;
+        switch (scope) {
+            case OWNED -> {
+                filter = OWNED;
+                args = new Object[]{userId, userId, after, userId};
+            }
+            case SHARED -> {
+                filter = "n.user_id <> ? and " + SHARED;
+                args = new Object[]{userId, userId, after, userId, userId};
+            }
+            default -> {
+                filter = "(" + OWNED + " or " + SHARED + ")";
+                args = new Object[]{userId, userId, after, userId, userId};
+            }
+        }
+
+        long[] count = {0};
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.query(SELECT.formatted(filter), rs -> {
+                        try {
+                            writer.write(rs);
+                            count[0]++;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, args));
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; stop reading rows
+            throw e.getCause();
+        }
+        return count[0];
+    }
+
+    private void writeNote(JsonGenerator generator, ResultSet rs) throws IOException, SQLException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", rs.getLong("id"));
+        generator.writeStringField("title", rs.getString("title"));
+        generator.writeStringField("createdBy", rs.getString("created_by"));
+        generator.writeNumberField("userId", rs.getLong("user_id"));
+        writeTimestamp(generator, "createdAt", rs.getTimestamp("created_at"));
+        writeTimestamp(generator, "updatedAt", rs.getTimestamp("updated_at"));
+        generator.writeNumberField("version", rs.getLong("version"));
+        generator.writeStringField("access", rs.getString("access"));
+        generator.writeFieldName("content");
+        String content = rs.getString("content");
+        if (content == null) {
+            generator.writeNull();
+        } else {
+            // Already valid JSON from PostgreSQL; copied as-is instead of parsed into a Map
+            generator.writeRawValue(content);
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeTimestamp(JsonGenerator generator, String field, Timestamp value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeStringField(field, value.toLocalDateTime().toString());
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws IOException, SQLException;
+    }
+}
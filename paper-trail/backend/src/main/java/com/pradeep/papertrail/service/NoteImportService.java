@@ -0,0 +1,151 @@
+package com.pradeep.papertrail.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.pradeep.papertrail.dto.NoteDTO;
+import com.pradeep.papertrail.dto.NoteImportResultDTO;
+import com.pradeep.papertrail.model.Note;
+import com.pradeep.papertrail.model.User;
+import com.pradeep.papertrail.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk note import from newline-delimited JSON, one note per line in the shape of {@link NoteDTO}
+ * (an export file can be fed back in; ids, owners and versions in it are ignored).
+ * Lines are read as they arrive and inserted batch-size notes at a time, each batch one transaction
+ * sent as JDBC batches; note ids come from a pooled sequence, which is what lets Hibernate batch at all.
+ * A bad line is recorded and skipped. Imported notes get no revision or change-feed event: history
+ * starts with the first edit, and clients pick the notes up on their next list fetch.
+ */
+@Service
+public class NoteImportService {
+
+    private final EntityManager entityManager;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader noteReader;
+
+    @Value("${papertrail.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${papertrail.import.max-errors:1000}")
+    private int maxErrors;
+
+    public NoteImportService(EntityManager entityManager,
+                             UserRepository userRepository,
+                             TransactionTemplate transactionTemplate,
+                             ObjectMapper objectMapper) {
+        this.entityManager = entityManager;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.noteReader = objectMapper.readerFor(NoteDTO.class);
+    }
+
+    /**
+     * Import notes for a user
+     * @param userId The owner of the imported notes
+     * @param createdBy The owner's display name
+     * @param in NDJSON input; blank lines are skipped
+     * @return Counts and per-line errors
+     */
+    public NoteImportResultDTO importNdjson(Long userId, String createdBy, InputStream in) throws IOException {
+        NoteImportResultDTO result = new NoteImportResultDTO();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<Line> batch = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.isBlank()) {
+                continue;
+            }
+            try {
+                batch.add(new Line(lineNumber, parse(text)));
+            } catch (JsonProcessingException e) {
+                addError(result, lineNumber, e.getOriginalMessage());
+            } catch (IllegalArgumentException e) {
+                addError(result, lineNumber, e.getMessage());
+            }
+            if (batch.size() == batchSize) {
+                insert(batch, userId, createdBy, result);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(batch, userId, createdBy, result);
+        }
+        return result;
+    }
+
+    private NoteDTO parse(String text) throws JsonProcessingException {
+        NoteDTO note = noteReader.readValue(text);
+        if (note == null) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        // Caught here rather than failing the whole batch in the database
+        if (note.getTitle() != null && note.getTitle().length() > 255) {
+            throw new IllegalArgumentException("Title is longer than 255 characters");
+        }
+        return note;
+    }
+
+    private void insert(List<Line> batch, Long userId, String createdBy, NoteImportResultDTO result) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(batch, userId, createdBy));
+            result.setImported(result.getImported() + batch.size());
+        } catch (RuntimeException e) {
+            // One failing row fails the whole batch; retry row by row to isolate it
+            for (Line line : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persist(List.of(line), userId, createdBy));
+                    result.setImported(result.getImported() + 1);
+                } catch (RuntimeException single) {
+                    addError(result, line.number(), NestedExceptionUtils.getMostSpecificCause(single).getMessage());
+                }
+            }
+        }
+    }
+
+    private void persist(List<Line> batch, Long userId, String createdBy) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        User owner = userRepository.getReferenceById(userId);
+        for (Line line : batch) {
+            NoteDTO dto = line.note();
+            Note note = new Note();
+            note.setTitle(dto.getTitle());
+            note.setContent(dto.getContent());
+            note.setUser(owner);
+            note.setCreatedBy(createdBy);
+            note.setCreatedAt(dto.getCreatedAt());
+            note.setUpdatedAt(dto.getUpdatedAt());
+            entityManager.persist(note);
+        }
+        entityManager.flush();
+        // Detach the batch so memory stays flat however long the input is
+        entityManager.clear();
+    }
+
+    private void addError(NoteImportResultDTO result, long line, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new NoteImportResultDTO.RecordError(line, message));
+        }
+    }
+
+    private record Line(long number, NoteDTO note) {
+    }
+}
@@ -0,0 +1,317 @@
+package com.pradeep.papertrail.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pradeep.papertrail.model.Note;
+import com.pradeep.papertrail.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Applies partial updates to Note.content.
+ * JSON Patch documents made only of independent replace/test operations, or a single add/remove,
+ * are translated into one jsonb_set UPDATE so the document never leaves PostgreSQL.
+ * Everything else (and any pushdown that does not match) is applied in memory.
+ */
+@Service
+public class NotePatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotePatchService.class);
+
+    private static final TypeReference<Map<String, Object>> CONTENT_TYPE = new TypeReference<>() {
+    };
+
+    // SQL twin of Note.extractSnippet, evaluated over the patched document "p.c"
+    private static final String SNIPPET_SQL = """
+            (select left(btrim(replace(regexp_replace(b -> 'data' ->> 'text', '<[^>]*>', '', 'g'), '&nbsp;', ' ')), %d)
+             from jsonb_array_elements(case when jsonb_typeof(p.c -> 'blocks') = 'array'
+                                            then p.c -> 'blocks' else '[]'::jsonb end) with ordinality as e(b, i)
+             where jsonb_typeof(b -> 'data' -> 'text') = 'string'
+               and btrim(replace(regexp_replace(b -> 'data' ->> 'text', '<[^>]*>', '', 'g'), '&nbsp;', ' ')) <> ''
+             order by i limit 1)""".formatted(Note.SNIPPET_LENGTH);
+
+    private final NoteRepository noteRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final NoteRevisionService revisionService;
+
+    @Value("${papertrail.notes.patch-pushdown:true}")
+    private boolean pushdownEnabled;
+
+    public NotePatchService(NoteRepository noteRepository,
+                            JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            ObjectMapper objectMapper,
+                            NoteRevisionService revisionService) {
+        this.noteRepository = noteRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.revisionService = revisionService;
+    }
+
+    /**
+     * Apply an RFC 6902 JSON Patch to a note's content
+     * @param noteId The note to patch; access must already be checked
+     * @param patch The patch document
+     * @param expectedVersions Versions the client based its patch on (If-Match), null for any
+     * @param userId The user making the change, recorded in the revision history
+     * @return The new version of the note
+     * @throws IllegalArgumentException if the patch is invalid or cannot be applied
+     * @throws VersionConflictException if the note is not at one of the expected versions
+     */
+    public Long applyJsonPatch(Long noteId, JsonNode patch, List<Long> expectedVersions, Long userId) {
+        if (patch == null || !patch.isArray()) {
+            throw new IllegalArgumentException("JSON Patch must be an array of operations");
+        }
+        if (pushdownEnabled) {
+            Long version = transactionTemplate.execute(status -> {
+                Patched patched = tryPushdown(noteId, patch, expectedVersions);
+                if (patched == null) {
+                    // Nothing was written; a failed statement has also aborted the transaction
+                    status.setRollbackOnly();
+                    return null;
+                }
+                // The document never left the database, so the patch itself is the revision delta.
+                // A snapshot takes the content the UPDATE returned: the row stays locked until commit.
+                revisionService.recordPatch(noteId, patched.version(), patched.title(), patched.snapshot(), patch,
+                        userId);
+                return patched.version();
+            });
+            if (version != null) {
+                return version;
+            }
+        }
+        return updateInMemory(noteId, expectedVersions, userId, content -> JsonPatches.apply(content, patch));
+    }
+
+    /**
+     * Apply an RFC 7386 JSON Merge Patch to a note's content
+     * @param noteId The note to patch; access must already be checked
+     * @param patch The merge patch document
+     * @param expectedVersions Versions the client based its patch on (If-Match), null for any
+     * @param userId The user making the change, recorded in the revision history
+     * @return The new version of the note
+     * @throws VersionConflictException if the note is not at one of the expected versions
+     */
+    public Long applyMergePatch(Long noteId, JsonNode patch, List<Long> expectedVersions, Long userId) {
+        return updateInMemory(noteId, expectedVersions, userId, content -> JsonPatches.merge(content, patch));
+    }
+
+    private Long updateInMemory(Long noteId, List<Long> expectedVersions, Long userId,
+                                UnaryOperator<JsonNode> change) {
+        return transactionTemplate.execute(status -> {
+            Note note = noteRepository.findById(noteId)
+                    .orElseThrow(() -> new RuntimeException("Note not found"));
+            if (expectedVersions != null && !expectedVersions.contains(note.getVersion())) {
+                throw new VersionConflictException("Note has been modified since version " + expectedVersions);
+            }
+
+            Map<String, Object> previousContent = note.getContent();
+            JsonNode patched = change.apply(objectMapper.valueToTree(previousContent));
+            if (!patched.isObject()) {
+                throw new IllegalArgumentException("Note content must be a JSON object");
+            }
+            note.setContent(objectMapper.convertValue(patched, CONTENT_TYPE));
+            note.setUpdatedAt(LocalDateTime.now());
+            Note savedNote = noteRepository.saveAndFlush(note);
+            revisionService.recordChange(savedNote, previousContent, userId);
+            return savedNote.getVersion();
+        });
+    }
+
+    // Returns the new version, or null when the patch cannot be pushed down or a precondition did not hold
+    private Patched tryPushdown(Long noteId, JsonNode patch, List<Long> expectedVersions) {
+        Pushdown pushdown = plan(patch);
+        if (pushdown == null) {
+            return null;
+        }
+        if (expectedVersions != null) {
+            if (expectedVersions.isEmpty()) {
+                return null;
+            }
+            pushdown.require("version in (" + String.join(", ", Collections.nCopies(expectedVersions.size(), "?")) + ")",
+                    expectedVersions.toArray());
+        }
+
+        String sql = "update note n set content = p.c, updated_at = ?, version = n.version + 1, snippet = "
+                + SNIPPET_SQL
+                + " from (select " + pushdown.expression + " as c from note where id = ?"
+                + pushdown.conditions.stream().map(c -> " and " + c).collect(Collectors.joining())
+                + ") p where n.id = ? returning n.version, n.title, case when "
+                + revisionService.snapshotCondition("n") + " then n.content end as snapshot";
+
+        List<Object> args = new ArrayList<>();
+        args.add(LocalDateTime.now());
+        args.addAll(pushdown.expressionArgs);
+        args.add(noteId);
+        args.addAll(pushdown.conditionArgs);
+        args.add(noteId);
+
+        try {
+            List<Patched> rows = jdbcTemplate.query(sql, (rs, i) -> new Patched(rs.getLong("version"),
+                    rs.getString("title"), readSnapshot(rs.getString("snapshot"))), args.toArray());
+            return rows.isEmpty() ? null : rows.get(0);
+        } catch (DataAccessException e) {
+            // e.g. a non-integer token used on an array; the in-memory path reports the proper error
+            log.debug("Falling back to in-memory patch for note {}: {}", noteId, e.getMessage());
+            return null;
+        }
+    }
+
+    private Pushdown plan(JsonNode patch) {
+        List<JsonNode> operations = new ArrayList<>();
+        patch.forEach(operations::add);
+        if (operations.isEmpty()) {
+            return null;
+        }
+
+        List<List<String>> paths = new ArrayList<>();
+        for (JsonNode operation : operations) {
+            if (!operation.path("op").isTextual() || !operation.path("path").isTextual()) {
+                return null;
+            }
+            List<String> path = JsonPatches.parsePointer(operation.get("path").asText());
+            if (path.isEmpty() || path.stream().anyMatch(NotePatchService::isLooseIndex)) {
+                return null;
+            }
+            paths.add(path);
+        }
+
+        String first = operations.get(0).get("op").asText();
+        if (operations.size() == 1 && ("add".equals(first) || "remove".equals(first))) {
+            return "add".equals(first)
+                    ? planAdd(paths.get(0), operations.get(0))
+                    : planRemove(paths.get(0));
+        }
+
+        // replace/test only touch existing values, so independent ones can be checked against the original row
+        for (int i = 0; i < operations.size(); i++) {
+            String op = operations.get(i).get("op").asText();
+            if (!("replace".equals(op) || "test".equals(op)) || !operations.get(i).has("value")) {
+                return null;
+            }
+            for (int j = 0; j < i; j++) {
+                if (overlaps(paths.get(i), paths.get(j))) {
+                    return null;
+                }
+            }
+        }
+        if (operations.stream().noneMatch(operation -> "replace".equals(operation.get("op").asText()))) {
+            return null;
+        }
+
+        Pushdown pushdown = new Pushdown("content");
+        for (int i = 0; i < operations.size(); i++) {
+            String path = toTextArray(paths.get(i));
+            String value = operations.get(i).get("value").toString();
+            if ("replace".equals(operations.get(i).get("op").asText())) {
+                pushdown.wrap("jsonb_set(", ", cast(? as text[]), cast(? as jsonb), false)", path, value);
+                pushdown.require("content #> cast(? as text[]) is not null", path);
+            } else {
+                pushdown.require("content #> cast(? as text[]) = cast(? as jsonb)", path, value);
+            }
+        }
+        return pushdown;
+    }
+
+    private Pushdown planAdd(List<String> path, JsonNode operation) {
+        String last = path.get(path.size() - 1);
+        if (!operation.has("value") || "-".equals(last)) {
+            return null;
+        }
+        String target = toTextArray(path);
+        String parent = toTextArray(path.subList(0, path.size() - 1));
+        String value = operation.get("value").toString();
+
+        Pushdown pushdown = new Pushdown("content");
+        if (JsonPatches.isArrayIndex(last)) {
+            pushdown.wrap("(case jsonb_typeof(", " #> cast(? as text[])) when 'array' then jsonb_insert(content, "
+                    + "cast(? as text[]), cast(? as jsonb)) else jsonb_set(content, cast(? as text[]), "
+                    + "cast(? as jsonb), true) end)", parent, target, value, target, value);
+            pushdown.require("(jsonb_typeof(content #> cast(? as text[])) = 'object' or "
+                    + "(jsonb_typeof(content #> cast(? as text[])) = 'array' and "
+                    + "jsonb_array_length(content #> cast(? as text[])) >= " + Integer.parseInt(last) + "))",
+                    parent, parent, parent);
+        } else {
+            pushdown.wrap("jsonb_set(", ", cast(? as text[]), cast(? as jsonb), true)", target, value);
+            pushdown.require("jsonb_typeof(content #> cast(? as text[])) = 'object'", parent);
+        }
+        return pushdown;
+    }
+
+    private Pushdown planRemove(List<String> path) {
+        String target = toTextArray(path);
+        Pushdown pushdown = new Pushdown("content");
+        pushdown.wrap("(", " #- cast(? as text[]))", target);
+        pushdown.require("content #> cast(? as text[]) is not null", target);
+        return pushdown;
+    }
+
+    private JsonNode readSnapshot(String json) {
+        try {
+            return json != null ? objectMapper.readTree(json) : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // PostgreSQL reads "-1" (from the end), "01", " 1" and "+1" as array positions where JsonPatches rejects
+    // them; such tokens are left to the in-memory path, which also keeps stored deltas replayable
+    private static boolean isLooseIndex(String token) {
+        return token.matches("\\s*[+-]?[0-9].*") && !JsonPatches.isArrayIndex(token);
+    }
+
+    private static boolean overlaps(List<String> a, List<String> b) {
+        int common = Math.min(a.size(), b.size());
+        return a.subList(0, common).equals(b.subList(0, common));
+    }
+
+    // PostgreSQL text[] literal with every element quoted, e.g. {"blocks","3","data","text"}
+    private static String toTextArray(List<String> tokens) {
+        return tokens.stream()
+                .map(token -> "\"" + token.replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private record Patched(Long version, String title, JsonNode snapshot) {
+    }
+
+    // A jsonb expression over the current content plus the WHERE preconditions it relies on
+    private static final class Pushdown {
+        private String expression;
+        private final List<Object> expressionArgs = new ArrayList<>();
+        private final List<String> conditions = new ArrayList<>();
+        private final List<Object> conditionArgs = new ArrayList<>();
+
+        private Pushdown(String expression) {
+            this.expression = expression;
+        }
+
+        private void wrap(String prefix, String suffix, Object... args) {
+            expression = prefix + expression + suffix;
+            expressionArgs.addAll(List.of(args));
+        }
+
+        private void require(String condition, Object... args) {
+            conditions.add(condition);
+            conditionArgs.addAll(List.of(args));
+        }
+    }
+}
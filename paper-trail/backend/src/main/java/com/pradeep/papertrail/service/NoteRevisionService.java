@@ -0,0 +1,228 @@
+package com.pradeep.papertrail.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pradeep.papertrail.dto.NoteRevisionDTO;
+import com.pradeep.papertrail.model.Note;
+import com.pradeep.papertrail.model.NoteRevision;
+import com.pradeep.papertrail.repository.NoteRepository;
+import com.pradeep.papertrail.repository.NoteRevisionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the version history of note content.
+ * Each save stores a JSON Patch against the previous version, with a full snapshot every
+ * snapshot-interval versions (or whenever the chain is broken), so rebuilding any version
+ * replays at most snapshot-interval - 1 deltas. Old history is squashed by {@link #compact()}.
+ */
+@Service
+public class NoteRevisionService {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteRevisionService.class);
+
+    private static final TypeReference<Map<String, Object>> CONTENT_TYPE = new TypeReference<>() {
+    };
+
+    private final NoteRevisionRepository revisionRepository;
+    private final NoteRepository noteRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${papertrail.revisions.snapshot-interval:20}")
+    private int snapshotInterval;
+
+    @Value("${papertrail.revisions.retention:30d}")
+    private Duration retention;
+
+    @Value("${papertrail.revisions.compaction-batch-size:100}")
+    private int compactionBatchSize;
+
+    public NoteRevisionService(NoteRevisionRepository revisionRepository,
+                               NoteRepository noteRepository,
+                               TransactionTemplate transactionTemplate,
+                               ObjectMapper objectMapper) {
+        this.revisionRepository = revisionRepository;
+        this.noteRepository = noteRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Save a note and record the version it produces, in one transaction, so a version never lacks its revision
+     * @param note The note with its changes applied
+     * @param previousContent The content before this save, null for a new note
+     * @param userId The user who saved it
+     * @return The saved note, carrying its new version
+     */
+    public Note saveVersion(Note note, Map<String, Object> previousContent, Long userId) {
+        return transactionTemplate.execute(status -> {
+            Note savedNote = noteRepository.saveAndFlush(note);
+            recordChange(savedNote, previousContent, userId);
+            return savedNote;
+        });
+    }
+
+    /**
+     * Record a saved version of a note; call inside the transaction that saved it
+     * @param note The note as saved, carrying its new version
+     * @param previousContent The content before this save, null for a new note
+     * @param userId The user who saved it
+     */
+    public void recordChange(Note note, Map<String, Object> previousContent, Long userId) {
+        JsonNode current = objectMapper.valueToTree(note.getContent());
+        boolean snapshot = previousContent == null || needsSnapshot(note.getId(), note.getVersion());
+        JsonNode data = snapshot ? current : JsonPatches.diff(objectMapper.valueToTree(previousContent), current);
+        save(note.getId(), note.getVersion(), note.getTitle(), snapshot, data, userId);
+    }
+
+    /**
+     * Record a version produced by a JSON Patch that was applied without loading the note;
+     * call inside the transaction that applied it
+     * @param noteId The patched note
+     * @param version The version the patch produced
+     * @param title The note's title, stored with a snapshot
+     * @param snapshot The patched content if {@link #snapshotCondition} held for the new version, else null
+     * @param patch The applied patch, stored as the delta otherwise
+     * @param userId The user who saved it
+     */
+    public void recordPatch(Long noteId, Long version, String title, JsonNode snapshot, JsonNode patch, Long userId) {
+        if (snapshot != null) {
+            save(noteId, version, title, true, snapshot, userId);
+        } else {
+            // Title is unchanged by a patch; null means "same as the previous revision"
+            save(noteId, version, null, false, patch, userId);
+        }
+    }
+
+    /**
+     * SQL twin of the snapshot rule for a note row that already carries its new version, so an UPDATE
+     * can return the content only when the revision needs it
+     * @param alias Alias of the note table in the statement
+     */
+    public String snapshotCondition(String alias) {
+        return ("(%1$s.version %% %2$d = 0 or not exists (select 1 from note_revisions r"
+                + " where r.note_id = %1$s.id and r.version = %1$s.version - 1))").formatted(alias, snapshotInterval);
+    }
+
+    /**
+     * List revisions of a note, newest first
+     * @param noteId The note ID
+     * @param before Only return versions lower than this, null for the newest
+     * @param limit Maximum number of revisions
+     * @return Revision metadata without content
+     */
+    public List<NoteRevisionDTO> list(Long noteId, Long before, int limit) {
+        return revisionRepository.findSummaries(noteId, before != null ? before : Long.MAX_VALUE, Limit.of(limit));
+    }
+
+    /**
+     * Rebuild a version of a note from its nearest snapshot and the deltas after it
+     * @param noteId The note ID
+     * @param version The version to rebuild
+     * @return The revision with its content
+     * @throws RuntimeException if the revision does not exist
+     * @throws IllegalStateException if the stored chain cannot produce the version
+     */
+    public NoteRevisionDTO get(Long noteId, Long version) {
+        List<NoteRevision> chain = revisionRepository.findChain(noteId, version);
+        if (chain.isEmpty() || !chain.get(chain.size() - 1).getVersion().equals(version)) {
+            throw new RuntimeException("Revision not found");
+        }
+
+        NoteRevision base = chain.get(0);
+        NoteRevision last = chain.get(chain.size() - 1);
+        if (chain.size() != last.getVersion() - base.getVersion() + 1) {
+            throw new IllegalStateException("Revision history of note " + noteId + " is incomplete");
+        }
+
+        JsonNode content = base.getData();
+        String title = base.getTitle();
+        for (NoteRevision delta : chain.subList(1, chain.size())) {
+            content = JsonPatches.apply(content, delta.getData());
+            if (delta.getTitle() != null) {
+                title = delta.getTitle();
+            }
+        }
+
+        NoteRevisionDTO revision = new NoteRevisionDTO(version, title, last.isSnapshot(), last.getUserId(),
+                last.getCreatedAt());
+        revision.setContent(objectMapper.convertValue(content, CONTENT_TYPE));
+        return revision;
+    }
+
+    /**
+     * Squash history older than the retention period: for every note, the newest revision before
+     * the cutoff becomes a snapshot and everything older is deleted.
+     */
+    @Scheduled(cron = "${papertrail.revisions.compaction-cron:0 30 3 * * *}")
+    public void compact() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int notes = 0;
+        int deleted = 0;
+        List<Long> noteIds;
+        do {
+            noteIds = revisionRepository.findCompactableNoteIds(cutoff, Limit.of(compactionBatchSize));
+            for (Long noteId : noteIds) {
+                // One transaction per note keeps locks short; a failing note would be selected again
+                // by the next batch, so the run stops there and the next one retries it
+                try {
+                    Integer removed = transactionTemplate.execute(status -> squash(noteId, cutoff));
+                    deleted += removed != null ? removed : 0;
+                    notes++;
+                } catch (RuntimeException e) {
+                    log.warn("Could not compact revisions of note {}: {}", noteId, e.getMessage());
+                    return;
+                }
+            }
+        } while (noteIds.size() == compactionBatchSize);
+        if (notes > 0) {
+            log.info("Compacted revision history of {} notes, {} revisions removed", notes, deleted);
+        }
+    }
+
+    private int squash(Long noteId, LocalDateTime cutoff) {
+        Long boundary = revisionRepository.findLatestVersionBefore(noteId, cutoff).orElse(null);
+        if (boundary == null) {
+            return 0;
+        }
+        NoteRevision revision = revisionRepository.findByNoteIdAndVersion(noteId, boundary)
+                .orElseThrow(() -> new RuntimeException("Revision not found"));
+        if (!revision.isSnapshot()) {
+            NoteRevisionDTO state = get(noteId, boundary);
+            revision.setData(objectMapper.valueToTree(state.getContent()));
+            revision.setTitle(state.getTitle());
+            revision.setSnapshot(true);
+            revisionRepository.saveAndFlush(revision);
+        }
+        return revisionRepository.deleteOlderThan(noteId, boundary);
+    }
+
+    // Snapshot on the interval, and whenever the previous version is missing (a failed record or pre-history notes)
+    private boolean needsSnapshot(Long noteId, Long version) {
+        return version % snapshotInterval == 0 || !revisionRepository.existsByNoteIdAndVersion(noteId, version - 1);
+    }
+
+    private void save(Long noteId, Long version, String title, boolean snapshot, JsonNode data, Long userId) {
+        NoteRevision revision = new NoteRevision();
+        revision.setNote(noteRepository.getReferenceById(noteId));
+        revision.setVersion(version);
+        revision.setTitle(title);
+        revision.setSnapshot(snapshot);
+        revision.setData(data);
+        revision.setUserId(userId);
+        revision.setCreatedAt(LocalDateTime.now());
+        revisionRepository.save(revision);
+    }
+}
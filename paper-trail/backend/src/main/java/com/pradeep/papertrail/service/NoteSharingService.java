@@ -0,0 +1,114 @@
+package com.pradeep.papertrail.service;
+
+import com.pradeep.papertrail.dto.NoteEventDTO;
+import com.pradeep.papertrail.model.NotePermission;
+import com.pradeep.papertrail.repository.NotePermissionRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set-based writes of note permissions: any number of notes x users in one statement.
+ * Relies on the unique (note_id, user_id) index from schema-postgresql.sql, so concurrent shares
+ * of the same pair update one row instead of racing to insert two. Callers authorize; this class
+ * keeps the access cache, the second-level cache and the change feed in step with what actually changed.
+ */
+@Service
+public class NoteSharingService {
+
+    // Ids come from the entity's pooled sequence; each nextval reserves a whole block Hibernate will never hand out.
+    // Rows are inserted in (note, user) order so overlapping bulk shares lock in the same order.
+    private static final String UPSERT_SQL = """
+            insert into note_permissions (id, note_id, user_id, permission)
+            select nextval('note_permissions_seq'), n.id, u.id, ?
+            from unnest(?::bigint[]) as n(id) cross join unnest(?::bigint[]) as u(id)
+            order by n.id, u.id
+            on conflict (note_id, user_id) do update set permission = excluded.permission
+                where note_permissions.permission <> excluded.permission
+            returning id, note_id, user_id, (xmax = 0) as inserted""";
+
+    private static final String DELETE_SQL = """
+            delete from note_permissions
+            where note_id = any(?::bigint[]) and user_id = any(?::bigint[])
+            returning id, note_id, user_id, false as inserted""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NoteAccessService noteAccessService;
+    private final NoteEventService noteEventService;
+    private final Cache secondLevelCache;
+
+    public NoteSharingService(JdbcTemplate jdbcTemplate,
+                              NoteAccessService noteAccessService,
+                              NoteEventService noteEventService,
+                              EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.noteAccessService = noteAccessService;
+        this.noteEventService = noteEventService;
+        this.secondLevelCache = entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+
+    /**
+     * Grant a permission on every note to every user, inserting or updating as needed
+     * @param noteIds Notes the caller owns
+     * @param userIds Users to share with
+     * @param permission READ or EDIT
+     * @param actorId The sharing user, for the change feed
+     * @return The grants that were created or changed
+     */
+    public List<Grant> share(Collection<Long> noteIds, Collection<Long> userIds,
+                             NotePermission.Permission permission, Long actorId) {
+        List<Grant> changed = jdbcTemplate.query(UPSERT_SQL, (rs, i) -> new Grant(rs.getLong("id"),
+                        rs.getLong("note_id"), rs.getLong("user_id"), rs.getBoolean("inserted")),
+                permission.name(), toArray(noteIds), toArray(userIds));
+        evict(changed);
+        for (Grant grant : changed) {
+            noteAccessService.invalidate(grant.noteId(), grant.userId());
+            noteEventService.publish(new NoteEventDTO(NoteEventDTO.Type.NOTE_SHARED, grant.noteId(), null, null,
+                    permission.name(), actorId), List.of(grant.userId()));
+        }
+        return changed;
+    }
+
+    /**
+     * Remove every user's permission on every note
+     * @param noteIds Notes the caller owns
+     * @param userIds Users to revoke
+     * @param actorId The revoking user, for the change feed
+     * @return The grants that were removed
+     */
+    public List<Grant> revoke(Collection<Long> noteIds, Collection<Long> userIds, Long actorId) {
+        List<Grant> removed = jdbcTemplate.query(DELETE_SQL, (rs, i) -> new Grant(rs.getLong("id"),
+                        rs.getLong("note_id"), rs.getLong("user_id"), false),
+                toArray(noteIds), toArray(userIds));
+        evict(removed);
+        for (Grant grant : removed) {
+            noteAccessService.invalidate(grant.noteId(), grant.userId());
+            noteEventService.publish(new NoteEventDTO(NoteEventDTO.Type.PERMISSION_REVOKED, grant.noteId(), null,
+                    null, null, actorId), List.of(grant.userId()));
+        }
+        return removed;
+    }
+
+    // The SQL bypasses Hibernate, so neither the cached rows nor the cached audiences know they are stale.
+    // Audiences are evicted as a whole: a query region cannot be cleared per note, and shares are rare.
+    private void evict(List<Grant> grants) {
+        if (grants.isEmpty()) {
+            return;
+        }
+        for (Grant grant : grants) {
+            secondLevelCache.evictEntityData(NotePermission.class, grant.id());
+        }
+        secondLevelCache.evictQueryRegion(NotePermissionRepository.AUDIENCE_CACHE_REGION);
+    }
+
+    private static Long[] toArray(Collection<Long> ids) {
+        return ids.stream().distinct().sorted().toArray(Long[]::new);
+    }
+
+    public record Grant(Long id, Long noteId, Long userId, boolean inserted) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.pradeep.papertrail.service;
+
+import com.pradeep.papertrail.model.StorageOutboxEntry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Records storage side effects in the storage_outbox table, to be carried out by {@link StorageOutboxWorker}.
+ * Call it inside the transaction of the database change that needs the effect (removing an images row, say):
+ * the effect is then recorded exactly when that change commits, and survives a crash right after.
+ * Entries are keyed by operation and target, so the same effect is only ever queued once.
+ */
+@Service
+public class StorageOutbox {
+
+    private static final String RESCHEDULE_SQL =
+            "update storage_outbox set next_attempt_at = ? where idempotency_key = ?";
+
+    private static final String INSERT_SQL = """
+            insert into storage_outbox (operation, target, idempotency_key, attempts, next_attempt_at, created_at)
+            values (?, ?, ?, 0, ?, ?)
+            on conflict do nothing""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StorageOutbox(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Queue deletion of stored images, due right away
+     * @param publicIds Public IDs of the images
+     */
+    public void deleteImages(Collection<String> publicIds) {
+        schedule(publicIds, Duration.ZERO);
+    }
+
+    /**
+     * Queue deletion of a stored image after a delay. Registered before an upload, this removes the
+     * object unless {@link #cancelDelete} runs in the transaction that records it.
+     * @param publicId Public ID of the image
+     * @param delay How long until the deletion is due
+     */
+    public void deleteImageLater(String publicId, Duration delay) {
+        schedule(List.of(publicId), delay);
+    }
+
+    /**
+     * Drop a queued image deletion, e.g. once the upload it guarded is recorded
+     * @param publicId Public ID of the image
+     */
+    public void cancelDelete(String publicId) {
+        jdbcTemplate.update("delete from storage_outbox where idempotency_key = ?",
+                key(StorageOutboxEntry.Operation.DELETE_IMAGE, publicId));
+    }
+
+    // An already queued entry takes the new due time; otherwise one is inserted
+    private void schedule(Collection<String> publicIds, Duration delay) {
+        if (publicIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime due = now.plus(delay);
+        StorageOutboxEntry.Operation operation = StorageOutboxEntry.Operation.DELETE_IMAGE;
+        List<Object[]> reschedules = publicIds.stream()
+                .map(publicId -> new Object[]{due, key(operation, publicId)})
+                .toList();
+        jdbcTemplate.batchUpdate(RESCHEDULE_SQL, reschedules);
+        List<Object[]> inserts = publicIds.stream()
+                .map(publicId -> new Object[]{operation.name(), publicId, key(operation, publicId), due, now})
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+    }
+
+    static String key(StorageOutboxEntry.Operation operation, String target) {
+        return operation.name() + ":" + target;
+    }
+}
@@ -0,0 +1,211 @@
+package com.pradeep.papertrail.service;
+
+import com.pradeep.papertrail.model.StorageOutboxEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carries out the storage side effects queued in {@link StorageOutbox}.
+ * Due entries are claimed with SKIP LOCKED under a lease (their due time is pushed out by
+ * papertrail.storage.outbox.lease), so several nodes can drain concurrently and a batch whose worker
+ * died becomes due again. Claimed entries run in batches on the storageOutboxExecutor pool; successes
+ * are deleted, failures are retried with exponential backoff. Every operation is idempotent, so running
+ * an entry twice is harmless. An entry is carried out with its row locked, so an upload that queues the
+ * same object again waits until the delete has committed instead of losing its object to it.
+ */
+@Service
+public class StorageOutboxWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageOutboxWorker.class);
+
+    private static final String CLAIM_SQL = """
+            update storage_outbox set attempts = attempts + 1, next_attempt_at = ?
+            where id in (select id from storage_outbox where next_attempt_at <= ?
+                         order by next_attempt_at limit ? for update skip locked)
+            returning id, operation, target, attempts, next_attempt_at""";
+
+    private static final String LOCK_SQL = "select id, next_attempt_at from storage_outbox where id = any(?) for update";
+
+    private static final String RETRY_SQL =
+            "update storage_outbox set next_attempt_at = ?, last_error = ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageStorage imageStorage;
+    private final Executor executor;
+    private final int threads;
+    private final int batchSize;
+    private final Duration lease;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final double operationsPerSecond;
+    private final Counter completed;
+    private final Counter failed;
+
+    public StorageOutboxWorker(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               ImageStorage imageStorage,
+                               @Qualifier("storageOutboxExecutor") Executor executor,
+                               MeterRegistry meterRegistry,
+                               @Value("${papertrail.storage.outbox.threads:2}") int threads,
+                               @Value("${papertrail.storage.outbox.batch-size:50}") int batchSize,
+                               @Value("${papertrail.storage.outbox.lease:5m}") Duration lease,
+                               @Value("${papertrail.storage.outbox.base-backoff:10s}") Duration baseBackoff,
+                               @Value("${papertrail.storage.outbox.max-backoff:1h}") Duration maxBackoff,
+                               @Value("${papertrail.storage.outbox.operations-per-second:10}") double operationsPerSecond) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.imageStorage = imageStorage;
+        this.executor = executor;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.lease = lease;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+        this.operationsPerSecond = operationsPerSecond;
+        this.completed = meterRegistry.counter("papertrail.storage.outbox.completed");
+        this.failed = meterRegistry.counter("papertrail.storage.outbox.failed");
+        Gauge.builder("papertrail.storage.outbox.pending", this, StorageOutboxWorker::pending)
+                .description("Queued storage operations, including ones waiting for a retry")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run everything that is due, a round of up to threads x batch-size entries at a time,
+     * rate limited to papertrail.storage.outbox.operations-per-second
+     */
+    @Scheduled(fixedDelayString = "${papertrail.storage.outbox.poll-interval:5s}")
+    public void drain() {
+        while (true) {
+            long started = System.nanoTime();
+            int limit = threads * batchSize;
+            LocalDateTime now = LocalDateTime.now();
+            List<Claimed> claimed = jdbcTemplate.query(CLAIM_SQL, (rs, i) -> new Claimed(rs.getLong("id"),
+                            StorageOutboxEntry.Operation.valueOf(rs.getString("operation")),
+                            rs.getString("target"), rs.getInt("attempts"),
+                            rs.getTimestamp("next_attempt_at").toLocalDateTime()),
+                    now.plus(lease), now, limit);
+            if (claimed.isEmpty()) {
+                return;
+            }
+
+            List<CompletableFuture<Void>> batches = new ArrayList<>();
+            for (int from = 0; from < claimed.size(); from += batchSize) {
+                List<Claimed> batch = claimed.subList(from, Math.min(from + batchSize, claimed.size()));
+                batches.add(CompletableFuture.runAsync(() -> run(batch), executor));
+            }
+            CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).join();
+
+            if (claimed.size() < limit || !throttle(claimed.size(), started)) {
+                return;
+            }
+        }
+    }
+
+    private void run(List<Claimed> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Content-addressed ids come back when the same image is uploaded again. Its uploader first
+                // re-queues this entry as a guard: either that happened since the claim and the entry is left
+                // to guard, or it blocks on the lock and uploads after the delete below has committed.
+                List<Claimed> unchanged = lockUnchanged(batch);
+                if (unchanged.isEmpty()) {
+                    return;
+                }
+                // Only one operation so far; group by it here once there are more
+                List<String> publicIds = unchanged.stream().map(Claimed::target).toList();
+                Set<String> inUse = new HashSet<>(jdbcTemplate.queryForList(
+                        "select public_id from images where public_id = any(?)", String.class,
+                        (Object) publicIds.toArray(String[]::new)));
+                List<String> unused = publicIds.stream().filter(publicId -> !inUse.contains(publicId)).toList();
+                if (!unused.isEmpty()) {
+                    try {
+                        imageStorage.deleteImages(unused);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e.getMessage(), e);
+                    }
+                }
+                jdbcTemplate.update("delete from storage_outbox where id = any(?)",
+                        (Object) unchanged.stream().map(Claimed::id).toArray(Long[]::new));
+            });
+            completed.increment(batch.size());
+        } catch (Exception e) {
+            failed.increment(batch.size());
+            log.warn("Storage outbox batch of {} failed, will retry: {}", batch.size(), e.getMessage());
+            String error = String.valueOf(e.getMessage());
+            error = error.length() > 1000 ? error.substring(0, 1000) : error;
+            List<Object[]> retries = new ArrayList<>();
+            for (Claimed entry : batch) {
+                retries.add(new Object[]{LocalDateTime.now().plus(backoff(entry.attempts())), error, entry.id()});
+            }
+            jdbcTemplate.batchUpdate(RETRY_SQL, retries);
+        }
+    }
+
+    // Locks the batch's rows; entries cancelled or rescheduled since they were claimed are dropped from it
+    private List<Claimed> lockUnchanged(List<Claimed> batch) {
+        Map<Long, LocalDateTime> dueTimes = new HashMap<>();
+        jdbcTemplate.query(LOCK_SQL, rs -> {
+            dueTimes.put(rs.getLong("id"), rs.getTimestamp("next_attempt_at").toLocalDateTime());
+        }, (Object) batch.stream().map(Claimed::id).toArray(Long[]::new));
+        return batch.stream().filter(entry -> entry.leasedUntil().equals(dueTimes.get(entry.id()))).toList();
+    }
+
+    // base x 2^(attempts - 1), capped, with up to 20% jitter so failed batches do not retry in lockstep
+    private Duration backoff(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        long millis = Math.min(maxBackoff.toMillis(), baseBackoff.toMillis() << doublings);
+        return Duration.ofMillis(millis + ThreadLocalRandom.current().nextLong(millis / 5 + 1));
+    }
+
+    private boolean throttle(int operations, long startedNanos) {
+        long budget = (long) (TimeUnit.SECONDS.toNanos(1) * operations / operationsPerSecond);
+        long remaining = budget - (System.nanoTime() - startedNanos);
+        if (remaining > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double pending() {
+        try {
+            Long count = jdbcTemplate.queryForObject("select count(*) from storage_outbox", Long.class);
+            return count == null ? 0 : count;
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    private record Claimed(long id, StorageOutboxEntry.Operation operation, String target, int attempts,
+                           LocalDateTime leasedUntil) {
+    }
+}
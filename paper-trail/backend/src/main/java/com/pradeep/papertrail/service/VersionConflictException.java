@@ -0,0 +1,9 @@
+package com.pradeep.papertrail.service;
+
+// Thrown when a conditional write (If-Match) targets a version of a note that is no longer current
+public class VersionConflictException extends RuntimeException {
+
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
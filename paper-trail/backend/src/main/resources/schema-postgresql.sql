@@ -0,0 +1,113 @@
+-- PostgreSQL-only schema objects that Hibernate's ddl-auto cannot express.
+-- Runs after Hibernate has created/updated the tables (spring.jpa.defer-datasource-initialization),
+-- so every statement must be idempotent.
+
+-- Full-text search: title (weight A) plus every string "text" member inside the Editor.js content (weight B)
+ALTER TABLE note ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+        setweight(jsonb_to_tsvector('english',
+                coalesce(jsonb_path_query_array(content, 'strict $.** ? (@.text.type() == "string").text'), '[]'::jsonb),
+                '["string"]'), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_note_search_vector ON note USING gin (search_vector);
+
+-- Note and permission ids moved from IDENTITY columns to pooled sequences (so inserts can be batched).
+-- Hibernate creates the sequences starting at 1; move them past ids that already exist.
+SELECT setval('note_seq', m) FROM (SELECT max(id) AS m FROM note) s
+    WHERE m > (SELECT last_value FROM note_seq);
+SELECT setval('note_permissions_seq', m) FROM (SELECT max(id) AS m FROM note_permissions) s
+    WHERE m > (SELECT last_value FROM note_permissions_seq);
+
+-- One grant per (note, user), which sharing upserts against with ON CONFLICT. Duplicates left by
+-- concurrent shares before this index existed are merged first, keeping EDIT over READ, then the newest.
+DELETE FROM note_permissions p
+    WHERE EXISTS (SELECT 1 FROM note_permissions q
+                  WHERE q.note_id = p.note_id AND q.user_id = p.user_id
+                    AND (q.permission = 'EDIT', q.id) > (p.permission = 'EDIT', p.id));
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_note_permissions_note_user ON note_permissions (note_id, user_id);
+
+-- Image reference counting for garbage collection: one row per (note, image public id) found anywhere in the
+-- note's content (Editor.js image blocks keep it at data.file.publicId), and images.ref_count / unreferenced_since
+-- kept in step. Maintained by triggers so every write path counts: JPA saves, jsonb_set patches, bulk import,
+-- cascading deletes. Function bodies are single-quoted because the init script is split on semicolons.
+CREATE TABLE IF NOT EXISTS note_image_refs (
+    note_id   bigint       NOT NULL,
+    public_id varchar(255) NOT NULL,
+    PRIMARY KEY (note_id, public_id)
+);
+
+CREATE OR REPLACE FUNCTION note_image_refs_sync() RETURNS trigger LANGUAGE plpgsql AS '
+DECLARE
+    added   text[];
+    removed text[];
+BEGIN
+    IF TG_OP = ''DELETE'' THEN
+        WITH gone AS (DELETE FROM note_image_refs WHERE note_id = OLD.id RETURNING public_id)
+        SELECT array_agg(public_id) INTO removed FROM gone;
+    ELSE
+        WITH referenced AS (
+            SELECT DISTINCT v #>> ''{}'' AS public_id
+            FROM jsonb_path_query(NEW.content, ''strict $.** ? (@.publicId.type() == "string").publicId'') v
+            WHERE length(v #>> ''{}'') <= 255
+        ), gone AS (
+            DELETE FROM note_image_refs r
+            WHERE r.note_id = NEW.id AND NOT EXISTS (SELECT 1 FROM referenced c WHERE c.public_id = r.public_id)
+            RETURNING r.public_id
+        ), fresh AS (
+            INSERT INTO note_image_refs (note_id, public_id)
+            SELECT NEW.id, public_id FROM referenced
+            ON CONFLICT DO NOTHING
+            RETURNING public_id
+        )
+        SELECT (SELECT array_agg(public_id) FROM gone), (SELECT array_agg(public_id) FROM fresh)
+        INTO removed, added;
+    END IF;
+
+    IF added IS NOT NULL THEN
+        UPDATE images SET ref_count = ref_count + 1, unreferenced_since = NULL
+        WHERE public_id = ANY (added);
+    END IF;
+    IF removed IS NOT NULL THEN
+        UPDATE images
+        SET ref_count = greatest(ref_count - 1, 0),
+            unreferenced_since = CASE WHEN ref_count <= 1 THEN now() ELSE unreferenced_since END
+        WHERE public_id = ANY (removed);
+    END IF;
+    RETURN NULL;
+END';
+
+-- First run only (before the triggers exist): index what existing notes already reference
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_trigger WHERE tgname = ''note_image_refs_insert'') THEN
+        INSERT INTO note_image_refs (note_id, public_id)
+        SELECT DISTINCT n.id, v #>> ''{}''
+        FROM note n, jsonb_path_query(n.content, ''strict $.** ? (@.publicId.type() == "string").publicId'') v
+        WHERE length(v #>> ''{}'') <= 255
+        ON CONFLICT DO NOTHING;
+
+        UPDATE images i
+        SET ref_count = r.refs,
+            unreferenced_since = CASE WHEN r.refs = 0 THEN coalesce(i.unreferenced_since, now()) END
+        FROM (SELECT i2.id, count(r2.note_id) AS refs
+              FROM images i2 LEFT JOIN note_image_refs r2 ON r2.public_id = i2.public_id
+              GROUP BY i2.id) r
+        WHERE r.id = i.id;
+    END IF;
+END';
+
+-- Notes without images (the WHEN clauses) skip the trigger function entirely
+CREATE OR REPLACE TRIGGER note_image_refs_insert AFTER INSERT ON note
+    FOR EACH ROW WHEN (NEW.content @? 'strict $.**.publicId')
+    EXECUTE FUNCTION note_image_refs_sync();
+
+CREATE OR REPLACE TRIGGER note_image_refs_update AFTER UPDATE OF content ON note
+    FOR EACH ROW WHEN (OLD.content @? 'strict $.**.publicId' OR NEW.content @? 'strict $.**.publicId')
+    EXECUTE FUNCTION note_image_refs_sync();
+
+CREATE OR REPLACE TRIGGER note_image_refs_delete AFTER DELETE ON note
+    FOR EACH ROW WHEN (OLD.content @? 'strict $.**.publicId')
+    EXECUTE FUNCTION note_image_refs_sync();
@@ -0,0 +1,53 @@
+package com.pradeep.papertrail.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementCountingDataSourceTest {
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(new StatementCountingDataSource(
+            new DriverManagerDataSource("jdbc:h2:mem:statement-counting;DB_CLOSE_DELAY=-1", "sa", "")));
+
+    @AfterEach
+    void unbind() {
+        RequestStatements.unbind();
+    }
+
+    @Test
+    void countsStatementsOfTheBoundRequestOnly() {
+        jdbcTemplate.execute("create table if not exists item (id int)");
+
+        RequestStatements statements = RequestStatements.bind(0, false);
+        jdbcTemplate.update("insert into item values (?)", 1);
+        jdbcTemplate.batchUpdate("insert into item values (?)", List.of(new Object[]{2}, new Object[]{3}));
+        jdbcTemplate.queryForObject("select count(*) from item", Integer.class);
+        RequestStatements.unbind();
+        jdbcTemplate.queryForObject("select count(*) from item", Integer.class);
+
+        // The batch is one round trip
+        assertEquals(3, statements.count());
+        assertTrue(statements.nanos() > 0);
+    }
+
+    @Test
+    void failModeThrowsFromTheStatementOverTheLimit() {
+        RequestStatements statements = RequestStatements.bind(2, true);
+        jdbcTemplate.queryForObject("select 1", Integer.class);
+        jdbcTemplate.queryForObject("select 1", Integer.class);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> jdbcTemplate.queryForObject("select 1", Integer.class));
+        assertTrue(e.getMessage().contains("most repeated (3x): select 1"));
+        // Later statements go through, so the request can still clean up
+        jdbcTemplate.queryForObject("select 1", Integer.class);
+        assertTrue(statements.overLimit());
+    }
+}
@@ -0,0 +1,189 @@
+package com.pradeep.papertrail.repository;
+
+import com.pradeep.papertrail.model.Image;
+import com.pradeep.papertrail.model.Note;
+import com.pradeep.papertrail.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The note_image_refs triggers (schema-postgresql.sql) keep images.ref_count and unreferenced_since in step
+ * with every write to note content, and findCollectable only offers images past their grace period.
+ * Needs the configured PostgreSQL database. Run with: mvn test -Ppostgres
+ */
+@Tag("postgres")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        // Nothing but this test looks for collectable images
+        "papertrail.images.gc.enabled=false"
+})
+class ImageRefCountTest {
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User owner;
+    private String a;
+    private String b;
+    private String c;
+
+    @BeforeEach
+    void setUp() {
+        owner = new User();
+        owner.setName("Ref Count Test");
+        owner.setEmail("refcount-" + UUID.randomUUID() + "@example.com");
+        owner.setPassword("secret");
+        owner = userRepository.save(owner);
+
+        a = image("a");
+        b = image("b");
+        c = image("c");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from note_revisions where note_id in (select id from note where user_id = ?)",
+                owner.getId());
+        jdbcTemplate.update("delete from note where user_id = ?", owner.getId());
+        jdbcTemplate.update("delete from images where user_id = ?", owner.getId());
+        userRepository.deleteById(owner.getId());
+    }
+
+    @Test
+    void noteWritesKeepReferenceCountsInStep() {
+        // Insert: a is referenced twice by the same note but counts once
+        Note first = note(a, a, b);
+        assertReferenced(a, 1);
+        assertReferenced(b, 1);
+        assertUnreferenced(c);
+
+        Note second = note(a);
+        assertReferenced(a, 2);
+
+        // JPA update: keeps a, drops b, adds c
+        first.setContent(content(a, c));
+        first = noteRepository.save(first);
+        assertReferenced(a, 2);
+        assertUnreferenced(b);
+        assertReferenced(c, 1);
+
+        // jsonb_set patch, as the PATCH pushdown writes it: the second note swaps a for b
+        jdbcTemplate.update("""
+                update note set content = jsonb_set(content, '{blocks,0,data,file,publicId}', to_jsonb(?::text))
+                where id = ?""", b, second.getId());
+        assertReferenced(a, 1);
+        assertReferenced(b, 1);
+
+        // Delete: the first note's a and c go away, the second note's b stays
+        jdbcTemplate.update("delete from note where id = ?", first.getId());
+        assertUnreferenced(a);
+        assertUnreferenced(c);
+        assertReferenced(b, 1);
+    }
+
+    @Test
+    void losingTheLastReferenceStartsANewGracePeriod() {
+        jdbcTemplate.update("update images set unreferenced_since = ? where public_id = ?",
+                LocalDateTime.now().minusDays(30), a);
+        Note note = note(a);
+        jdbcTemplate.update("delete from note where id = ?", note.getId());
+
+        LocalDateTime since = unreferencedSince(a);
+        assertNotNull(since);
+        assertTrue(since.isAfter(LocalDateTime.now().minusMinutes(1)), since.toString());
+    }
+
+    @Test
+    void onlyImagesPastTheGracePeriodAreCollectable() {
+        note(b);
+        jdbcTemplate.update("update images set unreferenced_since = ? where public_id in (?, ?)",
+                LocalDateTime.now().minusDays(2), a, b);
+
+        List<String> collectable = transactionTemplate.execute(status ->
+                imageRepository.findCollectable(LocalDateTime.now().minusDays(1), Limit.unlimited()).stream()
+                        .map(Image::getPublicId)
+                        .filter(List.of(a, b, c)::contains)
+                        .toList());
+
+        // b has an old date but is still referenced; c only lost its references recently
+        assertEquals(List.of(a), collectable);
+    }
+
+    private String image(String name) {
+        Image image = new Image();
+        image.setUserId(owner.getId());
+        image.setSha256(UUID.randomUUID().toString().replace("-", "").repeat(2));
+        image.setPublicId("papertrail/user_" + owner.getId() + "/" + name + "-" + UUID.randomUUID());
+        image.setFormat("png");
+        image.setContentType("image/png");
+        image.setSize(3);
+        image.setCreatedAt(LocalDateTime.now());
+        image.setUnreferencedSince(image.getCreatedAt());
+        return imageRepository.save(image).getPublicId();
+    }
+
+    private Note note(String... publicIds) {
+        Note note = new Note();
+        note.setTitle("Ref count");
+        note.setUser(owner);
+        note.setCreatedBy(owner.getName());
+        note.setContent(content(publicIds));
+        return noteRepository.save(note);
+    }
+
+    // Editor.js image blocks
+    private static Map<String, Object> content(String... publicIds) {
+        return Map.of("blocks", List.of(publicIds).stream()
+                .map(publicId -> Map.of("type", "image",
+                        "data", Map.of("file", Map.of("url", "/api/images/x", "publicId", publicId))))
+                .toList());
+    }
+
+    private void assertReferenced(String publicId, int refs) {
+        assertEquals(refs, refCount(publicId), publicId);
+        assertNull(unreferencedSince(publicId), publicId);
+    }
+
+    private void assertUnreferenced(String publicId) {
+        assertEquals(0, refCount(publicId), publicId);
+        assertNotNull(unreferencedSince(publicId), publicId);
+    }
+
+    private int refCount(String publicId) {
+        return jdbcTemplate.queryForObject("select ref_count from images where public_id = ?", Integer.class, publicId);
+    }
+
+    private LocalDateTime unreferencedSince(String publicId) {
+        return jdbcTemplate.queryForObject("select unreferenced_since from images where public_id = ?",
+                LocalDateTime.class, publicId);
+    }
+}
@@ -0,0 +1,168 @@
+package com.pradeep.papertrail.repository;
+
+import com.pradeep.papertrail.config.SecondLevelCacheConfig;
+import com.pradeep.papertrail.model.Note;
+import com.pradeep.papertrail.model.NotePermission;
+import com.pradeep.papertrail.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@DataJpaTest
+@Import(SecondLevelCacheConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:second-level-cache;MODE=PostgreSQL;INIT=CREATE DOMAIN IF NOT EXISTS JSONB AS JSON",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+// Every step commits in its own session: read-write regions only serve what committed before a session began
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NotePermissionRepository permissionRepository;
+
+    private User owner;
+    private User reader;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        owner = inSession(em -> persistUser(em, "Owner", "owner@example.com"));
+        reader = inSession(em -> persistUser(em, "Reader", "reader@example.com"));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        inSession(em -> em.createQuery("delete from NotePermission").executeUpdate()
+                + em.createQuery("delete from Note").executeUpdate()
+                + em.createQuery("delete from User").executeUpdate());
+    }
+
+    @Test
+    void cachedPermissionKeepsItsAssociationsLazy() {
+        Note note = inSession(em -> persistNote(em, "Shared"));
+        Long permissionId = inSession(em -> persistPermission(em, note)).getId();
+        inSession(em -> em.find(NotePermission.class, permissionId));
+        inSession(em -> em.find(User.class, reader.getId()));
+        statistics.clear();
+
+        inSession(em -> {
+            NotePermission cached = em.find(NotePermission.class, permissionId);
+            assertEquals(0, statistics.getPrepareStatementCount());
+            assertFalse(Hibernate.isInitialized(cached.getNote()));
+            assertFalse(Hibernate.isInitialized(cached.getUser()));
+            assertEquals(note.getId(), cached.getNote().getId());
+
+            // The user proxy initializes from the users region; the uncached note still loads from the database
+            assertEquals("reader@example.com", cached.getUser().getEmail());
+            assertEquals(0, statistics.getPrepareStatementCount());
+            assertEquals("Shared", cached.getNote().getTitle());
+            assertEquals(1, statistics.getPrepareStatementCount());
+            return cached;
+        });
+    }
+
+    @Test
+    void userByEmailIsCachedUntilUsersChange() {
+        userRepository.findByEmail("reader@example.com");
+        statistics.clear();
+
+        userRepository.findByEmail("reader@example.com").orElseThrow();
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        inSession(em -> {
+            em.find(User.class, reader.getId()).setName("Renamed");
+            return null;
+        });
+        statistics.clear();
+
+        // The update invalidated the cached query and replaced the cached row
+        assertEquals("Renamed", userRepository.findByEmail("reader@example.com").orElseThrow().getName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void audienceIsCachedUntilPermissionsChange() {
+        Note note = inSession(em -> persistNote(em, "Shared"));
+        permissionRepository.findUserIdsByNoteId(note.getId());
+        statistics.clear();
+
+        assertEquals(List.of(), permissionRepository.findUserIdsByNoteId(note.getId()));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        inSession(em -> persistPermission(em, note));
+        assertEquals(List.of(reader.getId()), permissionRepository.findUserIdsByNoteId(note.getId()));
+    }
+
+    private <T> T inSession(Function<EntityManager, T> work) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            T result = work.apply(em);
+            em.getTransaction().commit();
+            return result;
+        } finally {
+            em.close();
+        }
+    }
+
+    private User persistUser(EntityManager em, String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        user.setPassword("secret");
+        em.persist(user);
+        return user;
+    }
+
+    private Note persistNote(EntityManager em, String title) {
+        Note note = new Note();
+        note.setTitle(title);
+        note.setContent(Map.of("blocks", List.of()));
+        note.setUser(em.getReference(User.class, owner.getId()));
+        note.setCreatedBy(owner.getName());
+        em.persist(note);
+        return note;
+    }
+
+    private NotePermission persistPermission(EntityManager em, Note note) {
+        NotePermission permission = new NotePermission();
+        permission.setNote(em.getReference(Note.class, note.getId()));
+        permission.setUser(em.getReference(User.class, reader.getId()));
+        permission.setPermission(NotePermission.Permission.READ);
+        em.persist(permission);
+        return permission;
+    }
+}
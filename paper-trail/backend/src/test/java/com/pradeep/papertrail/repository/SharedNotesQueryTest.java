@@ -0,0 +1,133 @@
+package com.pradeep.papertrail.repository;
+
+import com.pradeep.papertrail.config.SecondLevelCacheConfig;
+import com.pradeep.papertrail.dto.NoteSummaryDTO;
+import com.pradeep.papertrail.model.Note;
+import com.pradeep.papertrail.model.NotePermission;
+import com.pradeep.papertrail.model.User;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Import(SecondLevelCacheConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shared-notes;MODE=PostgreSQL;INIT=CREATE DOMAIN IF NOT EXISTS JSONB AS JSON",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class SharedNotesQueryTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    private User owner;
+    private User reader;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        owner = persistUser("Owner", "owner@example.com");
+        reader = persistUser("Reader", "reader@example.com");
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void sharedFeedUsesOneStatementRegardlessOfNoteCount() {
+        shareNotes(5);
+        long smallFeed = statementsForSharedFeed(100);
+
+        shareNotes(200);
+        long largeFeed = statementsForSharedFeed(500);
+
+        assertEquals(1, smallFeed);
+        assertEquals(smallFeed, largeFeed);
+    }
+
+    @Test
+    void sharedFeedReportsPermissionPerNote() {
+        Note readable = persistNote("Readable");
+        Note editable = persistNote("Editable");
+        persistPermission(readable, NotePermission.Permission.READ);
+        persistPermission(editable, NotePermission.Permission.EDIT);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<NoteSummaryDTO> feed = noteRepository.findSharedSummaries(reader.getId(), null, true, true, 10);
+
+        assertEquals(2, feed.size());
+        Map<String, String> permissionByTitle = Map.of(
+                feed.get(0).getTitle(), feed.get(0).getPermission(),
+                feed.get(1).getTitle(), feed.get(1).getPermission());
+        assertEquals("READ", permissionByTitle.get("Readable"));
+        assertEquals("EDIT", permissionByTitle.get("Editable"));
+    }
+
+    private long statementsForSharedFeed(int limit) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<NoteSummaryDTO> feed = noteRepository.findSharedSummaries(reader.getId(), null, false, true, limit);
+        // Touch every field a client would serialize
+        feed.forEach(note -> {
+            note.getUserId();
+            note.getSnippet();
+            note.getPermission();
+        });
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void shareNotes(int count) {
+        for (int i = 0; i < count; i++) {
+            persistPermission(persistNote("Note " + i), NotePermission.Permission.READ);
+        }
+    }
+
+    private User persistUser(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        user.setPassword("secret");
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Note persistNote(String title) {
+        Note note = new Note();
+        note.setTitle(title);
+        note.setContent(Map.of("blocks", List.of(Map.of("type", "paragraph", "data", Map.of("text", title)))));
+        note.setUser(owner);
+        note.setCreatedBy(owner.getName());
+        entityManager.persist(note);
+        return note;
+    }
+
+    private void persistPermission(Note note, NotePermission.Permission permission) {
+        NotePermission notePermission = new NotePermission();
+        notePermission.setNote(note);
+        notePermission.setUser(reader);
+        notePermission.setPermission(permission);
+        entityManager.persist(notePermission);
+    }
+}
@@ -0,0 +1,69 @@
+package com.pradeep.papertrail.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessTokenCodecTest {
+
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NEW_KEY = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.US_ASCII);
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AccessTokenCodec codec = codec(List.of(KEY));
+
+    @Test
+    void roundTripsClaims() {
+        AccessTokenCodec.Claims claims = claims(NOW.plusSeconds(900));
+
+        Optional<AccessTokenCodec.Claims> decoded = codec.decode(codec.encode(claims), NOW);
+
+        assertEquals(Optional.of(claims), decoded);
+    }
+
+    @Test
+    void rejectsExpiredTamperedAndUnsignedTokens() {
+        String token = codec.encode(claims(NOW.plusSeconds(900)));
+        String[] parts = token.split("\\.");
+        String otherUser = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                        .replace("\"sub\":\"7\"", "\"sub\":\"8\"").getBytes(StandardCharsets.UTF_8));
+        String none = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(codec.decode(token, NOW.plusSeconds(900 + 31)).isEmpty());
+        assertTrue(codec.decode(parts[0] + "." + otherUser + "." + parts[2], NOW).isEmpty());
+        assertTrue(codec.decode(none + "." + parts[1] + ".", NOW).isEmpty());
+        assertTrue(codec.decode("not a token", NOW).isEmpty());
+    }
+
+    @Test
+    void previousKeyStillVerifiesDuringRotation() {
+        String oldToken = codec.encode(claims(NOW.plusSeconds(900)));
+        AccessTokenCodec rotated = codec(List.of(NEW_KEY, KEY));
+        AccessTokenCodec retired = codec(List.of(NEW_KEY));
+
+        assertTrue(rotated.decode(oldToken, NOW).isPresent());
+        assertTrue(retired.decode(oldToken, NOW).isEmpty());
+        assertTrue(codec.decode(rotated.encode(claims(NOW.plusSeconds(900))), NOW).isEmpty());
+    }
+
+    private AccessTokenCodec codec(List<byte[]> keys) {
+        return new AccessTokenCodec(objectMapper, "papertrail", Duration.ofSeconds(30), keys);
+    }
+
+    private static AccessTokenCodec.Claims claims(Instant expiresAt) {
+        return new AccessTokenCodec.Claims("11111111-2222-3333-4444-555555555555", "66666666-7777-8888-9999-000000000000",
+                7L, "a@example.com", "Ann", NOW, expiresAt);
+    }
+}
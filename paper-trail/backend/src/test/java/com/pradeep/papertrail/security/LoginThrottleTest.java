@@ -0,0 +1,53 @@
+package com.pradeep.papertrail.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginThrottleTest {
+
+    private final LoginThrottle throttle = new LoginThrottle(new SimpleMeterRegistry(),
+            5, Duration.ofMinutes(1), 2, Duration.ofMinutes(15), 1000);
+
+    @Test
+    void locksAnAccountAfterRepeatedFailuresUntilTheWindowEnds() {
+        throttle.checkAttempt("10.0.0.1", "Ann@Example.com");
+        throttle.recordFailure("Ann@Example.com");
+        throttle.checkAttempt("10.0.0.2", "ann@example.com");
+        throttle.recordFailure("ann@example.com");
+
+        TooManyAttemptsException e = assertThrows(TooManyAttemptsException.class,
+                () -> throttle.checkAttempt("10.0.0.3", "ann@example.com"));
+        assertTrue(e.getRetryAfter().compareTo(Duration.ofMinutes(14)) > 0);
+        assertDoesNotThrow(() -> throttle.checkAttempt("10.0.0.3", "bob@example.com"));
+    }
+
+    @Test
+    void successClearsFailures() {
+        throttle.checkAttempt("10.0.0.1", "ann@example.com");
+        throttle.recordFailure("ann@example.com");
+        throttle.recordSuccess("ann@example.com");
+        throttle.recordFailure("ann@example.com");
+
+        assertDoesNotThrow(() -> throttle.checkAttempt("10.0.0.1", "ann@example.com"));
+    }
+
+    @Test
+    void limitsAttemptsPerIpIncludingRefusedOnes() {
+        throttle.recordFailure("ann@example.com");
+        throttle.recordFailure("ann@example.com");
+        for (int i = 0; i < 3; i++) {
+            assertThrows(TooManyAttemptsException.class, () -> throttle.checkAttempt("10.0.0.1", "ann@example.com"));
+        }
+        throttle.checkAttempt("10.0.0.1", null);
+        throttle.checkAttempt("10.0.0.1", "bob@example.com");
+
+        assertThrows(TooManyAttemptsException.class, () -> throttle.checkAttempt("10.0.0.1", "bob@example.com"));
+        assertDoesNotThrow(() -> throttle.checkAttempt("10.0.0.2", "bob@example.com"));
+    }
+}
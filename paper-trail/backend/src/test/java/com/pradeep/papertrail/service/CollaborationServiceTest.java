@@ -0,0 +1,165 @@
+package com.pradeep.papertrail.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pradeep.papertrail.model.AccessLevel;
+import com.pradeep.papertrail.model.Note;
+import com.pradeep.papertrail.repository.NoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Rooms against mocked persistence; sessions record what they were sent
+class CollaborationServiceTest {
+
+    private static final Long NOTE_ID = 1L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NoteRepository noteRepository = mock(NoteRepository.class);
+    private final NoteAccessService noteAccessService = mock(NoteAccessService.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private CollaborationService service;
+    private Note stored;
+
+    @BeforeEach
+    void setUp() {
+        stored = note(1L, "a", "b");
+        when(noteRepository.findById(NOTE_ID)).thenAnswer(invocation -> Optional.of(copy(stored)));
+        when(noteRepository.saveAndFlush(any(Note.class))).thenAnswer(invocation -> {
+            Note saved = invocation.getArgument(0);
+            saved.setVersion(saved.getVersion() + 1);
+            stored = copy(saved);
+            return saved;
+        });
+        when(noteAccessService.resolve(any(), any())).thenReturn(AccessLevel.EDIT);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        service = new CollaborationService(noteRepository, mock(NoteRevisionService.class), noteAccessService,
+                mock(NoteEventService.class), transactionTemplate, objectMapper);
+    }
+
+    @Test
+    void rebaseReplaysPendingOperationsOntoTheExternalVersion() throws IOException {
+        RecordingSession editor = new RecordingSession("editor");
+        service.join(NOTE_ID, editor.session);
+        service.submit(NOTE_ID, 7L, 1, json("""
+                [{"op": "insert", "after": "a", "block": {"id": "x", "type": "paragraph", "data": {"text": "x"}}},
+                 {"op": "update", "id": "b", "data": {"text": "edited b"}}]"""), editor.session);
+
+        // Saved through the REST API meanwhile: "b" is gone, "c" is new
+        stored = note(2L, "a", "c");
+        service.checkpointAll();
+
+        JsonNode reset = editor.last();
+        assertEquals("reset", reset.get("type").asText());
+        assertEquals(2L, reset.get("version").asLong());
+        // The insert replays onto the new base; the update of the removed block is dropped
+        assertEquals(List.of("a", "x", "c"), ids(reset.get("content")));
+
+        // The next tick writes the rebased document on top of version 2
+        service.checkpointAll();
+        assertEquals(3L, stored.getVersion());
+        assertEquals(List.of("a", "x", "c"), ids(objectMapper.valueToTree(stored.getContent())));
+    }
+
+    @Test
+    void participantClosedDuringBroadcastLeavesWithoutBreakingTheRoom() throws IOException {
+        RecordingSession editor = new RecordingSession("editor");
+        RecordingSession broken = new RecordingSession("broken");
+        service.join(NOTE_ID, broken.session);
+        service.join(NOTE_ID, editor.session);
+        // Like Tomcat: closing a session runs afterConnectionClosed, and so leave, on the closing thread
+        doAnswer(invocation -> {
+            service.leave(NOTE_ID, broken.session);
+            return null;
+        }).when(broken.session).close(any(CloseStatus.class));
+        broken.failSends = true;
+
+        service.submit(NOTE_ID, 7L, 1, json("""
+                [{"op": "update", "id": "a", "data": {"text": "edited"}}]"""), editor.session);
+
+        verify(broken.session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals("ops", editor.last().get("type").asText());
+
+        // Last one out checkpoints and closes the room
+        service.leave(NOTE_ID, editor.session);
+        assertEquals(2L, stored.getVersion());
+    }
+
+    private Note note(Long version, String... blockIds) {
+        List<Map<String, Object>> blocks = new ArrayList<>();
+        for (String id : blockIds) {
+            blocks.add(Map.of("id", id, "type", "paragraph", "data", Map.of("text", id)));
+        }
+        Note note = new Note();
+        note.setId(NOTE_ID);
+        note.setVersion(version);
+        note.setContent(Map.of("blocks", blocks));
+        return note;
+    }
+
+    private Note copy(Note source) {
+        Note note = new Note();
+        note.setId(source.getId());
+        note.setVersion(source.getVersion());
+        note.setContent(source.getContent());
+        return note;
+    }
+
+    private static List<String> ids(JsonNode content) {
+        List<String> ids = new ArrayList<>();
+        content.get("blocks").forEach(block -> ids.add(block.get("id").asText()));
+        return ids;
+    }
+
+    private JsonNode json(String text) {
+        try {
+            return objectMapper.readTree(text);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private final class RecordingSession {
+        private final WebSocketSession session = mock(WebSocketSession.class);
+        private final List<JsonNode> received = new ArrayList<>();
+        private boolean failSends;
+
+        private RecordingSession(String id) {
+            when(session.getId()).thenReturn(id);
+            try {
+                doAnswer(invocation -> {
+                    if (failSends) {
+                        throw new IOException("Broken pipe");
+                    }
+                    received.add(objectMapper.readTree(invocation.<TextMessage>getArgument(0).getPayload()));
+                    return null;
+                }).when(session).sendMessage(any());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private JsonNode last() {
+            return received.get(received.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.pradeep.papertrail.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CollaborativeDocumentTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void contentRoundTripsUnchanged() {
+        JsonNode content = json("""
+                {"time": 1700000000000, "version": "2.28.0", "blocks": [
+                  {"id": "a", "type": "paragraph", "data": {"text": "first"}},
+                  {"id": "b", "type": "header", "data": {"text": "second", "level": 2}}
+                ]}""");
+
+        assertEquals(content, new CollaborativeDocument(content).toContent());
+    }
+
+    @Test
+    void blocksWithoutUniqueIdsGetOne() {
+        CollaborativeDocument document = new CollaborativeDocument(json("""
+                {"blocks": [
+                  {"type": "paragraph", "data": {"text": "no id"}},
+                  {"id": "a", "type": "paragraph", "data": {"text": "first a"}},
+                  {"id": "a", "type": "paragraph", "data": {"text": "second a"}}
+                ]}"""));
+
+        List<String> ids = ids(document);
+        assertEquals(3, ids.size());
+        assertEquals("a", ids.get(1));
+        assertEquals(3, ids.stream().distinct().count());
+    }
+
+    @Test
+    void concurrentInsertsAfterTheSameBlockKeepServerOrder() {
+        CollaborativeDocument document = document("a", "d");
+
+        // Two clients both insert after "a"; the later one in server order ends up closer to "a"
+        document.apply(json("""
+                {"op": "insert", "after": "a", "block": {"id": "b", "type": "paragraph", "data": {}}}"""));
+        document.apply(json("""
+                {"op": "insert", "after": "a", "block": {"id": "c", "type": "paragraph", "data": {}}}"""));
+        document.apply(json("""
+                {"op": "insert", "after": null, "block": {"id": "first", "type": "paragraph", "data": {}}}"""));
+
+        assertEquals(List.of("first", "a", "c", "b", "d"), ids(document));
+    }
+
+    @Test
+    void replicasApplyingTheSameOrderConverge() {
+        List<JsonNode> serverOrder = List.of(
+                json("""
+                        {"op": "insert", "after": "a", "block": {"id": "x", "type": "paragraph", "data": {}}}"""),
+                json("""
+                        {"op": "delete", "id": "b"}"""),
+                json("""
+                        {"op": "insert", "after": "b", "block": {"id": "y", "type": "paragraph", "data": {}}}"""),
+                json("""
+                        {"op": "move", "id": "a", "after": "y"}"""),
+                json("""
+                        {"op": "update", "id": "x", "data": {"text": "edited"}}"""));
+        CollaborativeDocument server = document("a", "b", "c");
+        CollaborativeDocument client = document("a", "b", "c");
+
+        serverOrder.forEach(server::apply);
+        serverOrder.forEach(client::apply);
+
+        assertEquals(server.toContent(), client.toContent());
+        assertEquals(List.of("x", "y", "a", "c"), ids(server));
+    }
+
+    @Test
+    void insertAfterADeletedBlockLandsWhereItWas() {
+        CollaborativeDocument document = document("a", "b", "c");
+
+        document.apply(json("""
+                {"op": "delete", "id": "b"}"""));
+        document.apply(json("""
+                {"op": "insert", "after": "b", "block": {"id": "x", "type": "paragraph", "data": {}}}"""));
+
+        assertEquals(List.of("a", "x", "c"), ids(document));
+    }
+
+    @Test
+    void deleteWinsOverAConcurrentUpdate() {
+        CollaborativeDocument document = document("a", "b");
+
+        document.apply(json("""
+                {"op": "delete", "id": "a"}"""));
+        document.apply(json("""
+                {"op": "update", "id": "a", "data": {"text": "too late"}}"""));
+
+        assertEquals(List.of("b"), ids(document));
+    }
+
+    @Test
+    void laterUpdateOfTheSameBlockWins() {
+        CollaborativeDocument document = document("a");
+
+        document.apply(json("""
+                {"op": "update", "id": "a", "data": {"text": "one"}}"""));
+        document.apply(json("""
+                {"op": "update", "id": "a", "type": "header", "data": {"text": "two", "level": 1}}"""));
+
+        JsonNode block = document.toContent().get("blocks").get(0);
+        assertEquals("header", block.get("type").asText());
+        assertEquals(json("""
+                {"text": "two", "level": 1}"""), block.get("data"));
+    }
+
+    @Test
+    void setChangesTopLevelMembersOnly() {
+        CollaborativeDocument document = document("a");
+
+        document.apply(json("""
+                {"op": "set", "key": "time", "value": 42}"""));
+
+        assertEquals(42, document.toContent().get("time").asInt());
+        assertThrows(IllegalArgumentException.class, () -> document.apply(json("""
+                {"op": "set", "key": "blocks", "value": []}""")));
+    }
+
+    @Test
+    void invalidOperationsAreRejectedWithoutSideEffects() {
+        CollaborativeDocument document = document("a", "b");
+        JsonNode before = document.toContent();
+
+        assertThrows(IllegalArgumentException.class, () -> document.apply(json("""
+                {"op": "update", "id": "missing", "data": {}}""")));
+        assertThrows(IllegalArgumentException.class, () -> document.apply(json("""
+                {"op": "insert", "after": null, "block": {"id": "a", "type": "paragraph", "data": {}}}""")));
+        assertThrows(IllegalArgumentException.class, () -> document.apply(json("""
+                {"op": "insert", "after": "missing", "block": {"id": "x", "type": "paragraph", "data": {}}}""")));
+        assertThrows(IllegalArgumentException.class, () -> document.apply(json("""
+                {"op": "move", "id": "a", "after": "a"}""")));
+        assertThrows(IllegalArgumentException.class, () -> document.apply(json("""
+                {"op": "move", "id": "a", "after": "missing"}""")));
+        assertThrows(IllegalArgumentException.class, () -> document.apply(json("""
+                {"op": "split", "id": "a"}""")));
+
+        assertEquals(before, document.toContent());
+    }
+
+    @Test
+    void toContentIsACopy() {
+        CollaborativeDocument document = document("a");
+        JsonNode content = document.toContent();
+
+        document.apply(json("""
+                {"op": "update", "id": "a", "data": {"text": "changed"}}"""));
+
+        assertNotEquals(content, document.toContent());
+    }
+
+    private CollaborativeDocument document(String... ids) {
+        StringBuilder blocks = new StringBuilder();
+        for (String id : ids) {
+            if (!blocks.isEmpty()) {
+                blocks.append(',');
+            }
+            blocks.append("{\"id\": \"").append(id).append("\", \"type\": \"paragraph\", \"data\": {\"text\": \"")
+                    .append(id).append("\"}}");
+        }
+        return new CollaborativeDocument(json("{\"blocks\": [" + blocks + "]}"));
+    }
+
+    private static List<String> ids(CollaborativeDocument document) {
+        List<String> ids = new ArrayList<>();
+        document.toContent().get("blocks").forEach(block -> ids.add(block.get("id").asText()));
+        return ids;
+    }
+
+    private JsonNode json(String text) {
+        try {
+            return objectMapper.readTree(text);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.pradeep.papertrail.service;
+
+import com.pradeep.papertrail.config.SecondLevelCacheConfig;
+import com.pradeep.papertrail.dto.ImageUploadJobDTO;
+import com.pradeep.papertrail.dto.ImageUploadResponse;
+import com.pradeep.papertrail.repository.ImageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Real images table on H2, storage replaced by a local stub; uploads commit from pool threads, so no test transaction
+@DataJpaTest
+@Import(SecondLevelCacheConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:image-uploads;MODE=PostgreSQL;INIT=CREATE DOMAIN IF NOT EXISTS JSONB AS JSON",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.sql.init.mode=never"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImageUploadServiceTest {
+
+    private static final byte[] IMAGE = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+
+    @TempDir
+    Path spoolDirectory;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final StubImageStorage storage = new StubImageStorage();
+    private ThreadPoolTaskExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        storage.release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+        imageRepository.deleteAll();
+        jdbcTemplate.update("delete from storage_outbox");
+    }
+
+    @Test
+    void uploadStreamsSpooledFileAndRemovesIt() throws Exception {
+        ImageUploadService service = service(2, 10);
+
+        ImageUploadResponse response = service.upload(image("my photo.png"), 7L).get(5, TimeUnit.SECONDS);
+
+        assertEquals("https://images.test/my_photo.png", response.getUrl());
+        assertEquals(7L, response.getUserId());
+        assertArrayEquals(IMAGE, storage.received);
+        assertEquals(0, spooledUploads());
+        assertEquals(0, queuedDeletes());
+    }
+
+    @Test
+    void identicalContentIsStoredOncePerUser() throws Exception {
+        ImageUploadService service = service(2, 10);
+
+        ImageUploadResponse first = service.upload(image("a.png"), 7L).get(5, TimeUnit.SECONDS);
+        ImageUploadResponse again = service.upload(image("copy of a.png"), 7L).get(5, TimeUnit.SECONDS);
+        ImageUploadResponse otherUser = service.upload(image("a.png"), 8L).get(5, TimeUnit.SECONDS);
+
+        assertEquals(first.getId(), again.getId());
+        assertEquals(first.getUrl(), again.getUrl());
+        assertNotEquals(first.getId(), otherUser.getId());
+        assertEquals(2, storage.stored);
+        assertEquals(0, spooledUploads());
+    }
+
+    @Test
+    void failedAsyncUploadIsReportedOnTheJob() throws Exception {
+        ImageUploadService service = service(1, 10);
+        storage.failure = new IOException("storage unavailable");
+
+        ImageUploadJobDTO job = service.submit(image("a.png"), 7L);
+        ImageUploadJobDTO finished = awaitJob(service, job.getJobId(), 7L);
+
+        assertEquals(ImageUploadJobDTO.Status.FAILED, finished.getStatus());
+        assertEquals("Failed to upload image: storage unavailable", finished.getError());
+        assertTrue(service.getJob(job.getJobId(), 8L).isEmpty());
+        assertEquals(0, spooledUploads());
+        // The upload guard stays queued, so a partially stored object gets removed
+        assertEquals(1, queuedDeletes());
+    }
+
+    @Test
+    void fullPoolRejectsUploadAndRemovesItsSpoolFile() throws Exception {
+        ImageUploadService service = service(1, 0);
+        storage.release = new CountDownLatch(1);
+        service.upload(image("first.png"), 7L);
+        assertTrue(storage.started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(RejectedExecutionException.class, () -> service.upload(image("second.png"), 7L));
+        assertEquals(1, spooledUploads());
+    }
+
+    @Test
+    void queuedUploadDoesNotTouchTheRequestsFile() throws Exception {
+        ImageUploadService service = service(1, 10);
+        storage.release = new CountDownLatch(1);
+        service.upload(image("first.png"), 7L);
+        assertTrue(storage.started.await(5, TimeUnit.SECONDS));
+
+        RequestScopedFile second = new RequestScopedFile("second.png", "image/webp");
+        ImageUploadJobDTO job = service.submit(second, 8L);
+        // The request has returned; its multipart file is gone before a pool thread gets to the upload
+        second.released = true;
+        storage.release.countDown();
+
+        assertEquals(ImageUploadJobDTO.Status.DONE, awaitJob(service, job.getJobId(), 8L).getStatus());
+        assertEquals("image/webp", storage.contentType);
+    }
+
+    @Test
+    void deleteOnlyQueuesImagesOfTheRequestingUser() throws Exception {
+        ImageUploadService service = service(1, 10);
+        ImageUploadResponse victim = service.upload(image("a.png"), 8L).get(5, TimeUnit.SECONDS);
+        ImageService imageService = imageService();
+
+        // Another user's id, and a traversal dressed up as one's own, match no row of user 7
+        assertFalse(imageService.delete(victim.getPublicId(), 7L));
+        assertFalse(imageService.delete("papertrail/user_7/../user_8/" + victim.getPublicId()
+                .substring(victim.getPublicId().lastIndexOf('/') + 1), 7L));
+        assertEquals(0, queuedDeletes());
+        assertTrue(imageRepository.findFirstByPublicId(victim.getPublicId()).isPresent());
+
+        assertTrue(imageService.delete(victim.getPublicId(), 8L));
+        assertEquals(1, queuedDeletes());
+    }
+
+    @Test
+    void nonImagesAreRejectedBeforeSpooling() throws Exception {
+        ImageUploadService service = service(1, 10);
+        MockMultipartFile text = new MockMultipartFile("file", "notes.txt", "text/plain", "hello".getBytes());
+
+        assertThrows(IllegalArgumentException.class, () -> service.upload(text, 7L));
+        assertEquals(0, spooledUploads());
+    }
+
+    private ImageUploadService service(int threads, int queue) throws IOException {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        // Let a released upload commit before the table is cleared for the next test
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(5);
+        executor.initialize();
+        return new ImageUploadService(imageService(), executor, new SimpleMeterRegistry(), spoolDirectory, Duration.ofMinutes(5));
+    }
+
+    private ImageService imageService() {
+        return new ImageService(storage, imageRepository, new StorageOutbox(jdbcTemplate),
+                new TransactionTemplate(transactionManager), Duration.ofHours(6), "");
+    }
+
+    private static MockMultipartFile image(String name) {
+        return new MockMultipartFile("file", name, "image/png", IMAGE);
+    }
+
+    // Like Tomcat's part after the request completes: its metadata is no longer readable
+    private static final class RequestScopedFile extends MockMultipartFile {
+        private volatile boolean released;
+
+        private RequestScopedFile(String name, String contentType) {
+            super("file", name, contentType, IMAGE);
+        }
+
+        @Override
+        public String getContentType() {
+            if (released) {
+                throw new IllegalStateException("Request has completed");
+            }
+            return super.getContentType();
+        }
+    }
+
+    private static ImageUploadJobDTO awaitJob(ImageUploadService service, String jobId, Long userId)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            ImageUploadJobDTO job = service.getJob(jobId, userId).orElseThrow();
+            if (job.getStatus() == ImageUploadJobDTO.Status.DONE || job.getStatus() == ImageUploadJobDTO.Status.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Upload job did not finish");
+    }
+
+    private int queuedDeletes() {
+        return jdbcTemplate.queryForObject("select count(*) from storage_outbox", Integer.class);
+    }
+
+    private long spooledUploads() throws IOException {
+        try (Stream<Path> entries = Files.list(spoolDirectory)) {
+            return entries.count();
+        }
+    }
+
+    // Stands in for Cloudinary: reads the spooled file the way the SDK streams it
+    private static final class StubImageStorage implements ImageStorage {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile CountDownLatch release = new CountDownLatch(0);
+        private volatile IOException failure;
+        private volatile byte[] received;
+        private volatile String contentType;
+        private volatile int stored;
+
+        @Override
+        public StoredImage store(File file, String sha256, String contentType, Long userId) throws IOException {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            received = Files.readAllBytes(file.toPath());
+            this.contentType = contentType;
+            stored++;
+            String folder = "papertrail/user_" + userId;
+            return new StoredImage(folder + "/" + file.getName(), "https://images.test/" + file.getName(), "png", folder);
+        }
+
+        @Override
+        public void deleteImage(String publicId) {
+        }
+
+        @Override
+        public String getImageUrl(String publicId) {
+            return null;
+        }
+
+        @Override
+        public Optional<Path> getFile(String publicId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void deleteUserFolder(Long userId) {
+        }
+    }
+}
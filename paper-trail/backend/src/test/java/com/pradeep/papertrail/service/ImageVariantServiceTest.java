@@ -0,0 +1,109 @@
+package com.pradeep.papertrail.service;
+
+import com.pradeep.papertrail.model.Image;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageVariantServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void widthIsRoundedUpAndNeverUpscaled() throws Exception {
+        ImageVariantService service = service(Runnable::run, DataSize.ofMegabytes(10));
+        Path source = png("a", 1000, 500);
+
+        ImageVariantService.Variant thumbnail = service.variant(image("a", "png"), source, 100, "jpg").get().orElseThrow();
+        BufferedImage scaled = ImageIO.read(thumbnail.file().toFile());
+        assertEquals(160, scaled.getWidth());
+        assertEquals(80, scaled.getHeight());
+        assertEquals("image/jpeg", thumbnail.contentType());
+
+        Path small = png("s", 100, 50);
+        BufferedImage original = ImageIO.read(service.variant(image("s", "png"), small, 300, null).get()
+                .orElseThrow().file().toFile());
+        assertEquals(100, original.getWidth());
+    }
+
+    @Test
+    void concurrentRequestsShareOneGeneration() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Executor blocked = task -> Executors.newSingleThreadExecutor().execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            task.run();
+        });
+        ImageVariantService service = service(blocked, DataSize.ofMegabytes(10));
+        Path source = png("b", 400, 400);
+
+        CompletableFuture<Optional<ImageVariantService.Variant>> first = service.variant(image("b", "png"), source, 64, null);
+        CompletableFuture<Optional<ImageVariantService.Variant>> second = service.variant(image("b", "png"), source, 64, null);
+        assertSame(first, second);
+
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS).isPresent());
+        assertTrue(service.variant(image("b", "png"), source, 64, null).isDone());
+    }
+
+    @Test
+    void leastRecentlyUsedVariantsAreEvictedOverTheSizeLimit() throws Exception {
+        ImageVariantService service = service(Runnable::run, DataSize.ofKilobytes(1));
+        Path first = service.variant(image("c", "png"), png("c", 300, 300), 64, null).get().orElseThrow().file();
+        Path second = service.variant(image("d", "png"), png("d", 300, 300), 64, null).get().orElseThrow().file();
+
+        assertFalse(Files.exists(first));
+        assertTrue(Files.exists(second));
+        assertEquals(Files.size(second), service.cachedBytes());
+    }
+
+    private ImageVariantService service(Executor executor, DataSize cacheSize) throws IOException {
+        return new ImageVariantService(executor, new SimpleMeterRegistry(), directory.resolve("variants"), cacheSize,
+                List.of(64, 160, 320), 50_000_000L, 0.8f);
+    }
+
+    // Noise compresses badly, so tiny variants still exceed the 1KB cache in the eviction test
+    private Path png(String name, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(name.hashCode());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        Path file = directory.resolve(name + ".png");
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+
+    private static Image image(String sha256, String format) {
+        Image image = new Image();
+        image.setSha256(sha256.repeat(64));
+        image.setFormat(format);
+        return image;
+    }
+}
@@ -0,0 +1,300 @@
+package com.pradeep.papertrail.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonPatchesTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void diffOfEqualDocumentsIsEmpty() {
+        JsonNode document = json("""
+                {"blocks": [{"id": "a", "data": {"text": "same"}}]}""");
+
+        assertTrue(JsonPatches.diff(document, document.deepCopy()).isEmpty());
+    }
+
+    @Test
+    void editedBlockOnlyPatchesThatBlock() {
+        JsonNode source = json("""
+                {"blocks": [
+                  {"id": "a", "data": {"text": "first"}},
+                  {"id": "b", "data": {"text": "second"}},
+                  {"id": "c", "data": {"text": "third"}}
+                ]}""");
+        JsonNode target = json("""
+                {"blocks": [
+                  {"id": "a", "data": {"text": "first"}},
+                  {"id": "b", "data": {"text": "second, edited"}},
+                  {"id": "c", "data": {"text": "third"}}
+                ]}""");
+
+        ArrayNode patch = roundTrip(source, target);
+
+        assertEquals(json("""
+                [{"op": "replace", "path": "/blocks/1/data/text", "value": "second, edited"}]"""), patch);
+    }
+
+    @Test
+    void arrayInsertsAndDeletesAlignOnTheCommonSubsequence() {
+        JsonNode source = json("""
+                ["a", "b", "c", "d", "e", "f"]""");
+        JsonNode target = json("""
+                ["x", "a", "c", "d", "y", "f", "z"]""");
+
+        ArrayNode patch = roundTrip(source, target);
+
+        // b and e are replaced or removed, x/y/z added; a, c, d and f are never touched
+        patch.forEach(operation -> assertTrue(operation.get("value") == null
+                || !operation.get("value").asText().matches("[acdf]"), operation::toString));
+    }
+
+    @Test
+    void arrayReversalsAndDuplicatesRoundTrip() {
+        roundTrip(json("[1, 2, 3, 4, 5]"), json("[5, 4, 3, 2, 1]"));
+        roundTrip(json("[1, 1, 2, 1, 1]"), json("[1, 2, 2, 1]"));
+        roundTrip(json("[]"), json("[1, [2], {\"three\": 3}]"));
+        roundTrip(json("[1, [2], {\"three\": 3}]"), json("[]"));
+    }
+
+    @Test
+    void nestedObjectsRoundTrip() {
+        roundTrip(json("""
+                {"time": 1, "meta": {"tags": ["a", "b"], "owner": {"name": "Ann", "email": "ann@example.com"}}}"""),
+                json("""
+                {"time": 2, "meta": {"tags": ["b", "c"], "owner": {"name": "Ann"}, "pinned": true}}"""));
+    }
+
+    @Test
+    void membersNeedingPointerEscapesRoundTrip() {
+        ArrayNode patch = roundTrip(json("""
+                {"a/b": 1, "c~d": {"e~1f": 2}}"""), json("""
+                {"a/b": 3, "c~d": {"e~1f": 4}, "new/~": 5}"""));
+
+        assertTrue(patch.toString().contains("/a~1b"));
+        assertTrue(patch.toString().contains("/c~0d/e~01f"));
+        assertTrue(patch.toString().contains("/new~1~0"));
+    }
+
+    @Test
+    void typeChangesReplaceTheWholeValue() {
+        roundTrip(json("""
+                {"value": [1, 2]}"""), json("""
+                {"value": {"0": 1, "1": 2}}"""));
+        roundTrip(json("""
+                {"value": {"nested": true}}"""), json("""
+                {"value": "text"}"""));
+        roundTrip(json("""
+                {"value": 1}"""), json("""
+                {"value": null}"""));
+        roundTrip(json("[1, \"1\", [1]]"), json("[\"1\", [1], 1]"));
+        roundTrip(json("""
+                {"document": true}"""), json("[\"now an array\"]"));
+    }
+
+    @Test
+    void largeArraysFallBackToPositionalDiffAndStillRoundTrip() {
+        ArrayNode source = objectMapper.createArrayNode();
+        ArrayNode target = objectMapper.createArrayNode();
+        for (int i = 0; i < 1_000; i++) {
+            source.add(i);
+            target.add(i % 7 == 0 ? -i : i);
+        }
+        target.add("tail");
+
+        roundTrip(source, target);
+    }
+
+    @Test
+    void dashIndexAppendsOnlyForAdd() {
+        JsonNode document = json("""
+                {"list": [1, 2]}""");
+
+        assertEquals(json("""
+                {"list": [1, 2, 3]}"""), apply(document, """
+                [{"op": "add", "path": "/list/-", "value": 3}]"""));
+        assertEquals(json("""
+                {"list": [1, 2, 3]}"""), apply(document, """
+                [{"op": "add", "path": "/list/2", "value": 3}]"""));
+        assertRejected(document, """
+                [{"op": "add", "path": "/list/3", "value": 3}]""");
+        assertRejected(document, """
+                [{"op": "remove", "path": "/list/-"}]""");
+        assertRejected(document, """
+                [{"op": "replace", "path": "/list/-", "value": 3}]""");
+        assertRejected(document, """
+                [{"op": "remove", "path": "/list/01"}]""");
+    }
+
+    @Test
+    void addInsertsIntoArraysAndReplacesObjectMembers() {
+        JsonNode document = json("""
+                {"list": ["a", "c"], "member": 1}""");
+
+        assertEquals(json("""
+                {"list": ["a", "b", "c"], "member": 2}"""), apply(document, """
+                [{"op": "add", "path": "/list/1", "value": "b"},
+                 {"op": "add", "path": "/member", "value": 2}]"""));
+        assertRejected(document, """
+                [{"op": "add", "path": "/member/child", "value": 2}]""");
+        assertRejected(document, """
+                [{"op": "add", "path": "/missing/child", "value": 2}]""");
+    }
+
+    @Test
+    void moveAndCopyIntoAnAncestorReplaceIt() {
+        JsonNode document = json("""
+                {"outer": {"inner": {"leaf": true}, "sibling": 1}}""");
+
+        assertEquals(json("""
+                {"outer": {"leaf": true}}"""), apply(document, """
+                [{"op": "move", "from": "/outer/inner", "path": "/outer"}]"""));
+        assertEquals(json("""
+                {"outer": {"leaf": true}}"""), apply(document, """
+                [{"op": "copy", "from": "/outer/inner", "path": "/outer"}]"""));
+        assertEquals(json("""
+                {"leaf": true}"""), apply(document, """
+                [{"op": "move", "from": "/outer/inner", "path": ""}]"""));
+        assertRejected(document, """
+                [{"op": "move", "from": "/outer", "path": "/outer/inner/outer"}]""");
+    }
+
+    @Test
+    void moveWithinAnArrayReindexesAfterTheRemoval() {
+        JsonNode document = json("""
+                {"list": ["a", "b", "c"]}""");
+
+        assertEquals(json("""
+                {"list": ["b", "c", "a"]}"""), apply(document, """
+                [{"op": "move", "from": "/list/0", "path": "/list/2"}]"""));
+        assertEquals(document, apply(document, """
+                [{"op": "move", "from": "/list/1", "path": "/list/1"}]"""));
+    }
+
+    @Test
+    void failedTestRejectsTheWholePatch() {
+        JsonNode document = json("""
+                {"version": 1, "list": [1]}""");
+        JsonNode original = document.deepCopy();
+
+        assertRejected(document, """
+                [{"op": "add", "path": "/list/-", "value": 2},
+                 {"op": "test", "path": "/version", "value": 2}]""");
+        assertRejected(document, """
+                [{"op": "test", "path": "/missing", "value": null}]""");
+        assertEquals(original, document);
+        assertEquals(document, apply(document, """
+                [{"op": "test", "path": "/list", "value": [1]}]"""));
+    }
+
+    @Test
+    void malformedOperationsAreRejected() {
+        JsonNode document = json("""
+                {"a": 1}""");
+
+        assertThrows(IllegalArgumentException.class, () -> JsonPatches.apply(document, json("""
+                {"op": "remove", "path": "/a"}""")));
+        assertRejected(document, """
+                [{"path": "/a"}]""");
+        assertRejected(document, """
+                [{"op": "replace", "path": "/a"}]""");
+        assertRejected(document, """
+                [{"op": "move", "path": "/b"}]""");
+        assertRejected(document, """
+                [{"op": "rename", "path": "/a"}]""");
+        assertRejected(document, """
+                [{"op": "remove", "path": ""}]""");
+        assertRejected(document, """
+                [{"op": "remove", "path": "a"}]""");
+    }
+
+    @Test
+    void pointerTokensAreUnescapedOnce() {
+        assertEquals(List.of(), JsonPatches.parsePointer(""));
+        assertEquals(List.of(""), JsonPatches.parsePointer("/"));
+        assertEquals(List.of("a", "", "b"), JsonPatches.parsePointer("/a//b"));
+        assertEquals(List.of("a/b", "c~d", "~1", "/0"), JsonPatches.parsePointer("/a~1b/c~0d/~01/~10"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPatches.parsePointer("a/b"));
+
+        assertEquals(json("""
+                {"a/b": 2, "~": 3}"""), apply(json("""
+                {"a/b": 1, "~": 1}"""), """
+                [{"op": "replace", "path": "/a~1b", "value": 2},
+                 {"op": "replace", "path": "/~0", "value": 3}]"""));
+    }
+
+    // RFC 7386 Appendix A
+    @Test
+    void mergeFollowsTheRfcExamples() {
+        assertMerge("{\"a\": \"b\"}", "{\"a\": \"c\"}", "{\"a\": \"c\"}");
+        assertMerge("{\"a\": \"b\"}", "{\"b\": \"c\"}", "{\"a\": \"b\", \"b\": \"c\"}");
+        assertMerge("{\"a\": \"b\"}", "{\"a\": null}", "{}");
+        assertMerge("{\"a\": \"b\", \"b\": \"c\"}", "{\"a\": null}", "{\"b\": \"c\"}");
+        assertMerge("{\"a\": [\"b\"]}", "{\"a\": \"c\"}", "{\"a\": \"c\"}");
+        assertMerge("{\"a\": \"c\"}", "{\"a\": [\"b\"]}", "{\"a\": [\"b\"]}");
+        assertMerge("{\"a\": {\"b\": \"c\"}}", "{\"a\": {\"b\": \"d\", \"c\": null}}", "{\"a\": {\"b\": \"d\"}}");
+        assertMerge("{\"a\": [{\"b\": \"c\"}]}", "{\"a\": [1]}", "{\"a\": [1]}");
+        assertMerge("[\"a\", \"b\"]", "[\"c\", \"d\"]", "[\"c\", \"d\"]");
+        assertMerge("{\"a\": \"b\"}", "[\"c\"]", "[\"c\"]");
+        assertMerge("{\"a\": \"foo\"}", "null", "null");
+        assertMerge("{\"a\": \"foo\"}", "\"bar\"", "\"bar\"");
+        assertMerge("{\"e\": null}", "{\"a\": 1}", "{\"e\": null, \"a\": 1}");
+        assertMerge("[1, 2]", "{\"a\": \"b\", \"c\": null}", "{\"a\": \"b\"}");
+        assertMerge("{}", "{\"a\": {\"bb\": {\"ccc\": null}}}", "{\"a\": {\"bb\": {}}}");
+    }
+
+    @Test
+    void mergeLeavesItsInputsUnchanged() {
+        JsonNode target = json("""
+                {"blocks": [1], "meta": {"keep": 1, "drop": 2}}""");
+        JsonNode patch = json("""
+                {"meta": {"drop": null, "added": {"deep": true}}}""");
+        JsonNode targetBefore = target.deepCopy();
+        JsonNode patchBefore = patch.deepCopy();
+
+        JsonNode merged = JsonPatches.merge(target, patch);
+        ((ObjectNode) merged.get("meta").get("added")).put("deep", false);
+
+        assertEquals(targetBefore, target);
+        assertEquals(patchBefore, patch);
+    }
+
+    private ArrayNode roundTrip(JsonNode source, JsonNode target) {
+        JsonNode original = source.deepCopy();
+        ArrayNode patch = JsonPatches.diff(source, target);
+
+        assertEquals(target, JsonPatches.apply(source, patch), patch::toString);
+        assertEquals(original, source);
+        return patch;
+    }
+
+    private JsonNode apply(JsonNode document, String patch) {
+        return JsonPatches.apply(document, json(patch));
+    }
+
+    private void assertRejected(JsonNode document, String patch) {
+        assertThrows(IllegalArgumentException.class, () -> apply(document, patch), patch);
+    }
+
+    private void assertMerge(String target, String patch, String expected) {
+        assertEquals(json(expected), JsonPatches.merge(json(target), json(patch)), patch);
+    }
+
+    private JsonNode json(String text) {
+        try {
+            return objectMapper.readTree(text);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.pradeep.papertrail.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalImageStorageTest {
+
+    private static final String SHA256 = "a".repeat(64);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storedImageIsFoundAndDeletedByItsPublicId() throws IOException {
+        LocalImageStorage storage = new LocalImageStorage(directory.resolve("images"));
+
+        String publicId = store(storage, 7L).publicId();
+
+        assertEquals("papertrail/user_7/" + SHA256, publicId);
+        assertTrue(storage.getFile(publicId).isPresent());
+        storage.deleteImages(List.of(publicId));
+        assertTrue(storage.getFile(publicId).isEmpty());
+    }
+
+    @Test
+    void idsOutsideTheContentAddressedShapeNeverReachAnotherUsersFile() throws IOException {
+        LocalImageStorage storage = new LocalImageStorage(directory.resolve("images"));
+        String victim = store(storage, 8L).publicId();
+
+        List<String> forged = List.of(
+                "papertrail/user_7/../user_8/" + SHA256,
+                "papertrail/user_7/./" + SHA256,
+                "papertrail/user_7//" + SHA256,
+                "papertrail/user_7/" + SHA256.toUpperCase(),
+                "papertrail/user_7/" + SHA256 + "/..",
+                "papertrail/user_8",
+                "/papertrail/user_8/" + SHA256,
+                "papertrail\\user_8\\" + SHA256,
+                "");
+        for (String publicId : forged) {
+            assertThrows(IllegalArgumentException.class, () -> storage.getFile(publicId), publicId);
+            storage.deleteImage(publicId);
+        }
+
+        assertTrue(Files.isRegularFile(storage.getFile(victim).orElseThrow()));
+    }
+
+    private ImageStorage.StoredImage store(LocalImageStorage storage, Long userId) throws IOException {
+        Path file = Files.write(directory.resolve("upload-" + userId + ".png"), new byte[]{1, 2, 3});
+        return storage.store(file.toFile(), SHA256, "image/png", userId);
+    }
+}
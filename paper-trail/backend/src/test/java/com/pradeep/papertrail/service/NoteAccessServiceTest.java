@@ -0,0 +1,58 @@
+package com.pradeep.papertrail.service;
+
+import com.pradeep.papertrail.model.AccessLevel;
+import com.pradeep.papertrail.repository.NoteRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NoteAccessServiceTest {
+
+    private final NoteRepository noteRepository = mock(NoteRepository.class);
+    private final NoteAccessService service = new NoteAccessService(noteRepository, new SimpleMeterRegistry(),
+            100, Duration.ofMinutes(1));
+
+    @Test
+    void invalidateDuringALoadDropsTheStaleResult() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // The first query reads the share before it is revoked, the second after
+        when(noteRepository.findAccessLevel(1L, 2L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of("EDIT");
+        }).thenReturn(Optional.of("NONE"));
+
+        CompletableFuture<AccessLevel> stale = CompletableFuture.supplyAsync(() -> service.resolve(1L, 2L));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        // The revoke commits and invalidates while that query is in flight
+        CompletableFuture<Void> revoke = CompletableFuture.runAsync(() -> service.invalidate(1L, 2L));
+        assertThrows(TimeoutException.class, () -> revoke.get(300, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertEquals(AccessLevel.EDIT, stale.get(5, TimeUnit.SECONDS));
+        revoke.get(5, TimeUnit.SECONDS);
+        assertEquals(AccessLevel.NONE, service.resolve(1L, 2L));
+    }
+
+    @Test
+    void missingNotesAreNotCached() {
+        when(noteRepository.findAccessLevel(1L, 2L)).thenReturn(Optional.empty()).thenReturn(Optional.of("OWNER"));
+
+        assertThrows(RuntimeException.class, () -> service.resolve(1L, 2L));
+        assertEquals(AccessLevel.OWNER, service.resolve(1L, 2L));
+    }
+}
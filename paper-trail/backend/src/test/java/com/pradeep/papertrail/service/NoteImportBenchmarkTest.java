@@ -0,0 +1,114 @@
+package com.pradeep.papertrail.service;
+
+import com.pradeep.papertrail.dto.NoteImportResultDTO;
+import com.pradeep.papertrail.model.Note;
+import com.pradeep.papertrail.model.User;
+import com.pradeep.papertrail.repository.NoteRepository;
+import com.pradeep.papertrail.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Import throughput against the configured PostgreSQL database, compared with saving notes one by one
+ * the way /notes/create does. Run with: mvn test -Pbenchmark [-Dbenchmark.notes=200000]
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class NoteImportBenchmarkTest {
+
+    private static final int NOTES = Integer.getInteger("benchmark.notes", 50_000);
+    private static final int BASELINE_NOTES = Math.max(1, NOTES / 10);
+
+    @Autowired
+    private NoteImportService importService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = new User();
+        owner.setName("Import Benchmark");
+        owner.setEmail("import-bench-" + UUID.randomUUID() + "@example.com");
+        owner.setPassword("secret");
+        owner = userRepository.save(owner);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from note where user_id = ?", owner.getId());
+        userRepository.deleteById(owner.getId());
+    }
+
+    @Test
+    void batchedImportThroughput() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < NOTES; i++) {
+            ndjson.append(noteLine(i)).append('\n');
+            if (i == NOTES / 2) {
+                // Per-record errors must not abort the run
+                ndjson.append("{not json\n");
+                ndjson.append("{\"title\": \"").append("x".repeat(300)).append("\"}\n");
+            }
+        }
+        byte[] input = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+
+        long start = System.nanoTime();
+        NoteImportResultDTO result = importService.importNdjson(owner.getId(), owner.getName(),
+                new ByteArrayInputStream(input));
+        double importSeconds = (System.nanoTime() - start) / 1e9;
+
+        start = System.nanoTime();
+        for (int i = 0; i < BASELINE_NOTES; i++) {
+            Note note = new Note();
+            note.setTitle("Baseline " + i);
+            note.setContent(content(i));
+            note.setUser(owner);
+            note.setCreatedBy(owner.getName());
+            noteRepository.save(note);
+        }
+        double baselineSeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Import: %d notes (%.1f MB) in %.2fs = %.0f notes/s%n",
+                result.getImported(), input.length / 1e6, importSeconds, result.getImported() / importSeconds);
+        System.out.printf("Single saves: %d notes in %.2fs = %.0f notes/s%n",
+                BASELINE_NOTES, baselineSeconds, BASELINE_NOTES / baselineSeconds);
+
+        assertEquals(NOTES, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(NOTES / 2 + 2, result.getErrors().get(0).getLine());
+    }
+
+    private static String noteLine(int i) {
+        return "{\"title\": \"Imported " + i + "\", \"createdAt\": \"2023-01-01T10:00:00\", \"content\": "
+                + "{\"time\": " + i + ", \"blocks\": [{\"id\": \"b" + i + "\", \"type\": \"paragraph\", "
+                + "\"data\": {\"text\": \"Migrated note " + i + " from the previous system, with a paragraph of "
+                + "ordinary length so the row size is realistic.\"}}]}}";
+    }
+
+    private static Map<String, Object> content(int i) {
+        return Map.of("time", i, "blocks", List.of(Map.of("id", "b" + i, "type", "paragraph",
+                "data", Map.of("text", "Baseline note " + i + " saved one row at a time."))));
+    }
+}
@@ -0,0 +1,223 @@
+package com.pradeep.papertrail.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pradeep.papertrail.model.Note;
+import com.pradeep.papertrail.model.User;
+import com.pradeep.papertrail.repository.NoteRepository;
+import com.pradeep.papertrail.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The jsonb_set pushdown must leave the same document and snippet as the in-memory JsonPatches.apply path.
+ * Needs the configured PostgreSQL database. Run with: mvn test -Ppostgres
+ */
+@Tag("postgres")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class NotePatchPushdownTest {
+
+    private static final String DOCUMENT = """
+            {"time": 1700000000000, "blocks": [
+              {"id": "a", "type": "paragraph", "data": {"text": "<b>First</b>&nbsp;block"}},
+              {"id": "b", "type": "list", "data": {"style": "ordered", "items": ["one", "two"]}},
+              {"id": "c", "type": "paragraph", "data": {"text": "Third", "quote\\"d": {"a/b": 1, "~": 2}}}
+            ]}""";
+
+    // Shapes the pushdown handles; each must be written without loading the note
+    private static final List<String> PUSHED_DOWN = List.of(
+            """
+            [{"op": "replace", "path": "/blocks/0/data/text", "value": "Edited first"}]""",
+            """
+            [{"op": "test", "path": "/blocks/1/id", "value": "b"},
+             {"op": "replace", "path": "/blocks/1/data/items/1", "value": {"nested": [null, true]}},
+             {"op": "replace", "path": "/time", "value": 1}]""",
+            """
+            [{"op": "replace", "path": "/blocks/2/data/quote\\"d/a~1b", "value": "escaped"},
+             {"op": "replace", "path": "/blocks/2/data/quote\\"d/~0", "value": null}]""",
+            """
+            [{"op": "add", "path": "/blocks/0", "value": {"id": "z", "type": "paragraph", "data": {"text": "New first"}}}]""",
+            """
+            [{"op": "add", "path": "/blocks/3", "value": {"id": "d", "type": "paragraph", "data": {"text": "Last"}}}]""",
+            """
+            [{"op": "add", "path": "/blocks/1/data/items/0", "value": "zero"}]""",
+            """
+            [{"op": "add", "path": "/blocks/0/data/text", "value": "Added over the old text"}]""",
+            """
+            [{"op": "add", "path": "/version", "value": "2.28.0"}]""",
+            """
+            [{"op": "add", "path": "/blocks/2/data/0", "value": "member named like an index"}]""",
+            """
+            [{"op": "remove", "path": "/blocks/0"}]""",
+            """
+            [{"op": "remove", "path": "/blocks/1/data/items/0"}]""",
+            """
+            [{"op": "remove", "path": "/time"}]""");
+
+    // The pushdown declines or finds its preconditions unmet; the in-memory path decides
+    private static final List<String> FALLS_BACK = List.of(
+            """
+            [{"op": "add", "path": "/blocks/-", "value": {"id": "d"}}]""",
+            """
+            [{"op": "move", "from": "/blocks/0", "path": "/blocks/2"}]""",
+            """
+            [{"op": "replace", "path": "/blocks/0/data/text", "value": "overlapping"},
+             {"op": "replace", "path": "/blocks/0/data", "value": {"text": "wins"}}]""",
+            """
+            [{"op": "add", "path": "/blocks/2/data/01", "value": "object member, not an index"}]""");
+
+    private static final List<String> REJECTED = List.of(
+            """
+            [{"op": "replace", "path": "/missing", "value": 1}]""",
+            """
+            [{"op": "test", "path": "/blocks/0/id", "value": "b"},
+             {"op": "replace", "path": "/time", "value": 1}]""",
+            """
+            [{"op": "add", "path": "/blocks/4", "value": {"id": "d"}}]""",
+            """
+            [{"op": "add", "path": "/time/child", "value": 1}]""",
+            """
+            [{"op": "replace", "path": "/blocks/first/data/text", "value": "not an index"}]""",
+            """
+            [{"op": "remove", "path": "/blocks/3"}]""",
+            // PostgreSQL would take these as the last block and block 1
+            """
+            [{"op": "replace", "path": "/blocks/-1/data/text", "value": "from the end"}]""",
+            """
+            [{"op": "remove", "path": "/blocks/-1"}]""",
+            """
+            [{"op": "replace", "path": "/blocks/01/id", "value": "leading zero"}]""",
+            """
+            [{"op": "remove", "path": "/blocks/+1"}]""",
+            """
+            [{"op": "add", "path": "/blocks/ 1", "value": {"id": "padded"}}]""");
+
+    @Autowired
+    private NotePatchService patchService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User owner;
+    private Long noteId;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        owner = new User();
+        owner.setName("Pushdown Test");
+        owner.setEmail("pushdown-" + UUID.randomUUID() + "@example.com");
+        owner.setPassword("secret");
+        owner = userRepository.save(owner);
+
+        Note note = new Note();
+        note.setTitle("Pushdown");
+        note.setUser(owner);
+        note.setCreatedBy(owner.getName());
+        note.setContent(Map.of("blocks", List.of()));
+        noteId = noteRepository.save(note).getId();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(patchService, "pushdownEnabled", true);
+        jdbcTemplate.update("delete from note_revisions where note_id = ?", noteId);
+        jdbcTemplate.update("delete from note where id = ?", noteId);
+        userRepository.deleteById(owner.getId());
+    }
+
+    @Test
+    void pushdownWritesWhatTheInMemoryPathWrites() {
+        for (String patch : PUSHED_DOWN) {
+            apply(patch, false);
+            Note inMemory = load();
+            apply(patch, true);
+            assertEquals(0, statistics.getEntityStatistics(Note.class.getName()).getLoadCount(), patch);
+
+            assertSameResult(patch, inMemory, load());
+        }
+    }
+
+    @Test
+    void declinedPushdownsFallBackToTheSameResult() {
+        for (String patch : FALLS_BACK) {
+            apply(patch, false);
+            Note inMemory = load();
+            apply(patch, true);
+
+            assertSameResult(patch, inMemory, load());
+        }
+    }
+
+    @Test
+    void patchesThatCannotApplyFailOnBothPaths() {
+        for (String patch : REJECTED) {
+            for (boolean pushdown : List.of(false, true)) {
+                assertThrows(IllegalArgumentException.class, () -> apply(patch, pushdown), patch);
+                assertEquals(json(DOCUMENT), objectMapper.valueToTree(load().getContent()), patch);
+            }
+        }
+    }
+
+    private void assertSameResult(String patch, Note inMemory, Note pushedDown) {
+        JsonNode expected = JsonPatches.apply(json(DOCUMENT), json(patch));
+        assertEquals(expected, objectMapper.valueToTree(inMemory.getContent()), patch);
+        assertEquals(expected, objectMapper.valueToTree(pushedDown.getContent()), patch);
+        assertEquals(inMemory.getSnippet(), pushedDown.getSnippet(), patch);
+        assertEquals(inMemory.getVersion(), pushedDown.getVersion(), patch);
+    }
+
+    // Resets the note to DOCUMENT at version 0, then patches it on the chosen path
+    private void apply(String patch, boolean pushdown) {
+        jdbcTemplate.update("delete from note_revisions where note_id = ?", noteId);
+        jdbcTemplate.update("update note set content = cast(? as jsonb), version = 0, snippet = null where id = ?",
+                DOCUMENT, noteId);
+        ReflectionTestUtils.setField(patchService, "pushdownEnabled", pushdown);
+        statistics.clear();
+        patchService.applyJsonPatch(noteId, json(patch), null, owner.getId());
+    }
+
+    private Note load() {
+        return noteRepository.findById(noteId).orElseThrow();
+    }
+
+    private JsonNode json(String text) {
+        try {
+            return objectMapper.readTree(text);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.pradeep.papertrail.service;
+
+import com.pradeep.papertrail.controller.NoteController;
+import com.pradeep.papertrail.model.AccessLevel;
+import com.pradeep.papertrail.model.Note;
+import com.pradeep.papertrail.model.NotePermission.Permission;
+import com.pradeep.papertrail.model.User;
+import com.pradeep.papertrail.repository.NoteRepository;
+import com.pradeep.papertrail.repository.UserRepository;
+import com.pradeep.papertrail.security.UserDetailsImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Set-based shares and revokes against the unique (note_id, user_id) index, and the migration that creates it.
+ * Needs the configured PostgreSQL database. Run with: mvn test -Ppostgres
+ */
+@Tag("postgres")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class NoteSharingServiceTest {
+
+    @Autowired
+    private NoteSharingService sharingService;
+
+    @Autowired
+    private NoteAccessService noteAccessService;
+
+    @Autowired
+    private NoteController noteController;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<User> users = new ArrayList<>();
+    private User owner;
+    private Long first;
+    private Long second;
+
+    @BeforeEach
+    void setUp() {
+        owner = user("owner");
+        first = note();
+        second = note();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from note_permissions where note_id in (?, ?)", first, second);
+        jdbcTemplate.update("delete from note where id in (?, ?)", first, second);
+        users.forEach(user -> userRepository.deleteById(user.getId()));
+    }
+
+    @Test
+    void reShareOnlyReportsAChangedPermission() {
+        User reader = user("reader");
+        assertEquals(AccessLevel.NONE, noteAccessService.resolve(first, reader.getId()));
+
+        NoteSharingService.Grant granted = only(share(first, reader, Permission.READ));
+        assertTrue(granted.inserted());
+        assertEquals(AccessLevel.READ, noteAccessService.resolve(first, reader.getId()));
+
+        // The same row is updated in place, and the cached access follows it
+        NoteSharingService.Grant upgraded = only(share(first, reader, Permission.EDIT));
+        assertFalse(upgraded.inserted());
+        assertEquals(granted.id(), upgraded.id());
+        assertEquals(AccessLevel.EDIT, noteAccessService.resolve(first, reader.getId()));
+
+        assertEquals(List.of(), share(first, reader, Permission.EDIT));
+        assertEquals(List.of(Map.of("permission", "EDIT")), jdbcTemplate.queryForList(
+                "select permission from note_permissions where note_id = ? and user_id = ?", first, reader.getId()));
+    }
+
+    @Test
+    void revokeReturnsTheRemovedPairs() {
+        User one = user("one");
+        User two = user("two");
+        User never = user("never");
+        assertEquals(4, sharingService.share(List.of(first, second), List.of(one.getId(), two.getId()),
+                Permission.READ, owner.getId()).size());
+        noteAccessService.resolve(first, one.getId());
+
+        List<NoteSharingService.Grant> removed = sharingService.revoke(List.of(first),
+                List.of(one.getId(), two.getId(), never.getId()), owner.getId());
+
+        assertEquals(Set.of(List.of(first, one.getId()), List.of(first, two.getId())), removed.stream()
+                .map(grant -> List.of(grant.noteId(), grant.userId()))
+                .collect(Collectors.toSet()));
+        assertEquals(AccessLevel.NONE, noteAccessService.resolve(first, one.getId()));
+        assertEquals(AccessLevel.READ, noteAccessService.resolve(second, one.getId()));
+        assertEquals(List.of(), sharingService.revoke(List.of(first), List.of(one.getId()), owner.getId()));
+    }
+
+    @Test
+    void shareEndpointTellsANewGrantFromAnUpdatedOne() {
+        User reader = user("reader");
+        UserDetailsImpl principal = new UserDetailsImpl(owner);
+
+        assertEquals("Note shared successfully",
+                noteController.shareNote(first, reader.getEmail(), Permission.READ, principal).getBody());
+        assertEquals("Permission updated successfully",
+                noteController.shareNote(first, reader.getEmail(), Permission.EDIT, principal).getBody());
+    }
+
+    @Test
+    void migrationMergesDuplicateGrantsKeepingEditThenTheNewest() throws IOException {
+        User one = user("one");
+        User two = user("two");
+        String merge = schemaStatement("DELETE FROM note_permissions p");
+
+        // Recreate the pre-index state inside a transaction that is rolled back, index included
+        List<Map<String, Object>> merged = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            jdbcTemplate.execute("drop index uk_note_permissions_note_user");
+            for (String permission : List.of("EDIT", "READ", "EDIT", "READ")) {
+                grant(first, one, permission);
+            }
+            grant(first, two, "READ");
+            grant(first, two, "READ");
+            grant(second, one, "READ");
+            Long newestEdit = jdbcTemplate.queryForObject("""
+                    select max(id) from note_permissions
+                    where note_id = ? and user_id = ? and permission = 'EDIT'""", Long.class, first, one.getId());
+            Long newestRead = jdbcTemplate.queryForObject("""
+                    select max(id) from note_permissions where note_id = ? and user_id = ?""",
+                    Long.class, first, two.getId());
+
+            jdbcTemplate.execute(merge);
+            return jdbcTemplate.queryForList("""
+                    select note_id, user_id, permission, id in (?, ?) as newest from note_permissions
+                    where note_id in (?, ?) order by note_id, user_id""", newestEdit, newestRead, first, second);
+        });
+
+        assertEquals(List.of(
+                Map.of("note_id", first, "user_id", one.getId(), "permission", "EDIT", "newest", true),
+                Map.of("note_id", first, "user_id", two.getId(), "permission", "READ", "newest", true),
+                Map.of("note_id", second, "user_id", one.getId(), "permission", "READ", "newest", false)), merged);
+    }
+
+    private List<NoteSharingService.Grant> share(Long noteId, User user, Permission permission) {
+        return sharingService.share(List.of(noteId), List.of(user.getId()), permission, owner.getId());
+    }
+
+    private static NoteSharingService.Grant only(List<NoteSharingService.Grant> grants) {
+        assertEquals(1, grants.size(), grants.toString());
+        return grants.get(0);
+    }
+
+    private void grant(Long noteId, User user, String permission) {
+        jdbcTemplate.update("""
+                insert into note_permissions (id, note_id, user_id, permission)
+                values (nextval('note_permissions_seq'), ?, ?, ?)""", noteId, user.getId(), permission);
+    }
+
+    // The statement as the init script runs it
+    private static String schemaStatement(String prefix) throws IOException {
+        String schema = new ClassPathResource("schema-postgresql.sql").getContentAsString(StandardCharsets.UTF_8);
+        return Arrays.stream(schema.split(";"))
+                .map(statement -> statement.lines()
+                        .filter(line -> !line.startsWith("--"))
+                        .collect(Collectors.joining("\n"))
+                        .trim())
+                .filter(statement -> statement.startsWith(prefix))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private User user(String name) {
+        User user = new User();
+        user.setName("Sharing " + name);
+        user.setEmail("sharing-" + name + "-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+        users.add(user);
+        return user;
+    }
+
+    private Long note() {
+        Note note = new Note();
+        note.setTitle("Sharing");
+        note.setUser(owner);
+        note.setCreatedBy(owner.getName());
+        note.setContent(Map.of("blocks", List.of()));
+        return noteRepository.save(note).getId();
+    }
+}
@@ -0,0 +1,88 @@
+package com.pradeep.papertrail.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Outbox deletes racing uploads of the same content-addressed object.
+ * Needs the configured PostgreSQL database. Run with: mvn test -Ppostgres
+ */
+@Tag("postgres")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        // Only the worker under test drains
+        "papertrail.storage.outbox.poll-interval=1h"
+})
+class StorageOutboxWorkerTest {
+
+    private final String publicId = "papertrail/user_0/outbox-test-" + UUID.randomUUID();
+    private final ImageStorage storage = mock(ImageStorage.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StorageOutbox storageOutbox;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from storage_outbox where target = ?", publicId);
+    }
+
+    @Test
+    void uploadGuardWaitsForAnInFlightDeleteOfTheSameObject() throws Exception {
+        storageOutbox.deleteImages(List.of(publicId));
+        CountDownLatch deleting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            deleting.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(storage).deleteImages(List.of(publicId));
+
+        CompletableFuture<Void> drain = CompletableFuture.runAsync(worker()::drain);
+        assertTrue(deleting.await(5, TimeUnit.SECONDS));
+
+        // The same content is uploaded again while the object is being deleted
+        CompletableFuture<Void> guard = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(
+                status -> storageOutbox.deleteImageLater(publicId, Duration.ofHours(6))));
+        assertThrows(TimeoutException.class, () -> guard.get(300, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        drain.get(5, TimeUnit.SECONDS);
+        guard.get(5, TimeUnit.SECONDS);
+
+        // The upload stores the object after the delete, under a fresh guard
+        LocalDateTime due = jdbcTemplate.queryForObject(
+                "select next_attempt_at from storage_outbox where target = ?", LocalDateTime.class, publicId);
+        assertTrue(due.isAfter(LocalDateTime.now().plusHours(5)));
+    }
+
+    private StorageOutboxWorker worker() {
+        return new StorageOutboxWorker(jdbcTemplate, transactionTemplate, storage, Runnable::run,
+                new SimpleMeterRegistry(), 1, 10, Duration.ofMinutes(5), Duration.ofSeconds(10), Duration.ofHours(1), 1000);
+    }
+}
@@ -0,0 +1,55 @@
+package com.pradeep.papertrail.benchmarks;
+
+import java.util.Random;
+import java.util.UUID;
+
+// Synthetic Editor.js documents shaped like real note content, in jsonb's text format
+public final class Documents {
+
+    private static final String[] WORDS = {"note", "paper", "trail", "meeting", "draft", "review", "<b>idea</b>",
+            "plan", "list", "image", "caption", "<i>follow</i>", "up", "todo", "summary", "release"};
+
+    private Documents() {
+    }
+
+    /**
+     * @param bytes Approximate size of the JSON text
+     * @return A document of paragraphs, headers, lists and images, the same for every call with this size
+     */
+    public static String editorJs(int bytes) {
+        Random random = new Random(bytes);
+        StringBuilder json = new StringBuilder(bytes + 512).append("{\"time\": 1760000000000, \"blocks\": [");
+        for (int block = 0; json.length() < bytes; block++) {
+            if (block > 0) {
+                json.append(", ");
+            }
+            json.append("{\"id\": \"b").append(block).append("\", ");
+            switch (block % 6) {
+                case 0 -> json.append("\"type\": \"header\", \"data\": {\"text\": \"").append(words(random, 5))
+                        .append("\", \"level\": 2}}");
+                case 3 -> {
+                    json.append("\"type\": \"list\", \"data\": {\"style\": \"unordered\", \"items\": [");
+                    for (int item = 0; item < 4; item++) {
+                        json.append(item > 0 ? ", \"" : "\"").append(words(random, 6)).append('"');
+                    }
+                    json.append("]}}");
+                }
+                case 5 -> json.append("\"type\": \"image\", \"data\": {\"file\": {\"url\": \"http://localhost:8080/api/images/")
+                        .append(new UUID(random.nextLong(), random.nextLong()))
+                        .append("\"}, \"caption\": \"").append(words(random, 4))
+                        .append("\", \"withBorder\": false, \"stretched\": false}}");
+                default -> json.append("\"type\": \"paragraph\", \"data\": {\"text\": \"").append(words(random, 40))
+                        .append("\"}}");
+            }
+        }
+        return json.append("], \"version\": \"2.28.2\"}").toString();
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(i > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
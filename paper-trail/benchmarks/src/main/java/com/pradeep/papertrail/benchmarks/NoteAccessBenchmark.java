@@ -0,0 +1,70 @@
+package com.pradeep.papertrail.benchmarks;
+
+import com.pradeep.papertrail.model.AccessLevel;
+import com.pradeep.papertrail.repository.NoteRepository;
+import com.pradeep.papertrail.service.NoteAccessService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NoteAccessService.resolve, which every note read and write starts with: a cache hit, and a miss whose
+ * query is answered by a stub repository, so only the in-process part (key, cache, enum lookup) is measured.
+ * Run: mvn package exec:exec -Djmh.args="NoteAccess -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class NoteAccessBenchmark {
+
+    private static final int NOTES = 1000;
+    private static final long USER = 7L;
+
+    private NoteAccessService accessService;
+
+    @Setup
+    public void setUp() {
+        NoteRepository repository = (NoteRepository) Proxy.newProxyInstance(NoteRepository.class.getClassLoader(),
+                new Class<?>[]{NoteRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAccessLevel")) {
+                        return Optional.of((Long) args[0] % 2 == 0 ? "EDIT" : "READ");
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        accessService = new NoteAccessService(repository, new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(10));
+        for (long note = 0; note < NOTES; note++) {
+            accessService.resolve(note, USER);
+        }
+    }
+
+    @Benchmark
+    public AccessLevel cached() {
+        return accessService.resolve(ThreadLocalRandom.current().nextLong(NOTES), USER);
+    }
+
+    @Benchmark
+    public AccessLevel uncached() {
+        long note = NOTES + ThreadLocalRandom.current().nextLong(NOTES);
+        accessService.invalidate(note, USER);
+        return accessService.resolve(note, USER);
+    }
+}
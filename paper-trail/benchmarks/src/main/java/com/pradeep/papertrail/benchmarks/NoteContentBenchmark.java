@@ -0,0 +1,69 @@
+package com.pradeep.papertrail.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pradeep.papertrail.dto.NoteDTO;
+import com.pradeep.papertrail.dto.RawJson;
+import com.pradeep.papertrail.dto.RawNoteDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The body of GET /notes/{id} from the jsonb text the driver returns: parsed into a Map (what the
+ * Note.content mapping does), copied into a NoteDTO and serialized again, versus passed through as RawJson
+ * (papertrail.notes.raw-content). Compare ops/s and gc.alloc.rate.norm (bytes per response).
+ * Run: mvn package exec:exec -Djmh.args="NoteContent -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NoteContentBenchmark {
+
+    private static final TypeReference<Map<String, Object>> CONTENT_TYPE = new TypeReference<>() {
+    };
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 1, 1, 9, 0);
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2026, 1, 2, 17, 30);
+
+    @Param({"2", "20", "200"})
+    public int contentKb;
+
+    private ObjectMapper objectMapper;
+    private String jsonb;
+
+    @Setup
+    public void setUp() {
+        // The same defaults as the mapper Spring Boot gives the backend
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        jsonb = Documents.editorJs(contentKb * 1024);
+    }
+
+    @Benchmark
+    public byte[] mapContent() throws Exception {
+        Map<String, Object> content = objectMapper.readValue(jsonb, CONTENT_TYPE);
+        NoteDTO note = new NoteDTO(1L, "Weekly review", content, "Ann", 7L, CREATED, UPDATED, 3L);
+        return objectMapper.writeValueAsBytes(note);
+    }
+
+    @Benchmark
+    public byte[] rawContent() throws Exception {
+        RawNoteDTO note = new RawNoteDTO(1L, "Weekly review", RawJson.of(jsonb), "Ann", 7L, CREATED, UPDATED, 3L);
+        return objectMapper.writeValueAsBytes(note);
+    }
+}
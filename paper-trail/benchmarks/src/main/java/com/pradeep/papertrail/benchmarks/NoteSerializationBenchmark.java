@@ -0,0 +1,62 @@
+package com.pradeep.papertrail.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pradeep.papertrail.dto.NoteDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson on NoteDTO with small, medium and huge content: writing it (every note response) and reading it
+ * (create and autosave request bodies).
+ * Run: mvn package exec:exec -Djmh.args="NoteSerialization -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NoteSerializationBenchmark {
+
+    @Param({"2", "64", "1024"})
+    public int contentKb;
+
+    private ObjectMapper objectMapper;
+    private NoteDTO note;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        Map<String, Object> content = objectMapper.readValue(Documents.editorJs(contentKb * 1024), new TypeReference<>() {
+        });
+        note = new NoteDTO(1L, "Weekly review", content, "Ann", 7L,
+                LocalDateTime.of(2026, 1, 1, 9, 0), LocalDateTime.of(2026, 1, 2, 17, 30), 3L);
+        json = objectMapper.writeValueAsBytes(note);
+    }
+
+    @Benchmark
+    public byte[] write() throws Exception {
+        return objectMapper.writeValueAsBytes(note);
+    }
+
+    @Benchmark
+    public NoteDTO read() throws Exception {
+        return objectMapper.readValue(json, NoteDTO.class);
+    }
+}
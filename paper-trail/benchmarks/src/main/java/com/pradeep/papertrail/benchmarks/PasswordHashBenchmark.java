@@ -0,0 +1,75 @@
+package com.pradeep.papertrail.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt cost of a login (matches) and a registration (encode). "configured" is papertrail.auth.bcrypt-strength
+ * from the backend's application.properties; compare other strengths with -p strength=configured,11,12.
+ * Each call is one hash, so a pool thread does roughly 1000 / score logins per second.
+ * Run: mvn package exec:exec -Djmh.args="PasswordHash -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordHashBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"configured"})
+    public String strength;
+
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setUp() throws IOException {
+        encoder = new BCryptPasswordEncoder("configured".equals(strength) ? configuredStrength() : Integer.parseInt(strength));
+        hash = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(PASSWORD, hash);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(PASSWORD);
+    }
+
+    // Both backends put an application.properties on the classpath
+    private static int configuredStrength() throws IOException {
+        for (URL url : Collections.list(PasswordHashBenchmark.class.getClassLoader().getResources("application.properties"))) {
+            Properties properties = new Properties();
+            try (InputStream in = url.openStream()) {
+                properties.load(in);
+            }
+            String value = properties.getProperty("papertrail.auth.bcrypt-strength");
+            if (value != null) {
+                return Integer.parseInt(value.trim());
+            }
+        }
+        throw new IllegalStateException("papertrail.auth.bcrypt-strength not found in application.properties");
+    }
+}
@@ -0,0 +1,66 @@
+package com.pradeep.papertrail.benchmarks;
+
+import app.pradeep.ToDoApp.entity.Task;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ToDoApp Task JSON: one task each way (GET /tasks/{id}, POST and PUT bodies) and the whole list GET /tasks returns.
+ * Run: mvn package exec:exec -Djmh.args="TaskJson -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskJsonBenchmark {
+
+    private static final int LIST_SIZE = 500;
+
+    private ObjectMapper objectMapper;
+    private Task task;
+    private byte[] json;
+    private List<Task> tasks;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        task = new Task(42, "Renew passport", "Book an appointment, bring two photos and the old passport", false);
+        json = objectMapper.writeValueAsBytes(task);
+        tasks = new ArrayList<>();
+        for (int i = 0; i < LIST_SIZE; i++) {
+            tasks.add(new Task(i, "Task " + i, "Details of task " + i + " with a sentence or two of text", i % 3 == 0));
+        }
+    }
+
+    @Benchmark
+    public byte[] write() throws Exception {
+        return objectMapper.writeValueAsBytes(task);
+    }
+
+    @Benchmark
+    public Task read() throws Exception {
+        return objectMapper.readValue(json, Task.class);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] writeList() throws Exception {
+        return objectMapper.writeValueAsBytes(tasks);
+    }
+}
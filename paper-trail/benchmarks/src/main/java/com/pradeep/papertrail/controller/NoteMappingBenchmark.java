@@ -0,0 +1,65 @@
+package com.pradeep.papertrail.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pradeep.papertrail.benchmarks.Documents;
+import com.pradeep.papertrail.dto.NoteDTO;
+import com.pradeep.papertrail.model.Note;
+import com.pradeep.papertrail.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NoteController.convertToDTO on its own and followed by serialization, the tail of every note response.
+ * In this package because convertToDTO is package-private.
+ * Run: mvn package exec:exec -Djmh.args="NoteMapping -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NoteMappingBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Note note;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        User user = new User();
+        user.setId(7L);
+        note = new Note();
+        note.setId(1L);
+        note.setTitle("Weekly review");
+        note.setContent(objectMapper.readValue(Documents.editorJs(8 * 1024), new TypeReference<>() {
+        }));
+        note.setUser(user);
+        note.setCreatedBy("Ann");
+        note.setCreatedAt(LocalDateTime.of(2026, 1, 1, 9, 0));
+        note.setUpdatedAt(LocalDateTime.of(2026, 1, 2, 17, 30));
+    }
+
+    @Benchmark
+    public NoteDTO convertToDTO() {
+        return NoteController.convertToDTO(note);
+    }
+
+    @Benchmark
+    public byte[] convertAndWrite() throws Exception {
+        return objectMapper.writeValueAsBytes(NoteController.convertToDTO(note));
+    }
+}
@@ -23,10 +23,13 @@ interface CreateNoteProps {
 const CreateNote: React.FC<CreateNoteProps> = ({ noteId, onSave }) => {
   const editorRef = useRef<EditorJS | null>(null);
   const isInitialized = useRef(false);
+  // Version the editor content is based on, sent as If-Match on save
+  const versionRef = useRef<number | undefined>(undefined);
 
   const [title, setTitle] = useState("");
   const [isSaving, setIsSaving] = useState(false);
   const [saveMessage, setSaveMessage] = useState("");
+  const [hasConflict, setHasConflict] = useState(false);
 
   // Stable save handler
   const handleSave = useCallback(async () => {
@@ -39,10 +42,12 @@ const CreateNote: React.FC<CreateNoteProps> = ({ noteId, onSave }) => {
       const data: OutputData = await editorRef.current.save();
 
       if (noteId) {
-        await notesAPI.updateNote(noteId, {
-          title: title || "Untitled",
-          content: data,
-        });
+        const saved = await notesAPI.updateNote(
+          noteId,
+          { title: title || "Untitled", content: data },
+          versionRef.current
+        );
+        versionRef.current = saved.version;
         setSaveMessage("Note updated successfully!");
       } else {
         await notesAPI.createNote({
@@ -56,12 +61,34 @@ const CreateNote: React.FC<CreateNoteProps> = ({ noteId, onSave }) => {
       setTimeout(() => setSaveMessage(""), 3000);
     } catch (error: any) {
       console.error("Save failed:", error);
-      setSaveMessage(error.response?.data || "Failed to save note");
+      if (error.response?.status === 412) {
+        setHasConflict(true);
+        setSaveMessage(
+          "This note was changed elsewhere. Reload it to get the latest version; your unsaved edits will be lost."
+        );
+      } else {
+        setSaveMessage(error.response?.data || "Failed to save note");
+      }
     } finally {
       setIsSaving(false);
     }
   }, [noteId, title, onSave]);
 
+  // Replaces the editor content with the current server copy after a conflict
+  const handleReload = useCallback(async () => {
+    if (!noteId || !editorRef.current) return;
+    try {
+      const note = await notesAPI.getNoteById(noteId);
+      setTitle(note.title);
+      versionRef.current = note.version;
+      await editorRef.current.render(note.content as OutputData);
+      setHasConflict(false);
+      setSaveMessage("");
+    } catch (error) {
+      console.error("Failed to reload note:", error);
+    }
+  }, [noteId]);
+
   // Editor initialization
   useEffect(() => {
     if (isInitialized.current) return;
@@ -74,6 +101,7 @@ const CreateNote: React.FC<CreateNoteProps> = ({ noteId, onSave }) => {
         try {
           const note = await notesAPI.getNoteById(noteId);
           setTitle(note.title);
+          versionRef.current = note.version;
           initialData = note.content as OutputData;
         } catch (error) {
           console.error("Failed to load note:", error);
@@ -183,6 +211,14 @@ const CreateNote: React.FC<CreateNoteProps> = ({ noteId, onSave }) => {
               }`}
             >
               {saveMessage}
+              {hasConflict && (
+                <button
+                  onClick={handleReload}
+                  className="ml-2 underline hover:text-red-800"
+                >
+                  Reload
+                </button>
+              )}
             </div>
           )}
         </div>
@@ -1,8 +1,17 @@
 // src/components/NotesList.tsx
 import React, { useCallback, useState } from "react";
 import { motion } from "framer-motion";
-import { useQuery, useMutation, useQueryClient } from "@tanstack/react-query";
-import { notesAPI, type NoteDTO } from "../services/api";
+import {
+  useInfiniteQuery,
+  useMutation,
+  useQueryClient,
+  type InfiniteData,
+} from "@tanstack/react-query";
+import {
+  notesAPI,
+  type CursorPage,
+  type NoteSummary,
+} from "../services/api";
 import { Trash2, Eye, Share2 } from "lucide-react";
 
 interface NotesListProps {
@@ -19,20 +28,41 @@ const NotesList: React.FC<NotesListProps> = ({
   const queryClient = useQueryClient();
   const [pendingDelete, setPendingDelete] = useState<number | null>(null);
 
-  const { data, isLoading, error } = useQuery<NoteDTO[]>({
-    queryKey: type === "my" ? ["my-notes"] : ["shared-notes"],
-    queryFn: () =>
-      type === "my" ? notesAPI.getMyNotes() : notesAPI.getSharedNotes(),
+  const queryKey = [type === "my" ? "my-notes" : "shared-notes"];
+
+  const {
+    data,
+    isLoading,
+    error,
+    fetchNextPage,
+    hasNextPage,
+    isFetchingNextPage,
+  } = useInfiniteQuery({
+    queryKey,
+    queryFn: ({ pageParam }) =>
+      type === "my"
+        ? notesAPI.getMyNotes(pageParam)
+        : notesAPI.getSharedNotes(pageParam),
+    initialPageParam: undefined as string | undefined,
+    getNextPageParam: (lastPage) =>
+      lastPage.hasMore ? lastPage.nextCursor : undefined,
   });
 
-  const notes = data ?? [];
+  const notes = data?.pages.flatMap((page) => page.items) ?? [];
 
   const deleteMutation = useMutation({
     mutationFn: (noteId: number) => notesAPI.deleteNote(noteId),
     onSuccess: (_, noteId) => {
-      queryClient.setQueryData<NoteDTO[]>(
-        [type === "my" ? "my-notes" : "shared-notes"],
-        (oldNotes) => oldNotes?.filter((n) => n.id !== noteId) || []
+      queryClient.setQueryData<InfiniteData<CursorPage<NoteSummary>>>(
+        queryKey,
+        (old) =>
+          old && {
+            ...old,
+            pages: old.pages.map((page) => ({
+              ...page,
+              items: page.items.filter((n) => n.id !== noteId),
+            })),
+          }
       );
       setPendingDelete(null);
     },
@@ -163,6 +193,17 @@ const NotesList: React.FC<NotesListProps> = ({
           </motion.div>
         ))}
       </div>
+      {hasNextPage && (
+        <div className="flex justify-center mt-4">
+          <button
+            onClick={() => fetchNextPage()}
+            disabled={isFetchingNextPage}
+            className="px-4 py-2 text-sm rounded-lg border border-gray-300 text-gray-700 hover:bg-gray-50 disabled:opacity-50"
+          >
+            {isFetchingNextPage ? "Loading..." : "Load more"}
+          </button>
+        </div>
+      )}
     </motion.div>
   );
 };
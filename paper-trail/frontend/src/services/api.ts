@@ -28,6 +28,81 @@ export interface NoteDTO {
   userId?: number;
   createdAt?: string;
   updatedAt?: string;
+  version?: number;
+}
+
+export interface NoteSummary {
+  id: number;
+  title: string;
+  createdBy?: string;
+  userId?: number;
+  createdAt?: string;
+  updatedAt?: string;
+  snippet?: string;
+  permission?: "READ" | "EDIT";
+}
+
+export interface NoteSearchResult {
+  id: number;
+  title: string;
+  createdBy: string;
+  userId: number;
+  createdAt: string;
+  updatedAt: string;
+  version: number;
+  rank: number;
+  titleHighlight: string;
+  contentHighlight: string;
+}
+
+export interface NoteRevision {
+  version: number;
+  title: string;
+  snapshot: boolean;
+  userId?: number;
+  createdAt: string;
+  content?: OutputData;
+}
+
+export type NoteEventType =
+  | "NOTE_CREATED"
+  | "NOTE_UPDATED"
+  | "NOTE_SHARED"
+  | "PERMISSION_REVOKED"
+  | "NOTE_DELETED";
+
+export interface NoteEvent {
+  type: NoteEventType;
+  noteId: number;
+  version?: number;
+  title?: string;
+  permission?: "READ" | "EDIT";
+  actorId?: number;
+  at: string;
+}
+
+export interface NoteImportResult {
+  imported: number;
+  failed: number;
+  errors: { line: number; message: string }[];
+}
+
+export interface BulkPermissionRequest {
+  noteIds: number[];
+  emails?: string[];
+  userIds?: number[];
+  permission?: "READ" | "EDIT";
+}
+
+export interface BulkPermissionResponse {
+  changed: number;
+  unknownEmails: string[];
+}
+
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor?: string;
+  hasMore: boolean;
 }
 
 export interface LoginRequest {
@@ -42,6 +117,7 @@ export interface RegisterRequest {
 }
 
 export interface ImageUploadResponse {
+  id: string;
   url: string;
   publicId: string;
   format: string;
@@ -49,6 +125,14 @@ export interface ImageUploadResponse {
   folder: string;
 }
 
+export interface ImageUploadJob {
+  jobId: string;
+  status: "PENDING" | "RUNNING" | "DONE" | "FAILED";
+  result?: ImageUploadResponse;
+  error?: string;
+  createdAt: string;
+}
+
 // Auth API
 export const authAPI = {
   register: async (data: RegisterRequest) => {
@@ -80,23 +164,91 @@ export const notesAPI = {
     return response.data;
   },
 
-  getMyNotes: async () => {
-    const response = await api.get<NoteDTO[]>("/notes/my");
+  getMyNotes: async (cursor?: string) => {
+    const response = await api.get<CursorPage<NoteSummary>>("/notes/my", {
+      params: { cursor },
+    });
     return response.data;
   },
 
-  getSharedNotes: async () => {
-    const response = await api.get<NoteDTO[]>("/notes/shared");
+  getSharedNotes: async (cursor?: string) => {
+    const response = await api.get<CursorPage<NoteSummary>>("/notes/shared", {
+      params: { cursor },
+    });
     return response.data;
   },
 
+  searchNotes: async (q: string, cursor?: string) => {
+    const response = await api.get<CursorPage<NoteSearchResult>>("/notes/search", {
+      params: { q, cursor },
+    });
+    return response.data;
+  },
+
+  // Streamed by the server; navigate to it (session cookie) rather than buffering it through axios
+  getExportUrl: (format: "ndjson" | "zip" = "ndjson", scope: "all" | "owned" | "shared" = "all", after?: number) => {
+    const params = new URLSearchParams({ format, scope });
+    if (after) params.set("after", String(after));
+    return `${API_BASE_URL}/notes/export?${params}`;
+  },
+
+  // NDJSON file, e.g. an export from another account or system; the browser streams the File as-is
+  importNotes: async (file: File) => {
+    const response = await api.post<NoteImportResult>("/notes/import", file, {
+      headers: { "Content-Type": "application/x-ndjson" },
+    });
+    return response.data;
+  },
+
+  // Push-based change feed; EventSource reconnects with Last-Event-ID by itself.
+  // onResync fires when missed events are gone and lists should be refetched.
+  subscribeToNoteEvents: (onEvent: (event: NoteEvent) => void, onResync: () => void) => {
+    const source = new EventSource(`${API_BASE_URL}/notes/events`, {
+      withCredentials: true,
+    });
+    const types: NoteEventType[] = [
+      "NOTE_CREATED",
+      "NOTE_UPDATED",
+      "NOTE_SHARED",
+      "PERMISSION_REVOKED",
+      "NOTE_DELETED",
+    ];
+    types.forEach((type) =>
+      source.addEventListener(type, (e) =>
+        onEvent(JSON.parse((e as MessageEvent).data) as NoteEvent)
+      )
+    );
+    source.addEventListener("resync", onResync);
+    return () => source.close();
+  },
+
   getNoteById: async (noteId: number) => {
     const response = await api.get<NoteDTO>(`/notes/${noteId}`);
     return response.data;
   },
 
-  updateNote: async (noteId: number, note: NoteDTO) => {
-    const response = await api.put<NoteDTO>(`/notes/${noteId}`, note);
+  // With the version the edit started from, the server answers 412 if someone saved in between
+  updateNote: async (noteId: number, note: NoteDTO, version?: number) => {
+    const response = await api.put<NoteDTO>(`/notes/${noteId}`, note, {
+      headers: version !== undefined ? { "If-Match": `"${version}"` } : undefined,
+    });
+    return response.data;
+  },
+
+  getRevisions: async (noteId: number, before?: string) => {
+    const response = await api.get<CursorPage<NoteRevision>>(`/notes/${noteId}/revisions`, {
+      params: { before },
+    });
+    return response.data;
+  },
+
+  getRevision: async (noteId: number, version: number) => {
+    const response = await api.get<NoteRevision>(`/notes/${noteId}/revisions/${version}`);
+    return response.data;
+  },
+
+  restoreRevision: async (noteId: number, version: number) => {
+    const response = await api.post<NoteDTO>(`/notes/${noteId}/revisions/${version}/restore`);
     return response.data;
   },
 
@@ -121,6 +273,17 @@ export const notesAPI = {
     const response = await api.delete(`/notes/${noteId}/permissions/${userId}`);
     return response.data;
   },
+
+  // Many notes with many users in one request, e.g. onboarding a team onto a set of notes
+  shareNotes: async (request: BulkPermissionRequest) => {
+    const response = await api.post<BulkPermissionResponse>("/notes/share", request);
+    return response.data;
+  },
+
+  revokePermissions: async (request: BulkPermissionRequest) => {
+    const response = await api.post<BulkPermissionResponse>("/notes/revoke", request);
+    return response.data;
+  },
 };
 
 
@@ -142,6 +305,32 @@ export const imagesAPI = {
     return response.data;
   },
 
+  // Returns 202 with a job right away; poll getUploadJob until DONE or FAILED
+  uploadImageAsync: async (file: File) => {
+    const formData = new FormData();
+    formData.append("file", file);
+
+    const response = await api.post<ImageUploadJob>("/api/images/upload", formData, {
+      params: { async: true },
+      headers: {
+        "Content-Type": "multipart/form-data",
+      },
+    });
+    return response.data;
+  },
+
+  // Resized copy for thumbnails and list views; widths are rounded up server-side and cached long-term
+  getImageVariantUrl: (id: string, width: number, format?: "jpeg" | "png" | "webp") => {
+    const params = new URLSearchParams({ w: String(width) });
+    if (format) params.set("format", format);
+    return `${API_BASE_URL}/api/images/${id}?${params}`;
+  },
+
+  getUploadJob: async (jobId: string) => {
+    const response = await api.get<ImageUploadJob>(`/api/images/jobs/${jobId}`);
+    return response.data;
+  },
+
   deleteImage: async (publicId: string) => {
     const response = await api.delete("/api/images/delete", {
       params: { publicId },